@@ -4,7 +4,6 @@ import ui.SplashView;
 import utils.Logger;
 
 import javax.swing.*;
-import java.lang.reflect.InvocationTargetException;
 
 /**
  * @author lomofu
@@ -12,7 +11,7 @@ import java.lang.reflect.InvocationTargetException;
  * This class will boot the whole application whith some steps
  * <p>
  * 1. load the splash view
- * 2. init the datasource
+ * 2. init the datasource (off the event dispatch thread)
  * 3. dispose the splash view (if any error)
  * 4. create a background task
  * 5. load JFrame
@@ -21,11 +20,12 @@ public class ClubMembership {
     public static void main(String[] args) throws InterruptedException {
         try {
             SplashView.run();
-            SwingUtilities.invokeAndWait(DataSource::init);
+            // load the files in the main thread, so the event dispatch thread can still paint the splash view
+            DataSource.init();
             //cover the exceptions and errors
-        } catch (InterruptedException | InvocationTargetException | Error e) {
+        } catch (RuntimeException | Error e) {
             SplashView.dispose();
-            JOptionPane.showMessageDialog(null, e.getCause(), "Error", JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(null, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             Logger.error(e.getMessage());
             System.exit(-1);
         }
@@ -1,5 +1,7 @@
 package bean;
 
+import utils.CSVRowMapper;
+import utils.DateUtil;
 import utils.StringUtil;
 
 import java.text.MessageFormat;
@@ -9,8 +11,14 @@ import java.util.Objects;
  * @author lomofu
  *
  * This record(since java14) will store each consumption, which can only be stored but cannot edit.
+ * The create day is the number of days from 1970-01-01, it is still written as dd/MM/yyyy in the csv file.
  */
-public record Consumption(String orderId, String consumer, String memberId, String createTime, String fees) {
+public record Consumption(String orderId, String consumer, String memberId, int createDay, Money fees) {
+    // map a csv row into a consumption, the column order is the same as the record components
+    public static final CSVRowMapper<Consumption> CSV_MAPPER =
+            row -> new Consumption(row.get(0), row.get(1), row.get(2), DateUtil.parseDay(row.get(3)),
+                    Money.parse(row.get(4, "0")));
+
     @Override
     public boolean equals(Object o) {
         if(this == o)
@@ -35,7 +43,7 @@ public record Consumption(String orderId, String consumer, String memberId, Stri
                 orderId,
                 StringUtil.escapeSpecialCharacters(consumer),
                 memberId,
-                createTime,
+                DateUtil.formatDay(createDay),
                 fees);
     }
 }
@@ -1,5 +1,6 @@
 package bean;
 
+import utils.CSVRowMapper;
 import utils.IDUtil;
 import utils.StringUtil;
 
@@ -9,6 +10,14 @@ import utils.StringUtil;
  * This class stores each course details with two fields
  */
 public class Course {
+    // map a csv row into a course
+    public static final CSVRowMapper<Course> CSV_MAPPER = row -> {
+        Course course = new Course();
+        course.courseId = row.get(0);
+        course.courseName = row.get(1);
+        return course;
+    };
+
     private String courseId;
     private String courseName;
 
@@ -1,5 +1,7 @@
 package bean;
 
+import utils.CSVRowMapper;
+
 import java.util.Objects;
 
 /**
@@ -8,6 +10,27 @@ import java.util.Objects;
  * This class stores each customer details
  */
 public class Customer {
+    // map a csv row into a customer, the column order is the same as the fields
+    public static final CSVRowMapper<Customer> CSV_MAPPER = row -> {
+        Customer customer = new Customer();
+        customer.id = row.get(0);
+        customer.firstName = row.get(1);
+        customer.lastName = row.get(2);
+        customer.dateOfBirth = row.get(3);
+        customer.gender = row.get(4);
+        customer.homeAddress = row.get(5);
+        customer.phoneNumber = row.get(6);
+        customer.healthCondition = row.get(7);
+        customer.type = row.get(8);
+        customer.startDate = row.get(9);
+        customer.duration = row.get(10);
+        customer.expireTime = row.get(11);
+        customer.fees = row.get(12, "0");
+        customer.parentId = row.get(13);
+        customer.state = row.get(14);
+        return customer;
+    };
+
     private String id = "";
     private String firstName = "";
     private String lastName = "";
@@ -0,0 +1,222 @@
+package bean;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class is an amount of money in pounds, it is stored as a long of pence
+ * <p>
+ * 1. The arithmetic is exact, an overflow throws an ArithmeticException instead of wrapping
+ * 2. The text is parsed without creating a BigDecimal, the digits after the pence are rounded half up
+ * 3. The sum of a list is a loop of longs, see@sum
+ * <p>
+ * It is immutable
+ */
+public final class Money implements Comparable<Money> {
+    // the number of the digits after the point
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+    // the scale of a rate, ex. 0.85 is 8500
+    private static final int RATE_SCALE = 4;
+    private static final long RATE_ONE = 10000;
+
+    private final long minor;
+
+    private Money(long minor) {
+        this.minor = minor;
+    }
+
+    /**
+     * @param minor the amount in pence
+     *
+     * @return the money
+     */
+    public static Money ofMinor(long minor) {
+        return minor == 0 ? ZERO : new Money(minor);
+    }
+
+    /**
+     * Parse a text like 12, 12.5 or -12.50
+     *
+     * @param text the text, a blank text is zero
+     *
+     * @return the money
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static Money parse(String text) {
+        return ofMinor(parseScaled(text, SCALE));
+    }
+
+    /**
+     * Sum the amounts of a list, it does not create any object
+     *
+     * @param list   the list
+     * @param amount the amount in pence of an element
+     * @param <T>    the element type
+     *
+     * @return the sum in pence
+     */
+    public static <T> long sum(List<T> list, ToLongFunction<? super T> amount) {
+        long sum = 0;
+        for(int i = 0, size = list.size(); i < size; i++) {
+            sum = Math.addExact(sum, amount.applyAsLong(list.get(i)));
+        }
+        return sum;
+    }
+
+    // the text as a long of the scale, the extra digits are rounded half up
+    private static long parseScaled(CharSequence text, int scale) {
+        if(text == null) {
+            return 0;
+        }
+        int start = 0;
+        int end = text.length();
+        while(start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while(end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        if(start == end) {
+            return 0;
+        }
+        boolean negative = text.charAt(start) == '-';
+        if(negative || text.charAt(start) == '+') {
+            start++;
+        }
+        long value = 0;
+        int fraction = - 1; // the number of the digits after the point, -1 before the point
+        boolean digits = false;
+        boolean roundUp = false;
+        for(int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if(c == '.' && fraction < 0) {
+                fraction = 0;
+                continue;
+            }
+            if(c < '0' || c > '9') {
+                throw new NumberFormatException("Not an amount: " + text);
+            }
+            digits = true;
+            if(fraction >= scale) {
+                // only the first dropped digit decides the rounding
+                if(fraction++ == scale) {
+                    roundUp = c >= '5';
+                }
+                continue;
+            }
+            value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+            if(fraction >= 0) {
+                fraction++;
+            }
+        }
+        if(! digits) {
+            throw new NumberFormatException("Not an amount: " + text);
+        }
+        for(int i = Math.max(fraction, 0); i < scale; i++) {
+            value = Math.multiplyExact(value, 10);
+        }
+        if(roundUp) {
+            value = Math.addExact(value, 1);
+        }
+        return negative ? - value : value;
+    }
+
+    /**
+     * @return the amount in pence
+     */
+    public long minor() {
+        return minor;
+    }
+
+    public Money plus(Money money) {
+        return ofMinor(Math.addExact(minor, money.minor));
+    }
+
+    public Money minus(Money money) {
+        return ofMinor(Math.subtractExact(minor, money.minor));
+    }
+
+    public Money times(long n) {
+        return ofMinor(Math.multiplyExact(minor, n));
+    }
+
+    /**
+     * The percentage discount
+     *
+     * @param rate the rate
+     *
+     * @return this amount multiplied by the rate, rounded half up to the pence
+     */
+    public Money times(Rate rate) {
+        long product = Math.multiplyExact(minor, rate.value());
+        long result = product / RATE_ONE;
+        if(Math.abs(product % RATE_ONE) * 2 >= RATE_ONE) {
+            result += Long.signum(product);
+        }
+        return ofMinor(result);
+    }
+
+    /**
+     * The fixed discount, the result is never negative
+     *
+     * @param discount the discount amount
+     *
+     * @return this amount minus the discount, or zero
+     */
+    public Money discount(Money discount) {
+        return ofMinor(Math.max(Math.subtractExact(minor, discount.minor), 0));
+    }
+
+    public boolean isNegative() {
+        return minor < 0;
+    }
+
+    @Override
+    public int compareTo(Money o) {
+        return Long.compare(minor, o.minor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o)
+            return true;
+        if(o == null || getClass() != o.getClass())
+            return false;
+        return minor == ((Money) o).minor;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minor);
+    }
+
+    /**
+     * @return the plain text with two digits after the point, ex. 12.50, it can be parsed by see@parse
+     */
+    @Override
+    public String toString() {
+        long abs = Math.abs(minor);
+        long pence = abs % 100;
+        return (minor < 0 ? "-" : "") + abs / 100 + (pence < 10 ? ".0" : ".") + pence;
+    }
+
+    /**
+     * The rate of a percentage discount, ex. 0.85 means pay 85 percent
+     *
+     * @param value the rate in the scale of 4, ex. 8500
+     */
+    public record Rate(long value) {
+        /**
+         * @param text the rate text, ex. 0.85
+         *
+         * @return the rate, the digits after the fourth are rounded half up
+         */
+        public static Rate parse(String text) {
+            return new Rate(parseScaled(text, RATE_SCALE));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package bean;
 
+import utils.CSVRowMapper;
 import utils.StringUtil;
 
 import java.text.MessageFormat;
@@ -10,6 +11,16 @@ import java.text.MessageFormat;
  * This class stores each promotion details
  */
 public class Promotion {
+    // map a csv row into a promotion
+    public static final CSVRowMapper<Promotion> CSV_MAPPER = row -> {
+        Promotion promotion = new Promotion();
+        promotion.promotionId = row.get(0);
+        promotion.promotionCode = row.get(1);
+        promotion.promotionType = row.get(2);
+        promotion.value = row.get(3);
+        return promotion;
+    };
+
     private String promotionId;
     private String promotionCode;
     private String promotionType;
@@ -1,5 +1,6 @@
 package bean;
 
+import utils.CSVRowMapper;
 import utils.IDUtil;
 import utils.StringUtil;
 
@@ -11,6 +12,21 @@ import java.text.MessageFormat;
  * This class stores each role details
  */
 public class Role {
+    // map a csv row into a role
+    public static final CSVRowMapper<Role> CSV_MAPPER = row -> {
+        Role role = new Role();
+        role.roleId = row.get(0);
+        role.roleName = row.get(1);
+        role.oneMonth = row.get(2);
+        role.threeMonth = row.get(3);
+        role.halfYear = row.get(4);
+        role.fullYear = row.get(5);
+        role.gym = row.get(6);
+        role.swimmingPool = row.get(7);
+        role.courseList = row.get(8);
+        return role;
+    };
+
     private String roleId;
     private String roleName;
     private String oneMonth;
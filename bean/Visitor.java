@@ -1,11 +1,21 @@
 package bean;
 
+import utils.CSVRowMapper;
+
 /**
  * @author lomofu
  * <p>
  * This class stores each visitor details with two fields
  */
 public class Visitor {
+    // map a csv row into a visitor
+    public static final CSVRowMapper<Visitor> CSV_MAPPER = row -> {
+        Visitor visitor = new Visitor();
+        visitor.date = row.get(0);
+        visitor.count = row.get(1, "0");
+        return visitor;
+    };
+
     private String date = "";
     private String count = "0";
 
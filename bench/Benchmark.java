@@ -0,0 +1,181 @@
+package bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class runs one benchmark and measures its time and allocation, it is a small replacement of jmh since the
+ * project has no build tool to pull it in
+ * <p>
+ * 1. The warmup iterations run the operation until the jit compiles it, their results are not kept
+ * 2. Each measured iteration runs the operation in batches until the iteration time is reached, the clock is only read
+ * between the batches, so the time of a fast operation is not covered by the clock itself
+ * 3. The allocated bytes of the benchmark thread are read from the thread mx bean, and the gc count and time from the
+ * gc mx beans, the same figures as the gc profiler of jmh
+ * 4. The result of each call is kept in a volatile field, so the jit cannot remove the call
+ * <p>
+ * All the benchmarks run in one jvm, run one suite per jvm by the filter when the numbers should not be affected by
+ * the other suites
+ */
+final class Benchmark {
+    // the batch grows until one batch takes this long
+    private static final long BATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static volatile Object sink;
+
+    private final String name;
+    private final Map<String, Object> params = new LinkedHashMap<>();
+
+    private Benchmark(String name) {
+        this.name = name;
+    }
+
+    static Benchmark of(String name) {
+        return new Benchmark(name);
+    }
+
+    /**
+     * @param key   the parameter name, ex. rows
+     * @param value the parameter value, it is written to the result
+     */
+    Benchmark param(String key, Object value) {
+        params.put(key, value);
+        return this;
+    }
+
+    /**
+     * @return the name with the parameters, ex. csv.read{rows=10000}
+     */
+    String label() {
+        return params.isEmpty() ? name : name + params;
+    }
+
+    /**
+     * Run the operation
+     *
+     * @param options   the iterations and the iteration time
+     * @param operation the measured operation, its result is consumed
+     *
+     * @return the result of the measured iterations
+     */
+    Result run(Options options, Operation operation) throws Exception {
+        long iterationNanos = TimeUnit.MILLISECONDS.toNanos(options.iterationMillis());
+        for(int i = 0; i < options.warmupIterations(); i++) {
+            iteration(operation, iterationNanos);
+        }
+        List<Iteration> iterations = new ArrayList<>();
+        for(int i = 0; i < options.measurementIterations(); i++) {
+            iterations.add(iteration(operation, iterationNanos));
+        }
+        return Result.of(name, params, iterations);
+    }
+
+    private static Iteration iteration(Operation operation, long iterationNanos) throws Exception {
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long allocated = THREAD_BEAN.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        long operations = 0;
+        int batch = 1;
+        do {
+            long batchStart = System.nanoTime();
+            for(int i = 0; i < batch; i++) {
+                sink = operation.run();
+            }
+            operations += batch;
+            long end = System.nanoTime();
+            if(end - batchStart < BATCH_NANOS && batch < (1 << 20)) {
+                batch <<= 1;
+            }
+            elapsed = end - start;
+        } while(elapsed < iterationNanos);
+        return new Iteration(operations, elapsed, THREAD_BEAN.getCurrentThreadAllocatedBytes() - allocated,
+                gcCount() - gcCount, gcMillis() - gcMillis);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(bean.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(bean.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    /**
+     * The measured operation, it returns its result so it is not removed by the jit
+     */
+    @FunctionalInterface
+    interface Operation {
+        Object run() throws Exception;
+    }
+
+    /**
+     * @param warmupIterations      the iterations before the measurement
+     * @param measurementIterations the measured iterations
+     * @param iterationMillis       the min time of each iteration, a slow operation still runs once
+     */
+    record Options(int warmupIterations, int measurementIterations, long iterationMillis) {
+    }
+
+    private record Iteration(long operations, long nanos, long allocatedBytes, long gcCount, long gcMillis) {
+        double nanosPerOperation() {
+            return (double) nanos / operations;
+        }
+    }
+
+    /**
+     * The result of a benchmark, the time is the mean of the iterations and the error is their standard deviation
+     */
+    record Result(String name, Map<String, Object> params, int iterations, long operations, double nanosPerOperation,
+                  double error, double minNanosPerOperation, double maxNanosPerOperation, double bytesPerOperation,
+                  double allocationMegabytesPerSecond, long gcCount, long gcMillis) {
+        private static Result of(String name, Map<String, Object> params, List<Iteration> iterations) {
+            long operations = 0;
+            long nanos = 0;
+            long allocated = 0;
+            long gcCount = 0;
+            long gcMillis = 0;
+            double sum = 0;
+            double min = Double.MAX_VALUE;
+            double max = 0;
+            for(Iteration iteration : iterations) {
+                operations += iteration.operations();
+                nanos += iteration.nanos();
+                allocated += iteration.allocatedBytes();
+                gcCount += iteration.gcCount();
+                gcMillis += iteration.gcMillis();
+                double perOperation = iteration.nanosPerOperation();
+                sum += perOperation;
+                min = Math.min(min, perOperation);
+                max = Math.max(max, perOperation);
+            }
+            int n = iterations.size();
+            double mean = sum / n;
+            double squares = 0;
+            for(Iteration iteration : iterations) {
+                squares += Math.pow(iteration.nanosPerOperation() - mean, 2);
+            }
+            double error = n > 1 ? Math.sqrt(squares / (n - 1)) : 0;
+            double seconds = nanos / (double) TimeUnit.SECONDS.toNanos(1);
+            return new Result(name, new LinkedHashMap<>(params), n, operations, mean, error, min, max,
+                    (double) allocated / operations, allocated / seconds / (1024 * 1024), gcCount, gcMillis);
+        }
+    }
+}
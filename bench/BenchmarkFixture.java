@@ -0,0 +1,87 @@
+package bench;
+
+import constant.DefaultDataConstant;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class writes the data files of the benchmarks by the see@ClubDataGenerator
+ * <p>
+ * 1. The data source files are written into the working directory, so the data source loads them as usual. A marker
+ * file is written with them, and the files are never written over without the marker, so the real data is safe
+ * 2. The csv files of the csv benchmarks are written into their own folder
+ * 3. The seed is fixed, so the same sizes always give the same files
+ */
+final class BenchmarkFixture {
+    static final String MARKER = "bench-fixture.txt";
+    static final String CSV_DIRECTORY = "bench-data";
+    private static final long SEED = 20210501L;
+
+    private BenchmarkFixture() {
+        // DO NOTHING
+    }
+
+    /**
+     * Write the data source files into the working directory
+     *
+     * @param members      the number of the members
+     * @param consumptions the number of the consumptions
+     *
+     * @throws IllegalStateException if the directory has the data files which are not written by the benchmarks
+     */
+    static void prepareDataSource(int members, int consumptions) throws IOException {
+        Path marker = Paths.get(".", MARKER);
+        if(Files.exists(Paths.get(".", DefaultDataConstant.CUSTOMER_CSV_PATH)) && ! Files.exists(marker)) {
+            throw new IllegalStateException("The working directory has the club data, run the benchmarks in an " +
+                    "empty directory");
+        }
+        // the log and the snapshot of the last run belong to the old files
+        deleteRecursively(Paths.get(".", DefaultDataConstant.WAL_DIRECTORY));
+        Files.deleteIfExists(Paths.get(".", DefaultDataConstant.SNAPSHOT_PATH));
+        Files.writeString(marker, "members=" + members + ", consumptions=" + consumptions + System.lineSeparator());
+        generator(members, consumptions).generate(Paths.get("."));
+    }
+
+    /**
+     * @param type customers or consumptions
+     * @param rows the number of the rows
+     *
+     * @return the file of the csv benchmarks, relative to the working directory
+     */
+    static String csvFile(String type, int rows) throws IOException {
+        Path directory = Paths.get(".", CSV_DIRECTORY);
+        Files.createDirectories(directory);
+        String file = CSV_DIRECTORY + "/" + type + "-" + rows + ".csv";
+        Path path = Paths.get(".", file);
+        if(! Files.exists(path)) {
+            if("customers".equals(type)) {
+                generator(rows, 0).writeMembers(path);
+            } else {
+                generator(rows, rows).writeConsumptions(path);
+            }
+        }
+        return file;
+    }
+
+    private static ClubDataGenerator generator(int members, long consumptions) {
+        return new ClubDataGenerator(SEED, members, consumptions, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if(! Files.exists(path)) {
+            return;
+        }
+        try(Stream<Path> paths = Files.walk(path)) {
+            for(Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+}
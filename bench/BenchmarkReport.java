@@ -0,0 +1,100 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class writes the benchmark results as a json file, one result per line, so two runs can be compared by diff
+ */
+final class BenchmarkReport {
+    private BenchmarkReport() {
+        // DO NOTHING
+    }
+
+    /**
+     * @param path    the json file
+     * @param options the options of the run
+     * @param results the results in the running order
+     */
+    static void write(Path path, Benchmark.Options options, List<Benchmark.Result> results) throws IOException {
+        Runtime runtime = Runtime.getRuntime();
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"time\": ").append(string(Instant.now().toString())).append(",\n");
+        json.append("  \"jvm\": ").append(string(System.getProperty("java.vm.name") + " "
+                + System.getProperty("java.runtime.version"))).append(",\n");
+        json.append("  \"os\": ").append(string(System.getProperty("os.name") + " "
+                + System.getProperty("os.arch"))).append(",\n");
+        json.append("  \"processors\": ").append(runtime.availableProcessors()).append(",\n");
+        json.append("  \"maxHeapBytes\": ").append(runtime.maxMemory()).append(",\n");
+        json.append("  \"warmupIterations\": ").append(options.warmupIterations()).append(",\n");
+        json.append("  \"measurementIterations\": ").append(options.measurementIterations()).append(",\n");
+        json.append("  \"iterationMillis\": ").append(options.iterationMillis()).append(",\n");
+        json.append("  \"results\": [\n");
+        for(int i = 0; i < results.size(); i++) {
+            json.append("    ");
+            result(json, results.get(i));
+            json.append(i < results.size() - 1 ? ",\n" : "\n");
+        }
+        json.append("  ]\n");
+        json.append("}\n");
+        Files.writeString(path, json, StandardCharsets.UTF_8);
+    }
+
+    private static void result(StringBuilder json, Benchmark.Result result) {
+        json.append("{\"name\": ").append(string(result.name()));
+        json.append(", \"params\": {");
+        boolean first = true;
+        for(Map.Entry<String, Object> param : result.params().entrySet()) {
+            json.append(first ? "" : ", ").append(string(param.getKey())).append(": ");
+            json.append(param.getValue() instanceof Number ? param.getValue().toString()
+                    : string(String.valueOf(param.getValue())));
+            first = false;
+        }
+        json.append('}');
+        json.append(", \"iterations\": ").append(result.iterations());
+        json.append(", \"operations\": ").append(result.operations());
+        json.append(", \"nsPerOp\": ").append(number(result.nanosPerOperation()));
+        json.append(", \"nsPerOpError\": ").append(number(result.error()));
+        json.append(", \"nsPerOpMin\": ").append(number(result.minNanosPerOperation()));
+        json.append(", \"nsPerOpMax\": ").append(number(result.maxNanosPerOperation()));
+        json.append(", \"bytesPerOp\": ").append(number(result.bytesPerOperation()));
+        json.append(", \"allocMBPerSec\": ").append(number(result.allocationMegabytesPerSecond()));
+        json.append(", \"gcCount\": ").append(result.gcCount());
+        json.append(", \"gcMillis\": ").append(result.gcMillis());
+        json.append('}');
+    }
+
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String string(String value) {
+        StringBuilder json = new StringBuilder("\"");
+        for(char c : value.toCharArray()) {
+            switch(c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if(c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,197 @@
+package bench;
+
+import bean.Consumption;
+import bean.Customer;
+import bean.Money;
+import core.CourseService;
+import core.FeesService;
+import core.MembershipService;
+import core.PromotionCodeService;
+import core.RoleService;
+import core.StatisticsService;
+import data.DataSource;
+import dto.CustomerDto;
+import utils.CSVUtil;
+import utils.DateUtil;
+import utils.Logger;
+
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class is the entry of the benchmarks, it runs without a screen and writes the results to a json file
+ * <p>
+ * Run it in an empty directory, the data files are written into the working directory:
+ * <pre>
+ * java -cp classes bench.ClubBenchmarks --filter "csv.*" --sizes 10000,100000,1000000 --out results.json
+ * </pre>
+ * Options:
+ * 1. --filter      the regex of the benchmark names, all of them by default
+ * 2. --sizes       the rows of the csv benchmarks, 10000,100000,1000000 by default
+ * 3. --members     the members loaded by the data source, 100000 by default, there are 4 consumptions per member
+ * 4. --warmup      the warmup iterations, 3 by default
+ * 5. --iterations  the measured iterations, 5 by default
+ * 6. --time        the min milliseconds of each iteration, 1000 by default
+ * 7. --out         the json file, bench-results.json by default
+ */
+public final class ClubBenchmarks {
+    private static final Map<String, String> DEFAULT_OPTIONS = Map.of(
+            "filter", ".*",
+            "sizes", "10000,100000,1000000",
+            "members", "100000",
+            "warmup", "3",
+            "iterations", "5",
+            "time", "1000",
+            "out", "bench-results.json");
+
+    private final Pattern filter;
+    private final Benchmark.Options options;
+    private final List<Benchmark.Result> results = new ArrayList<>();
+
+    private ClubBenchmarks(Pattern filter, Benchmark.Options options) {
+        this.filter = filter;
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> arguments = parse(args);
+        int members = Integer.parseInt(arguments.get("members"));
+        Benchmark.Options options = new Benchmark.Options(
+                Integer.parseInt(arguments.get("warmup")),
+                Math.max(Integer.parseInt(arguments.get("iterations")), 1),
+                Long.parseLong(arguments.get("time")));
+        ClubBenchmarks benchmarks = new ClubBenchmarks(Pattern.compile(arguments.get("filter")), options);
+        // the csv benchmarks log each write
+        Logger.setLevel(Logger.Level.WARN);
+
+        // the files have to be written before the data source is loaded
+        BenchmarkFixture.prepareDataSource(members, members * 4);
+        DataSource.init();
+
+        for(String size : arguments.get("sizes").split(",")) {
+            benchmarks.csv(Integer.parseInt(size.trim()));
+        }
+        benchmarks.lookups();
+        benchmarks.services();
+        benchmarks.mutations();
+        benchmarks.tableRenders();
+
+        BenchmarkReport.write(Paths.get(arguments.get("out")), options, benchmarks.results);
+        System.out.println("Wrote " + benchmarks.results.size() + " results to " + arguments.get("out"));
+        Logger.flush(1000);
+        System.exit(0);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> arguments = new HashMap<>(DEFAULT_OPTIONS);
+        for(int i = 0; i < args.length; i++) {
+            String key = args[i].startsWith("--") ? args[i].substring(2) : "";
+            if(! DEFAULT_OPTIONS.containsKey(key) || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Unknown option " + args[i] + ", the options are "
+                        + new TreeSet<>(DEFAULT_OPTIONS.keySet()));
+            }
+            arguments.put(key, args[++ i]);
+        }
+        return arguments;
+    }
+
+    // CSVUtil.read and CSVUtil.write of the customers and the consumptions
+    private void csv(int rows) throws Exception {
+        for(String type : new String[]{"customers", "consumptions"}) {
+            Benchmark read = Benchmark.of("csv.read").param("type", type).param("rows", rows);
+            Benchmark write = Benchmark.of("csv.write").param("type", type).param("rows", rows);
+            if(! selected(read) && ! selected(write)) {
+                continue;
+            }
+            String file = BenchmarkFixture.csvFile(type, rows);
+            boolean customers = "customers".equals(type);
+            run(read, () -> customers
+                    ? CSVUtil.read(file, Customer.CSV_MAPPER, true)
+                    : CSVUtil.read(file, Consumption.CSV_MAPPER, true));
+            if(selected(write)) {
+                List<?> data = customers
+                        ? CSVUtil.read(file, Customer.CSV_MAPPER, true)
+                        : CSVUtil.read(file, Consumption.CSV_MAPPER, true);
+                String target = BenchmarkFixture.CSV_DIRECTORY + "/write-" + type + ".csv";
+                run(write, () -> {
+                    CSVUtil.write(target, data, "Benchmark");
+                    return data;
+                });
+            }
+        }
+    }
+
+    // the index lookups of the data source through the services
+    private void lookups() throws Exception {
+        List<CustomerDto> customers = DataSource.getCustomerList();
+        String[] ids = customers.stream().map(CustomerDto::getId).toArray(String[]::new);
+        String[] parentIds = customers.stream().map(CustomerDto::getParent)
+                .filter(e -> e != null && ! e.isEmpty()).distinct().toArray(String[]::new);
+        int members = ids.length;
+        int[] next = new int[1];
+        run(Benchmark.of("membership.findCustomerById").param("members", members),
+                () -> MembershipService.findCustomerById(ids[next[0]++ % ids.length]));
+        run(Benchmark.of("membership.findFamilyMember").param("members", members),
+                () -> MembershipService.findFamilyMember(parentIds[next[0]++ % parentIds.length]));
+    }
+
+    private void services() throws Exception {
+        String[] durations = {"1", "3", "6", "12"};
+        int[] next = new int[1];
+        run(Benchmark.of("fees.getFees"),
+                () -> FeesService.getFees("Individual Member", durations[next[0]++ & 3]));
+        run(Benchmark.of("statistics.get").param("members", DataSource.getCustomerList().size()),
+                StatisticsService::get);
+    }
+
+    // a record is added and removed again, so the data keeps its size
+    private void mutations() throws Exception {
+        int members = DataSource.getCustomerList().size();
+        long[] next = new long[1];
+        String memberId = DataSource.getCustomerList().get(0).getId();
+        run(Benchmark.of("datasource.add-remove").param("type", "consumption").param("members", members), () -> {
+            Consumption consumption = new Consumption("B" + next[0]++, "Benchmark", memberId, DateUtil.today(),
+                    Money.parse("6"));
+            DataSource.add(consumption);
+            DataSource.remove(List.of(consumption));
+            return consumption;
+        });
+        CustomerDto template = DataSource.getCustomerList().get(0);
+        run(Benchmark.of("datasource.add-remove").param("type", "customer").param("members", members), () -> {
+            CustomerDto customerDto = new CustomerDto(template);
+            customerDto.setId("B" + next[0]++);
+            DataSource.add(customerDto);
+            DataSource.remove(List.of(customerDto));
+            return customerDto;
+        });
+    }
+
+    // the two dim arrays built for the tables
+    private void tableRenders() throws Exception {
+        int members = DataSource.getCustomerList().size();
+        String parentId = DataSource.getCustomerList().get(0).getId();
+        run(Benchmark.of("render.membership.main").param("members", members),
+                () -> MembershipService.findMembersForMainTableRender(parentId));
+        run(Benchmark.of("render.course"), CourseService::findCoursesForTableRender);
+        run(Benchmark.of("render.promotion"), PromotionCodeService::findMembersForTableRender);
+        run(Benchmark.of("render.role"), RoleService::findRoles);
+    }
+
+    private boolean selected(Benchmark benchmark) {
+        return filter.matcher(benchmark.label()).lookingAt();
+    }
+
+    private void run(Benchmark benchmark, Benchmark.Operation operation) throws Exception {
+        if(! selected(benchmark)) {
+            return;
+        }
+        System.out.println("Running " + benchmark.label());
+        Benchmark.Result result = benchmark.run(options, operation);
+        System.out.printf(Locale.ROOT, "%-60s %14.1f ns/op +- %.1f %12.1f B/op %6d gc%n", benchmark.label(),
+                result.nanosPerOperation(), result.error(), result.bytesPerOperation(), result.gcCount());
+        results.add(result);
+    }
+}
@@ -0,0 +1,395 @@
+package bench;
+
+import bean.Course;
+import bean.Money;
+import bean.Role;
+import constant.CustomerSateEnum;
+import constant.DefaultDataConstant;
+import constant.UIConstant;
+import utils.DateUtil;
+import utils.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class generates the six data files of the club at any size, for the load tests and the benchmarks
+ * <p>
+ * 1. The same seed and sizes always give the same files. The rows are generated in chunks, and each chunk has its own
+ * random seeded by the seed and the chunk index, so the output does not depend on the threads
+ * 2. The chunks are built by all the cores and written in their order by one thread. Only a few chunks are held at the
+ * same time, so the memory does not grow with the files
+ * 3. The members are placed in households of 5 indexes, the first ones of a household may be a family which shares the
+ * last name and the membership of its main member, the others are single members. So the main member of any index is
+ * known without reading the other rows, and a consumption can name its member
+ * 4. A membership starts in the last 3 years and is renewed term by term with a chance, so there are members who
+ * expired long ago, just expired and are active. The roles, courses and fees are the default ones
+ * <p>
+ * Run it with the output folder:
+ * <pre>
+ * java -cp classes bench.ClubDataGenerator --members 1000000 --consumptions 50000000 --seed 42 --out fixture
+ * </pre>
+ */
+public final class ClubDataGenerator {
+    // a multiple of the household size, so a family is never split by two chunks
+    private static final int CHUNK_ROWS = 16380;
+    private static final int HOUSEHOLD = 5;
+    private static final int HISTORY_DAYS = 3 * 365;
+    private static final double RENEW_CHANCE = 0.55;
+    private static final double VISIT_CHANCE = 0.15;
+    private static final int[] DURATIONS = {1, 3, 6, 12};
+    // the chance of each duration in percent
+    private static final int[] DURATION_WEIGHTS = {30, 25, 20, 25};
+    // the chance of the family size of a household in percent, from 1 to 5
+    private static final int[] FAMILY_WEIGHTS = {45, 25, 15, 10, 5};
+    private static final String[] FIRST_NAMES = {
+            "Oliver", "Amelia", "George", "Isla", "Harry", "Ava", "Noah", "Mia", "Jack", "Ivy", "Leo", "Lily",
+            "Arthur", "Isabella", "Muhammad", "Rosie", "Oscar", "Sophia", "Charlie", "Grace", "Jacob", "Freya",
+            "Thomas", "Olivia", "Henry", "Emily", "William", "Poppy", "Alfie", "Ella", "Archie", "Evie"};
+    private static final String[] LAST_NAMES = {
+            "Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Johnson", "Davies", "Patel", "Robinson",
+            "Wright", "Thompson", "Evans", "Walker", "White", "Roberts", "Green", "Hall", "Thomas", "Clarke",
+            "Jackson", "Wood", "Harris", "Edwards", "Turner", "Martin", "Cooper", "Hill", "Ward", "Hughes"};
+    private static final String[] STREETS = {
+            "High Street", "Station Road", "Church Lane", "Park Avenue", "Victoria Road", "Mill Lane", "Kings Road"};
+    private static final String[] HEALTH = {"None", "None", "None", "None", "Asthma", "Diabetes", "Back pain"};
+    private static final String[][] PROMOTIONS = {
+            {"SPRING", "Vouchers", "5"}, {"SUMMER", "Discount", "0.9"}, {"WELCOME", "Vouchers", "10"},
+            {"STUDENT", "Discount", "0.8"}, {"FAMILY", "Discount", "0.85"}, {"LOYAL", "Vouchers", "20"}};
+
+    private final long seed;
+    private final int members;
+    private final long consumptions;
+    private final int threads;
+    private final int today;
+    // the formatted dates from the oldest birthday to the latest expiry
+    private final int firstDay;
+    private final String[] days;
+    private final Role[] roles;
+    private final Course[] courses;
+    // the fees of each role and duration
+    private final String[][] fees;
+    private final String visitorFees = DefaultDataConstant.VISITOR_FEES.toString();
+
+    /**
+     * @param seed         the seed of the files
+     * @param members      the number of the members
+     * @param consumptions the number of the consumptions
+     * @param threads      the threads building the chunks
+     */
+    public ClubDataGenerator(long seed, int members, long consumptions, int threads) {
+        this.seed = seed;
+        this.members = members;
+        this.consumptions = consumptions;
+        this.threads = Math.max(threads, 1);
+        this.today = DateUtil.today();
+        this.firstDay = today - 100 * 366;
+        this.days = new String[today + 2 * 366 - firstDay];
+        for(int i = 0; i < days.length; i++) {
+            days[i] = DateUtil.formatDay(firstDay + i);
+        }
+        this.roles = new Role[DefaultDataConstant.DEFAULT_MEMBERS.length];
+        this.fees = new String[roles.length][DURATIONS.length];
+        for(int i = 0; i < roles.length; i++) {
+            Role role = DefaultDataConstant.DEFAULT_MEMBERS[i];
+            roles[i] = new Role(role.getRoleName(), role.getOneMonth(), role.getThreeMonth(), role.getHalfYear(),
+                    role.getFullYear(), role.getGym(), role.getSwimmingPool(), role.getCourseList());
+            // the ids are part of the output, so they come from the seed instead of the clock
+            roles[i].setRoleId("R" + (1_000_000_000_000_000L + Math.floorMod(mix(seed, i), 1_000_000_000_000_000L)));
+            String[] prices = {role.getOneMonth(), role.getThreeMonth(), role.getHalfYear(), role.getFullYear()};
+            for(int j = 0; j < DURATIONS.length; j++) {
+                fees[i][j] = Money.parse(prices[j]).times(DURATIONS[j]).toString();
+            }
+        }
+        this.courses = new Course[DefaultDataConstant.DEFAULT_COURSES.length];
+        for(int i = 0; i < courses.length; i++) {
+            courses[i] = new Course(DefaultDataConstant.DEFAULT_COURSES[i].getCourseName());
+            courses[i].setCourseId("C" + (1_000_000_000_000_000L + Math.floorMod(mix(seed + 1, i), 1_000_000_000_000_000L)));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 42;
+        int members = 10_000;
+        long consumptions = 40_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path out = Paths.get(".");
+        for(int i = 0; i + 1 < args.length; i += 2) {
+            switch(args[i]) {
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                case "--members" -> members = Integer.parseInt(args[i + 1]);
+                case "--consumptions" -> consumptions = Long.parseLong(args[i + 1]);
+                case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                case "--out" -> out = Paths.get(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]
+                        + ", the options are --seed, --members, --consumptions, --threads and --out");
+            }
+        }
+        new ClubDataGenerator(seed, members, consumptions, threads).generate(out);
+        Logger.flush(1000);
+    }
+
+    /**
+     * Write the six data files into the folder, the files are written over
+     *
+     * @param directory the output folder
+     */
+    public void generate(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        writeRoles(directory.resolve(DefaultDataConstant.ROLE_CSV_PATH));
+        writeCourses(directory.resolve(DefaultDataConstant.COURSE_CSV_PATH));
+        writePromotions(directory.resolve(DefaultDataConstant.PROMOTION_CSV_PATH));
+        writeVisitors(directory.resolve(DefaultDataConstant.VISITOR_CSV_PATH));
+        writeMembers(directory.resolve(DefaultDataConstant.CUSTOMER_CSV_PATH));
+        writeConsumptions(directory.resolve(DefaultDataConstant.CONSUMPTION_CSV_PATH));
+    }
+
+    /**
+     * @param index the index of the member
+     *
+     * @return the id of the member, the ids are unique since the index is mixed by a bijection
+     */
+    public String memberId(int index) {
+        String hex = Long.toHexString(mix(seed, index));
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+
+    public void writeRoles(Path path) throws IOException {
+        StringBuilder rows = new StringBuilder();
+        for(Role role : roles) {
+            rows.append(role).append(System.lineSeparator());
+        }
+        Files.writeString(path, rows, StandardCharsets.UTF_8);
+    }
+
+    public void writeCourses(Path path) throws IOException {
+        StringBuilder rows = new StringBuilder();
+        for(Course course : courses) {
+            rows.append(course).append(System.lineSeparator());
+        }
+        Files.writeString(path, rows, StandardCharsets.UTF_8);
+    }
+
+    public void writePromotions(Path path) throws IOException {
+        StringBuilder rows = new StringBuilder();
+        for(int i = 0; i < PROMOTIONS.length; i++) {
+            String[] promotion = PROMOTIONS[i];
+            rows.append('P').append(1_000_000_000_000_000L + Math.floorMod(mix(seed + 2, i), 1_000_000_000_000_000L))
+                    .append(',').append(promotion[0]).append(',').append(promotion[1]).append(',').append(promotion[2])
+                    .append(System.lineSeparator());
+        }
+        Files.writeString(path, rows, StandardCharsets.UTF_8);
+    }
+
+    // one row for each day with visitors, more visitors at the weekend
+    public void writeVisitors(Path path) throws IOException {
+        SplittableRandom random = new SplittableRandom(mix(seed, - 1));
+        StringBuilder rows = new StringBuilder();
+        for(int day = today - HISTORY_DAYS; day <= today; day++) {
+            boolean weekend = LocalDate.ofEpochDay(day).getDayOfWeek().getValue() >= 6;
+            int count = random.nextInt(weekend ? 40 : 15);
+            if(count > 0) {
+                rows.append(day(day)).append(',').append(count).append(System.lineSeparator());
+            }
+        }
+        Files.writeString(path, rows, StandardCharsets.UTF_8);
+    }
+
+    public void writeMembers(Path path) throws IOException {
+        writeChunks(path, "members", members, 1, this::memberChunk);
+    }
+
+    public void writeConsumptions(Path path) throws IOException {
+        writeChunks(path, "consumptions", consumptions, 2, this::consumptionChunk);
+    }
+
+    // the rows from the first index to the end index, the chunk starts a household
+    private void memberChunk(StringBuilder rows, long from, long to, SplittableRandom random) {
+        int main = - 1;
+        int familySize = 1;
+        int startDay = 0;
+        int duration = 0;
+        int expireDay = 0;
+        for(int i = (int) from; i < to; i++) {
+            int position = i % HOUSEHOLD;
+            if(position == 0) {
+                familySize = familySize(i);
+            }
+            boolean family = familySize > 1 && position < familySize;
+            boolean parent = ! family || position == 0;
+            if(parent) {
+                main = i;
+                int term = weighted(random, DURATION_WEIGHTS);
+                duration = DURATIONS[term];
+                startDay = today - random.nextInt(HISTORY_DAYS);
+                expireDay = plusMonths(startDay, duration);
+                while(expireDay < today && random.nextDouble() < RENEW_CHANCE) {
+                    expireDay = plusMonths(expireDay, duration);
+                }
+            }
+            int role = family ? 1 : 0;
+            int term = indexOf(duration);
+            // the age from 16 to 80, most of the members are middle aged
+            int age = 16 + (random.nextInt(33) + random.nextInt(33));
+            int birthDay = today - age * 365 - random.nextInt(365);
+            rows.append(memberId(i)).append(',')
+                    .append(firstName(i)).append(',')
+                    .append(lastName(main)).append(',')
+                    .append(day(birthDay)).append(',')
+                    .append(UIConstant.MEMBER_GENDER_LIST[random.nextInt(2)]).append(',')
+                    .append('"').append(1 + random.nextInt(200)).append(' ')
+                    .append(STREETS[random.nextInt(STREETS.length)]).append(", London\",")
+                    .append("07").append(100_000_000 + random.nextInt(900_000_000)).append(',')
+                    .append(HEALTH[random.nextInt(HEALTH.length)]).append(',')
+                    .append(roles[role].getRoleId()).append(',')
+                    .append(day(startDay)).append(',')
+                    .append(duration).append(',')
+                    .append(day(expireDay)).append(',')
+                    // only the main member pays for the family
+                    .append(parent ? fees[role][term] : Money.ZERO.toString()).append(',')
+                    .append(parent ? "" : memberId(main)).append(',')
+                    .append(expireDay >= today ? CustomerSateEnum.ACTIVE.getName() : CustomerSateEnum.EXPIRED.getName())
+                    .append(System.lineSeparator());
+        }
+    }
+
+    private void consumptionChunk(StringBuilder rows, long from, long to, SplittableRandom random) {
+        for(long i = from; i < to; i++) {
+            int member = random.nextInt(Math.max(members, 1));
+            boolean visit = random.nextDouble() < VISIT_CHANCE;
+            rows.append('C').append(1_000_000_000_000_000L + i).append(',');
+            if(visit) {
+                rows.append("Visitor");
+            } else {
+                rows.append(firstName(member)).append(' ').append(lastName(mainOf(member)));
+            }
+            rows.append(',').append(memberId(member)).append(',')
+                    .append(day(today - random.nextInt(HISTORY_DAYS))).append(',')
+                    .append(visit ? visitorFees : fees[random.nextInt(fees.length)][weighted(random, DURATION_WEIGHTS)])
+                    .append(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Build the chunks in the pool and write them in order, at most 2 chunks per thread are waiting to be written
+     *
+     * @param salt a different random stream for each file
+     */
+    private void writeChunks(Path path, String name, long rows, long salt, ChunkBuilder builder) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<byte[]>> window = new ArrayDeque<>();
+        long bytes = 0;
+        try(OutputStream out = Files.newOutputStream(path)) {
+            for(long from = 0; from < rows || ! window.isEmpty(); ) {
+                if(from < rows && window.size() < threads * 2) {
+                    long chunkFrom = from;
+                    long chunkTo = Math.min(from + CHUNK_ROWS, rows);
+                    SplittableRandom random = new SplittableRandom(mix(seed + salt, from / CHUNK_ROWS));
+                    window.add(pool.submit(() -> {
+                        StringBuilder chunk = new StringBuilder((int) (chunkTo - chunkFrom) * 160);
+                        builder.build(chunk, chunkFrom, chunkTo, random);
+                        return chunk.toString().getBytes(StandardCharsets.UTF_8);
+                    }));
+                    from = chunkTo;
+                    continue;
+                }
+                byte[] chunk = window.poll().get();
+                out.write(chunk);
+                bytes += chunk.length;
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("The generation of " + path.getFileName() + " is interrupted", e);
+        } catch(ExecutionException e) {
+            throw new IOException("Cannot generate " + path.getFileName(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        Logger.info("Generated " + rows + " " + name + " into " + path, "bytes", bytes,
+                "ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private String day(int day) {
+        return days[day - firstDay];
+    }
+
+    private String firstName(int index) {
+        return FIRST_NAMES[(int) Math.floorMod(mix(seed + 3, index), (long) FIRST_NAMES.length)];
+    }
+
+    // the family shares the last name of the main member
+    private String lastName(int main) {
+        return LAST_NAMES[(int) Math.floorMod(mix(seed + 4, main), (long) LAST_NAMES.length)];
+    }
+
+    private int familySize(int index) {
+        int household = index / HOUSEHOLD;
+        SplittableRandom random = new SplittableRandom(mix(seed + 5, household));
+        // the last household may be cut by the number of the members
+        return Math.min(weighted(random, FAMILY_WEIGHTS) + 1, members - household * HOUSEHOLD);
+    }
+
+    private int mainOf(int index) {
+        int position = index % HOUSEHOLD;
+        int size = familySize(index - position);
+        return size > 1 && position < size ? index - position : index;
+    }
+
+    private static int indexOf(int duration) {
+        for(int i = 0; i < DURATIONS.length; i++) {
+            if(DURATIONS[i] == duration) {
+                return i;
+            }
+        }
+        return DURATIONS.length - 1;
+    }
+
+    private static int weighted(SplittableRandom random, int[] weights) {
+        int value = random.nextInt(100);
+        for(int i = 0; i < weights.length; i++) {
+            value -= weights[i];
+            if(value < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static int plusMonths(int day, int months) {
+        return (int) LocalDate.ofEpochDay(day).plusMonths(months).toEpochDay();
+    }
+
+    // the finalizer of splitmix64, a bijection of the long values
+    private static long mix(long seed, long value) {
+        long z = seed * 0x9E3779B97F4A7C15L + value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // build the rows of a chunk
+    @FunctionalInterface
+    private interface ChunkBuilder {
+        void build(StringBuilder rows, long from, long to, SplittableRandom random);
+    }
+}
@@ -2,6 +2,7 @@ package component;
 
 import bean.Consumption;
 import bean.DataSourceChannelInfo;
+import bean.Money;
 import constant.DataManipulateEnum;
 import constant.UIConstant;
 import core.ConsumptionService;
@@ -19,9 +20,11 @@ import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * @author lomofu
@@ -35,20 +38,33 @@ import java.util.Optional;
  */
 public class ConsumptionTable extends MyTable implements DataSourceChannel<Consumption> {
     private boolean flag = true; // flag the table is a select mode or not, true is default mode, opposite is select mode
+    // the model reads the consumptions from the data source directly
+    private final RecordTableModel<Consumption> consumptionModel;
 
     // default mode have full functions
-    public ConsumptionTable(
-            ClubFrameView clubFrameView, String title, String[] columns, Object[][] data) {
-        super(clubFrameView, title, columns, data, UIConstant.CONSUMPTION_SEARCH_FILTER_COLUMNS);
-        this.subscribe(Consumption.class);
-        initTable();
+    public ConsumptionTable(ClubFrameView clubFrameView, String title, String[] columns) {
+        this(clubFrameView, title, columns, consumption -> true);
+    }
+
+    // this select mode table only have a checkBox and cannot be edited, it only shows the consumptions of a member
+    public ConsumptionTable(ClubFrameView clubFrameView, String title, String[] columns, String memberId) {
+        this(clubFrameView, title, columns, consumption -> memberId.equals(consumption.memberId()));
+        this.flag = false;
     }
 
-    // this select mode table only have a checkBox and cannot be edited
-    public ConsumptionTable(
-            ClubFrameView clubFrameView, String title, String[] columns, Object[][] data, boolean flag) {
-        super(clubFrameView, title, columns, data, UIConstant.CONSUMPTION_SEARCH_FILTER_COLUMNS);
-        this.flag = flag;
+    @SuppressWarnings("unchecked")
+    private ConsumptionTable(
+            ClubFrameView clubFrameView, String title, String[] columns, Predicate<Consumption> filter) {
+        super(clubFrameView, title, columns, new RecordTableModel.Builder<Consumption>()
+                .columns(columns)
+                .source(DataSource::getConsumptionList)
+                .keyFunction(Consumption::orderId)
+                .finder(DataSource::findConsumption)
+                .columnValue(ConsumptionService::consumptionTableValue)
+                .filter(filter)
+                .order(ConsumptionService.CONSUMPTION_TABLE_ORDER)
+                .build(), UIConstant.CONSUMPTION_SEARCH_FILTER_COLUMNS);
+        this.consumptionModel = (RecordTableModel<Consumption>) this.tableModel;
         this.subscribe(Consumption.class);
         initTable();
     }
@@ -145,7 +161,7 @@ public class ConsumptionTable extends MyTable implements DataSourceChannel<Consu
                     createTimeEnd.reset();
 
                     // set default row sorter
-                    jTable.setRowSorter(new TableRowSorter<TableModel>(this.tableModel));
+                    jTable.setRowSorter(RecordRowSorter.of(this.tableModel, null));
                 });
 
         Box firstRowBox = initFilterFirstRow(createTimeStart, createTimeEnd);
@@ -165,13 +181,13 @@ public class ConsumptionTable extends MyTable implements DataSourceChannel<Consu
      */
     private void filterSearchBtnEvent(
             MyDatePicker createTimeStart, MyDatePicker createTimeEnd, JTextField feesStart) {
-        String createTimeStartDateText = createTimeStart.getDateText();
-        String createTimeEndDateText = createTimeEnd.getDateText();
+        int createTimeStartDay = createTimeStart.getDay();
+        int createTimeEndDay = createTimeEnd.getDay();
 
         // make sure start time should be before the end time of Create Time range
-        if (!"".equals(createTimeStartDateText)
-                && !"".equals(createTimeEndDateText)
-                && DateUtil.isAfter(createTimeStartDateText, createTimeEndDateText)) {
+        if (createTimeStartDay != DateUtil.NO_DAY
+                && createTimeEndDay != DateUtil.NO_DAY
+                && createTimeStartDay > createTimeEndDay) {
             JOptionPane.showMessageDialog(
                     this.clubFrameView,
                     "Please make sure your 'start time' should be before the 'end time' of Create Time range!",
@@ -183,15 +199,10 @@ public class ConsumptionTable extends MyTable implements DataSourceChannel<Consu
 
         // define a collection of row filter
         List<RowFilter<Object, Object>> filters = new ArrayList<>(2);
-        // add create start time filter only value is not empty
-        if (!"".equals(createTimeStartDateText)) {
-            filters.add(
-                    RowFilter.dateFilter(RowFilter.ComparisonType.AFTER, createTimeStart.getDate(-1), 3));
-        }
-        // add create end time filter only value is not empty
-        if (!"".equals(createTimeEndDateText)) {
-            filters.add(
-                    RowFilter.dateFilter(RowFilter.ComparisonType.BEFORE, createTimeEnd.getDate(1), 3));
+        // add create time filter only one of the values is not empty, it compares the epoch days of the records
+        if (createTimeStartDay != DateUtil.NO_DAY || createTimeEndDay != DateUtil.NO_DAY) {
+            filters.add(dayFilter(createTimeStartDay, createTimeEndDay,
+                    row -> consumptionModel.getRecord(row).createDay()));
         }
 
         // add fees filter only value is not empty
@@ -210,9 +221,7 @@ public class ConsumptionTable extends MyTable implements DataSourceChannel<Consu
         }
 
         // add customize filters in table row sorter
-        TableRowSorter<TableModel> sorter = new TableRowSorter<>(jTable.getModel());
-        sorter.setRowFilter(RowFilter.andFilter(filters));
-        jTable.setRowSorter(sorter);
+        jTable.setRowSorter(RecordRowSorter.of(jTable.getModel(), RowFilter.andFilter(filters)));
     }
 
     /**
@@ -277,20 +286,24 @@ public class ConsumptionTable extends MyTable implements DataSourceChannel<Consu
      */
     @Override
     public void onDataChange(Consumption consumption, DataManipulateEnum flag) {
-        switch (flag) {
-            case INSERT -> insert();
-            case UPDATE, DELETE -> SwingUtilities.invokeLater(this::fetchData);
-        }
+        onDataChange(consumption, flag, Set.of());
     }
 
     /**
-     * This method is a call back for the insert action
+     * This method only changes the rows of the changed consumptions, and scrolls to the top for the insert action
+     *
+     * @param consumption the last changed consumption
+     * @param flag        operation type
+     * @param keys        the order ids of the changed consumptions
      */
-    private void insert() {
+    @Override
+    public void onDataChange(Consumption consumption, DataManipulateEnum flag, Set<String> keys) {
         SwingUtilities.invokeLater(() -> {
-            fetchData();
-            Rectangle rect = jTable.getCellRect(0, 0, true); // scroll to the top of the table
-            jTable.scrollRectToVisible(rect);
+            consumptionModel.apply(flag, keys);
+            if (flag == DataManipulateEnum.INSERT) {
+                Rectangle rect = jTable.getCellRect(0, 0, true); // scroll to the top of the table
+                jTable.scrollRectToVisible(rect);
+            }
         });
     }
 
@@ -298,14 +311,7 @@ public class ConsumptionTable extends MyTable implements DataSourceChannel<Consu
      * This method refresh the data from data source
      */
     private void fetchData() {
-        // update model
-        DefaultTableModel model = (DefaultTableModel) this.jTable.getModel();
-        model.setDataVector(ConsumptionService.findConsumptionsForTableRender(), UIConstant.CONSUMPTION_COLUMNS);
-        model.fireTableDataChanged(); // notify data change
-        this.jTable.setModel(model);
-        // repaint style
-        super.setTableStyle();
-        initTable();
+        consumptionModel.reload();
     }
 
     /**
@@ -321,49 +327,41 @@ public class ConsumptionTable extends MyTable implements DataSourceChannel<Consu
     /**
      * This class define how to render the date column
      */
-    private static class DateRender extends DefaultTableCellRenderer {
+    private static class DateRender extends StripedCellRender {
         @Override
         public Component getTableCellRendererComponent(
                 JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-            if (row % 2 == 0) // set alternate colours
-                setBackground(new Color(213, 213, 213));
-            else if (row % 2 == 1)
-                setBackground(Color.white);
-            Component c =
-                    super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-            JLabel original = (JLabel) c;
-            original.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
-            Date date = (Date) value;
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
             // format the date
-            original.setText(Optional.ofNullable(date).map(DateUtil::format).orElse(""));
-            return original;
+            setText(formatDate(value));
+            return this;
         }
     }
 
     /**
      * This inner class define fees column
      */
-    private static class FeesRender extends DefaultTableCellRenderer {
+    private static class FeesRender extends StripedCellRender {
+        private static final int CACHE_LIMIT = 4096;
+        // the formatted fees, the same amounts are painted again and again
+        private final Map<Money, String> formatted = new HashMap<>();
+
         @Override
         public Component getTableCellRendererComponent(
                 JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-            if (row % 2 == 0) // set alternate colours
-                setBackground(new Color(213, 213, 213));
-            else if (row % 2 == 1)
-                setBackground(Color.white);
-            Component c =
-                    super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-            JLabel original = (JLabel) c;
-            original.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
-            String fees = (String) value;
-            // format the fees
-            if ("".equals(fees)) {
-                fees = "0 GBP";
-            } else {
-                fees = fees + "　GBP";
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            Money fees = value instanceof Money money ? money : Money.ZERO;
+            String text = formatted.get(fees);
+            if (text == null) {
+                // format the fees
+                text = fees + "　GBP";
+                if (formatted.size() >= CACHE_LIMIT) {
+                    formatted.clear();
+                }
+                formatted.put(fees, text);
             }
-            original.setText(fees);
-            return original;
+            setText(text);
+            return this;
         }
     }
 
@@ -9,19 +9,16 @@ import data.DataSourceChannel;
 import dto.CustomerDto;
 import ui.*;
 import utils.DateUtil;
-import utils.Logger;
 
-import javax.swing.Timer;
 import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -35,16 +32,26 @@ import java.util.stream.Stream;
  * and call back the override onchange functions(mainly update the UI).
  * Meanwhile, it will subscrib the data source when table init
  */
-public class MemberTable extends MyTable implements DataSourceChannel<CustomerDto>, ActionListener {
+public class MemberTable extends MyTable implements DataSourceChannel<CustomerDto> {
     private AddMemberDialogView addMemberDialogView;
     private AddMainMemberDialogView parent;
+    // the model of the default mode, it reads the members from the data source directly
+    private RecordTableModel<CustomerDto> memberModel;
 
     // default mode have full functions
-    public MemberTable(ClubFrameView clubFrameView, String title, String[] columns, Object[][] data) {
-        super(clubFrameView, title, columns, data, UIConstant.MEMBER_SEARCH_FILTER_COLUMNS);
+    @SuppressWarnings("unchecked")
+    public MemberTable(ClubFrameView clubFrameView, String title, String[] columns) {
+        super(clubFrameView, title, columns, new RecordTableModel.Builder<CustomerDto>()
+                .columns(columns)
+                .source(DataSource::getCustomerList)
+                .keyFunction(CustomerDto::getId)
+                .finder(DataSource::findCustomer)
+                .columnValue(MembershipService::memberTableValue)
+                .order(MembershipService.MEMBER_TABLE_ORDER)
+                .build(), UIConstant.MEMBER_SEARCH_FILTER_COLUMNS);
+        this.memberModel = (RecordTableModel<CustomerDto>) this.tableModel;
         this.subscribe(CustomerDto.class);
         initTable();
-        initTimer();
         initMyEvents();
     }
 
@@ -79,14 +86,6 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
         columnModel.getColumn(12).setCellRenderer(stateRender);
     }
 
-    /**
-     * This method initialize a timer to do the work each one hour
-     */
-    private void initTimer() {
-        Timer timer = new Timer((int) TimeUnit.HOURS.toMillis(1), this);
-        timer.start();
-    }
-
     /**
      * This method sets edit events, remove events, consumption events and renew events
      */
@@ -308,7 +307,7 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
             dateOfBirthStart.reset();
             dateOfBirthEnd.reset();
 
-            jTable.setRowSorter(new TableRowSorter<TableModel>(this.tableModel));
+            jTable.setRowSorter(RecordRowSorter.of(this.tableModel, null));
         });
 
         Box firstRowBox = initFilterFirstRow(comboBoxDim, memberTypeComboBox, genderComboBox, stateComboBox);
@@ -344,11 +343,11 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
         String memberTypeItem = (String) memberTypeComboBox.getSelectedItem();
         String stateItem = (String) stateComboBox.getSelectedItem();
 
-        String dateBirthStart = dateOfBirthStart.getDateText();
-        String dateBirthEnd = dateOfBirthEnd.getDateText();
-        if (!"".equals(dateBirthStart)
-                && !"".equals(dateBirthEnd)
-                && DateUtil.isAfter(dateBirthStart, dateBirthEnd)) {
+        int dateBirthStart = dateOfBirthStart.getDay();
+        int dateBirthEnd = dateOfBirthEnd.getDay();
+        if (dateBirthStart != DateUtil.NO_DAY
+                && dateBirthEnd != DateUtil.NO_DAY
+                && dateBirthStart > dateBirthEnd) {
             JOptionPane.showMessageDialog(
                     this.clubFrameView,
                     "Please make sure your 'start time' should be before the 'end time' of Date Of Birth range!",
@@ -357,11 +356,11 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
             return;
         }
 
-        String startTimeDateText = startTime.getDateText();
-        String endTimeDateText = endTime.getDateText();
-        if (!"".equals(startTimeDateText)
-                && !"".equals(endTimeDateText)
-                && DateUtil.isAfter(startTimeDateText, endTimeDateText)) {
+        int startTimeDay = startTime.getDay();
+        int endTimeDay = endTime.getDay();
+        if (startTimeDay != DateUtil.NO_DAY
+                && endTimeDay != DateUtil.NO_DAY
+                && startTimeDay > endTimeDay) {
             JOptionPane.showMessageDialog(
                     this.clubFrameView,
                     "Please make sure your 'start time' should be before the 'end time' of Start Time range!",
@@ -381,22 +380,13 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
             filters.add(RowFilter.regexFilter("^(?i)" + stateItem + "$", 12));
         }
 
-        if (!"".equals(dateOfBirthStart.getDateText())) {
-            filters.add(
-                    RowFilter.dateFilter(RowFilter.ComparisonType.AFTER, dateOfBirthStart.getDate(-1), 3));
-        }
-
-        if (!"".equals(dateOfBirthEnd.getDateText())) {
-            filters.add(
-                    RowFilter.dateFilter(RowFilter.ComparisonType.BEFORE, dateOfBirthEnd.getDate(1), 3));
-        }
-
-        if (!"".equals(startTimeDateText)) {
-            filters.add(RowFilter.dateFilter(RowFilter.ComparisonType.AFTER, startTime.getDate(-1), 9));
+        // the dates are compared as the epoch days, both ends of a range are included
+        if (dateBirthStart != DateUtil.NO_DAY || dateBirthEnd != DateUtil.NO_DAY) {
+            filters.add(dayFilter(dateBirthStart, dateBirthEnd, day(CustomerDto::getBirthDay, 3)));
         }
 
-        if (!"".equals(endTimeDateText)) {
-            filters.add(RowFilter.dateFilter(RowFilter.ComparisonType.BEFORE, endTime.getDate(1), 9));
+        if (startTimeDay != DateUtil.NO_DAY || endTimeDay != DateUtil.NO_DAY) {
+            filters.add(dayFilter(startTimeDay, endTimeDay, day(CustomerDto::getStartDay, 9)));
         }
 
         if (filters.isEmpty()) {
@@ -408,9 +398,22 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
             return;
         }
 
-        TableRowSorter<TableModel> sorter = new TableRowSorter<>(jTable.getModel());
-        sorter.setRowFilter(RowFilter.andFilter(filters));
-        jTable.setRowSorter(sorter);
+        jTable.setRowSorter(RecordRowSorter.of(jTable.getModel(), RowFilter.andFilter(filters)));
+    }
+
+    /**
+     * The epoch day of a date column of a model row
+     *
+     * @param field  the day of the member
+     * @param column the date column, it is only read in the select mode which has no member records
+     * @return the day of a row
+     */
+    private IntUnaryOperator day(ToIntFunction<CustomerDto> field, int column) {
+        TableModel model = jTable.getModel();
+        if (model == memberModel) {
+            return row -> field.applyAsInt(memberModel.getRecord(row));
+        }
+        return row -> model.getValueAt(row, column) instanceof Date date ? DateUtil.toDay(date) : DateUtil.NO_DAY;
     }
 
     private Box initFilterFirstRow(
@@ -556,16 +559,6 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
         }
     }
 
-    /**
-     * This method is a call back for the insert action
-     */
-    private void insert() {
-        SwingUtilities.invokeLater(() -> {
-            fetchData();
-            Rectangle rect = jTable.getCellRect(0, 0, true);
-            jTable.scrollRectToVisible(rect);
-        });
-    }
 
     /**
      * This method refresh the data from data source
@@ -581,12 +574,7 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
         conBtn.setEnabled(false);
         renewBtn.setEnabled(false);
 
-        DefaultTableModel model = (DefaultTableModel) this.jTable.getModel();
-        model.setDataVector(MembershipService.findMembersForTableRender(), UIConstant.MEMBER_COLUMNS);
-        model.fireTableDataChanged();
-        this.jTable.setModel(model);
-        super.setTableStyle();
-        initTable();
+        memberModel.reload();
     }
 
     /**
@@ -598,10 +586,25 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
      */
     @Override
     public void onDataChange(CustomerDto e, DataManipulateEnum flag) {
-        switch (flag) {
-            case INSERT -> insert();
-            case UPDATE, DELETE -> SwingUtilities.invokeLater(this::fetchData);
-        }
+        onDataChange(e, flag, Set.of());
+    }
+
+    /**
+     * This method only changes the rows of the changed members, and scrolls to the top for the insert action
+     *
+     * @param e    the last changed customerDto object
+     * @param flag operation type
+     * @param keys the ids of the changed members
+     */
+    @Override
+    public void onDataChange(CustomerDto e, DataManipulateEnum flag, Set<String> keys) {
+        SwingUtilities.invokeLater(() -> {
+            memberModel.apply(flag, keys);
+            if (flag == DataManipulateEnum.INSERT) {
+                Rectangle rect = jTable.getCellRect(0, 0, true);
+                jTable.scrollRectToVisible(rect);
+            }
+        });
     }
 
     /**
@@ -614,35 +617,16 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
         DataSource.subscribe(new DataSourceChannelInfo<>(this, customerClass));
     }
 
-    @Override
-    public void actionPerformed(ActionEvent e) {
-        SwingUtilities.invokeLater(this::fetchData);
-        Logger.info("Membership Table updated");
-    }
-
     /**
      * This class define how to render the date column
      */
-    private static class DateRender extends DefaultTableCellRenderer {
+    private static class DateRender extends StripedCellRender {
         @Override
         public Component getTableCellRendererComponent(
                 JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-            // set alternate colours
-            if (row % 2 == 0)
-                setBackground(new Color(213, 213, 213));
-            else if (row % 2 == 1)
-                setBackground(Color.white);
-            Component c =
-                    super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-            JLabel original = (JLabel) c;
-            original.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
-            original.setText(
-                    Optional.ofNullable(value)
-                            .filter(Date.class::isInstance)
-                            .map(Date.class::cast)
-                            .map(DateUtil::format)
-                            .orElse(""));
-            return original;
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            setText(formatDate(value));
+            return this;
         }
     }
 
@@ -650,22 +634,27 @@ public class MemberTable extends MyTable implements DataSourceChannel<CustomerDt
      * This class define the membership state render
      */
     private static class StateRender extends DefaultTableCellRenderer {
+        // the bold font is derived once for each table font
+        private Font font;
+        private Font boldFont;
+
         @Override
         public Component getTableCellRendererComponent(
                 JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-            Component c =
-                    super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-            JLabel original = (JLabel) c;
-            if (original.getText().equals(CustomerSateEnum.EXPIRED.getName())) {
-                original.setBackground(ColorConstant.PANTONE170C);
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            if (getText().equals(CustomerSateEnum.EXPIRED.getName())) {
+                setBackground(ColorConstant.PANTONE170C);
             } else {
-                original.setBackground(ColorConstant.PANTONE359C);
+                setBackground(ColorConstant.PANTONE359C);
+            }
+            setForeground(Color.WHITE);
+            setHorizontalAlignment(CENTER);
+            if (getFont() != font) {
+                font = getFont();
+                boldFont = font.deriveFont(Font.BOLD);
             }
-            original.setForeground(Color.WHITE);
-            original.setHorizontalAlignment(CENTER);
-            Font font = original.getFont();
-            original.setFont(new Font(font.getName(), Font.BOLD, font.getSize()));
-            return original;
+            setFont(boldFont);
+            return this;
         }
     }
 }
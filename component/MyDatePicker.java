@@ -133,6 +133,26 @@ public class MyDatePicker extends JPanel {
         return DateUtil.toDate(year, month, day);
     }
 
+    /**
+     * This method gets the whole date as the number of days from 1970-01-01
+     *
+     * @return epoch day, DateUtil.NO_DAY if the date is not complete
+     */
+    public int getDay() {
+        String year = (String) yearCombobox.getSelectedItem();
+        String month = (String) monthCombobox.getSelectedItem();
+        String day = (String) dayCombobox.getSelectedItem();
+        if (year == null
+                || month == null
+                || day == null
+                || "".equals(year)
+                || "".equals(month)
+                || "".equals(day)) {
+            return DateUtil.NO_DAY;
+        }
+        return (int) LocalDate.of(Integer.parseInt(year), Integer.parseInt(month), Integer.parseInt(day)).toEpochDay();
+    }
+
     /**
      * This method sets date picker items to display given date
      *
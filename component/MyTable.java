@@ -3,8 +3,10 @@ package component;
 import constant.ColorConstant;
 import constant.UIConstant;
 import ui.ClubFrameView;
+import utils.DateUtil;
 
 import javax.swing.*;
+import javax.swing.border.Border;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.table.*;
@@ -13,9 +15,9 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.geom.Rectangle2D;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.*;
+import java.util.function.IntUnaryOperator;
 
 /**
  * @author lomofu
@@ -24,8 +26,13 @@ import java.util.List;
  * you can easyly to implement a table by extends this class and customize the table a little
  */
 public abstract class MyTable {
+    // the cell border shared by all the cell renders, so painting a cell does not create it
+    private static final Border CELL_BORDER = BorderFactory.createEmptyBorder(0, 10, 0, 0);
+    private static final int DATE_CACHE_LIMIT = 4096;
+    // the formatted dates of the date columns, only used in the event dispatch thread
+    private static final Map<Date, String> FORMATTED_DATES = new HashMap<>();
     // the table model related to the table
-    protected DefaultTableModel tableModel = new DefaultTableModel();
+    protected AbstractTableModel tableModel = new DefaultTableModel();
     // parent component
     protected ClubFrameView clubFrameView;
     protected JPanel title;
@@ -38,6 +45,9 @@ public abstract class MyTable {
     protected Object[][] data;
     protected Box searchBox;
     protected int[] filterColumns;
+    // the search engine of the search box
+    private TableSearch tableSearch;
+    private MyTableCellRender cellRender;
     protected JToolBar filterBar;
     protected boolean selectMode;
     protected int selectIndex;
@@ -57,6 +67,22 @@ public abstract class MyTable {
         initListeners();
     }
 
+    // the table which reads the rows from its own model
+    public MyTable(ClubFrameView clubFrameView, String title, String[] columns, AbstractTableModel tableModel,
+                   int[] filterColumns) {
+        this.clubFrameView = clubFrameView;
+        this.columns = columns;
+        this.tableModel = tableModel;
+        this.filterColumns = filterColumns;
+
+        initTitle(title);
+        initToolBar();
+        initFilterBar();
+        initTable();
+        initScrollPane();
+        initListeners();
+    }
+
     // select mode
     public MyTable(
             String title,
@@ -159,7 +185,7 @@ public abstract class MyTable {
         this.jTable.setDragEnabled(false);
         this.jTable.getTableHeader().setReorderingAllowed(false);
         // connect to the table model
-        this.jTable.setRowSorter(new TableRowSorter<TableModel>(this.tableModel));
+        this.jTable.setRowSorter(RecordRowSorter.of(this.tableModel, null));
 
         bindData();
         setTableStyle();
@@ -179,6 +205,10 @@ public abstract class MyTable {
                 (DefaultTableCellRenderer) tableHeader.getDefaultRenderer();
         defaultTableHeaderRenderer.setBorder(BorderFactory.createEmptyBorder(10, 0, 0, 10));
         defaultTableHeaderRenderer.setHorizontalAlignment(SwingConstants.CENTER);
+        // one render is shared by all the columns, and it is kept when the style is set again
+        if(cellRender == null) {
+            cellRender = new MyTableCellRender(filterColumns, selectMode, selectIndex);
+        }
         Arrays.stream(columns)
                 .forEachOrdered(
                         e -> {
@@ -187,20 +217,15 @@ public abstract class MyTable {
                                 checkBox.setVisible(false);
                                 jTable.getColumn(e).setCellEditor(new DefaultCellEditor(checkBox));
                             }
-                            if(selectMode) {
-                                jTable.getColumn(e).setCellRenderer(new MyTableCellRender(this.searchTextField,
-                                        this.filterColumns,
-                                        this.selectMode,
-                                        this.selectIndex));
-                            } else {
-                                jTable.getColumn(e).setCellRenderer(new MyTableCellRender(this.searchTextField, this.filterColumns));
-                            }
+                            jTable.getColumn(e).setCellRenderer(cellRender);
                         });
     }
 
     // bind columns and related data into the table model
     private void bindData() {
-        tableModel.setDataVector(data, columns);
+        if(tableModel instanceof DefaultTableModel defaultTableModel) {
+            defaultTableModel.setDataVector(data, columns);
+        }
     }
 
     // put the table into the scroll pane
@@ -231,6 +256,7 @@ public abstract class MyTable {
                     }
                 });
 
+        tableSearch = new TableSearch(jTable, filterColumns);
         searchTextField
                 .getDocument()
                 .addDocumentListener(
@@ -252,22 +278,59 @@ public abstract class MyTable {
                             }
 
                             private void update() {
-                                // get the sorter in the table model
-                                TableRowSorter<TableModel> sorter = new TableRowSorter<>(jTable.getModel());
-                                // get the search words
                                 String text = searchTextField.getText();
-                                if(text.trim().length() == 0) {
-                                    // set a new table row sorter
-                                    jTable.setRowSorter(new TableRowSorter<>(jTable.getModel()));
-                                    return;
-                                }
-                                // use regex filter and also cover no sense to lower or upper case
-                                sorter.setRowFilter(RowFilter.regexFilter("(?i)" + text, filterColumns));
-                                jTable.setRowSorter(sorter);
+                                cellRender.highlight(text);
+                                jTable.repaint();
+                                // the search runs after the user stops typing, and off the event dispatch thread
+                                tableSearch.search(text);
                             }
                         });
     }
 
+    /**
+     * The filter of a date column, it compares the epoch days of the rows instead of the dates
+     *
+     * @param from the first day, DateUtil.NO_DAY if there is no start
+     * @param to   the last day, DateUtil.NO_DAY if there is no end
+     * @param day  the epoch day of a row of the model
+     *
+     * @return the filter, both ends are included and a row without the date is excluded
+     */
+    protected static RowFilter<Object, Object> dayFilter(int from, int to, IntUnaryOperator day) {
+        return new RowFilter<>() {
+            @Override
+            public boolean include(Entry<?, ?> entry) {
+                int value = day.applyAsInt((Integer) entry.getIdentifier());
+                return value != DateUtil.NO_DAY
+                        && (from == DateUtil.NO_DAY || value >= from)
+                        && (to == DateUtil.NO_DAY || value <= to);
+            }
+        };
+    }
+
+    /**
+     * Format the value of a date column, the result is cached since the same dates are painted again and again
+     *
+     * @param value the cell value
+     *
+     * @return the formatted date, or empty if it is not a date
+     */
+    protected static String formatDate(Object value) {
+        if(! (value instanceof Date date)) {
+            return "";
+        }
+        String formatted = FORMATTED_DATES.get(date);
+        if(formatted == null) {
+            if(FORMATTED_DATES.size() >= DATE_CACHE_LIMIT) {
+                FORMATTED_DATES.clear();
+            }
+            formatted = DateUtil.format(date);
+            // the key is copied, a date is mutable
+            FORMATTED_DATES.put(new Date(date.getTime()), formatted);
+        }
+        return formatted;
+    }
+
     protected abstract void onRightClick(MouseEvent e);
 
     protected abstract void onDoubleClick(MouseEvent e);
@@ -278,59 +341,69 @@ public abstract class MyTable {
      * For ex. If we input the val in a table and a value exist in the table we will highlight the format like
      * 'val'ue, to make it more clearly for user to use.
      */
-    private static class MyTableCellRender extends DefaultTableCellRenderer {
-        private final JTextField searchField; // the reference of the search text field
-        private final int[] highlightColumns; // the highlight columns we need, not all the column need tobe search sometimes.
-        private boolean selectMode; // flag to store is a select mode
-        private int selectIndex; // if it is a select mode, we will need the checkbox index in the table.
+    private static class MyTableCellRender extends StripedCellRender {
+        private final BitSet highlightColumns = new BitSet(); // the highlight columns we need, not all the column need tobe search sometimes.
+        private final boolean selectMode; // flag to store is a select mode
+        private final int selectIndex; // if it is a select mode, we will need the checkbox index in the table.
         // mostly is the end of the column
+        // the components returned for the highlight and checkbox cells, they are reused by all the cells
+        private final LabelHighlighted highlightLabel = new LabelHighlighted();
+        private final JCheckBox checkBox = new JCheckBox();
+        private String query = ""; // the lower case search words
 
-        // some constructors
-        public MyTableCellRender(JTextField searchField, int[] highlightColumns) {
-            this.searchField = searchField;
-            this.highlightColumns = highlightColumns;
-        }
-
-        // select mode
-        public MyTableCellRender(
-                JTextField searchTextField, int[] filterColumns, boolean selectMode, int selectIndex) {
-            this.searchField = searchTextField;
-            this.highlightColumns = filterColumns;
+        public MyTableCellRender(int[] highlightColumns, boolean selectMode, int selectIndex) {
+            Arrays.stream(highlightColumns).forEach(this.highlightColumns::set);
             this.selectMode = selectMode;
             this.selectIndex = selectIndex;
+            this.checkBox.setHorizontalAlignment(SwingConstants.CENTER);
+            this.highlightLabel.setBorder(CELL_BORDER);
+        }
+
+        // the search box is changed
+        public void highlight(String text) {
+            query = text.toLowerCase().trim();
         }
 
         // set some style of cell render
         @Override
         public Component getTableCellRendererComponent(
                 JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
-            if(row % 2 == 0)
-                this.setBackground(new Color(213, 213, 213));
-            else if(row % 2 == 1)
-                this.setBackground(Color.white);
-
-            Component c =
-                    super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
-            JLabel original = (JLabel) c;
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
             if(selectMode && column == selectIndex) {
-                JCheckBox jCheckBox = new JCheckBox();
-                jCheckBox.setHorizontalAlignment(SwingConstants.CENTER);
-                jCheckBox.setSelected("true".equals(original.getText()));
-                return jCheckBox;
+                checkBox.setSelected("true".equals(getText()));
+                return checkBox;
             }
-            original.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
-            if(Arrays.stream(highlightColumns).filter(e -> e == column).findAny().isPresent()) {
-                LabelHighlighted label = new LabelHighlighted();
-                label.setFont(original.getFont());
-                label.setText(original.getText());
-                label.setBackground(original.getBackground());
-                label.setForeground(original.getForeground());
-                label.setHorizontalTextPosition(original.getHorizontalTextPosition());
-                label.highlightText(searchField.getText());
-                label.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
-                return label;
+            if(highlightColumns.get(column)) {
+                highlightLabel.setFont(getFont());
+                highlightLabel.setText(getText());
+                highlightLabel.setBackground(getBackground());
+                highlightLabel.setForeground(getForeground());
+                highlightLabel.setHorizontalTextPosition(getHorizontalTextPosition());
+                highlightLabel.highlightText(query);
+                return highlightLabel;
             }
-            return c;
+            return this;
+        }
+    }
+
+    /**
+     * This class is the base of the cell renders, it sets the alternate row colours and the cell border
+     * <p>
+     * A render paints every visible cell, so it should not create any object for a cell
+     */
+    protected static class StripedCellRender extends DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(
+                JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+            // set alternate colours
+            setBackground(row % 2 == 0 ? ColorConstant.TABLE_STRIPE : Color.WHITE);
+            return super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+        }
+
+        // all the cells use the same border, changing the border would compare the new insets for each cell
+        @Override
+        public void setBorder(Border border) {
+            super.setBorder(CELL_BORDER);
         }
     }
 
@@ -402,58 +475,76 @@ public abstract class MyTable {
 
     /**
      * this class implement the highlight the corresponding result in search function
+     * <p>
+     * The highlight positions of a text are measured once for the current search words and font, the cells showing
+     * the same text reuse them
      */
     private static class LabelHighlighted extends JLabel {
-        private final List<Rectangle2D> rectangles = new ArrayList<>(); // store the correct true rectangle
+        private static final int CACHE_LIMIT = 4096;
+        // the height followed by the x and width of each highlight
+        private static final float[] NO_HIGHLIGHT = new float[0];
         private final Color colorHighlight = Color.YELLOW; // define highlight color
-
-        public void reset() {
-            rectangles.clear();
-            repaint();
-        }
+        private final Map<String, float[]> geometry = new HashMap<>(); // the highlights of each text
+        private final Rectangle2D.Float rectangle = new Rectangle2D.Float();
+        private String query = "";
+        private Font font;
+        private float[] highlights = NO_HIGHLIGHT;
 
         // highlight what is sub-string in a search result
-        public void highlightText(String textToHighlight) {
-            if(textToHighlight == null) {
+        public void highlightText(String textToMatch) {
+            if(! textToMatch.equals(query) || getFont() != font) {
+                geometry.clear();
+                query = textToMatch;
+                font = getFont();
+            }
+            if(query.isEmpty()) {
+                highlights = NO_HIGHLIGHT;
                 return;
             }
-            reset();
+            String text = getText();
+            float[] cached = geometry.get(text);
+            if(cached == null) {
+                if(geometry.size() >= CACHE_LIMIT) {
+                    geometry.clear();
+                }
+                cached = measure(text);
+                geometry.put(text, cached);
+            }
+            highlights = cached;
+        }
 
+        private float[] measure(String text) {
             // lowercase compare
-            final String textToMatch = textToHighlight.toLowerCase().trim();
-            if(textToMatch.length() == 0) {
-                return;
+            final String labelText = text.toLowerCase();
+            if(! labelText.contains(query)) {
+                return NO_HIGHLIGHT;
             }
-            textToHighlight = textToHighlight.trim();
-
-            // make the lab text also lower case
-            final String labelText = getText().toLowerCase();
-            // contains the result or not
-            if(labelText.contains(textToMatch)) {
-                // get the font metrics
-                FontMetrics fm = getFontMetrics(getFont());
-                float w = - 1;
-                // calculate the height for the height box
-                final float h = fm.getHeight() - 1;
-                int i = 0;
-                // loop to search all the result
-                while(true) {
-                    i = labelText.indexOf(textToMatch, i);
-                    if(i == - 1) {
-                        break;
-                    }
-                    if(w == - 1) {
-                        // get the matching text
-                        String matchingText = getText().substring(i, i + textToHighlight.length());
-                        w = fm.stringWidth(matchingText);
-                    }
-                    String preText = getText().substring(0, i);
-                    float x = fm.stringWidth(preText);
-                    rectangles.add(new Rectangle2D.Float(x + 10, 8, w, h));
-                    i = i + textToMatch.length();
+            // get the font metrics
+            FontMetrics fm = getFontMetrics(font);
+            List<Float> values = new ArrayList<>();
+            // calculate the height for the height box
+            values.add((float) fm.getHeight() - 1);
+            float w = - 1;
+            int i = 0;
+            // loop to search all the result
+            while(true) {
+                i = labelText.indexOf(query, i);
+                if(i == - 1) {
+                    break;
+                }
+                if(w == - 1) {
+                    // get the matching text
+                    w = fm.stringWidth(text.substring(i, i + query.length()));
                 }
-                repaint();
+                values.add((float) fm.stringWidth(text.substring(0, i)) + 10);
+                values.add(w);
+                i = i + query.length();
             }
+            float[] result = new float[values.size()];
+            for(int j = 0; j < result.length; j++) {
+                result[j] = values.get(j);
+            }
+            return result;
         }
 
         // override the paint component to paint the rectangle
@@ -461,10 +552,11 @@ public abstract class MyTable {
         protected void paintComponent(Graphics g) {
             g.setColor(getBackground());
             g.fillRect(0, 0, getWidth(), getHeight());
-            if(rectangles.size() > 0) {
+            if(highlights.length > 0) {
                 Graphics2D g2d = (Graphics2D) g;
                 Color c = g2d.getColor();
-                for(Rectangle2D rectangle : rectangles) {
+                for(int i = 1; i < highlights.length; i += 2) {
+                    rectangle.setRect(highlights[i], 8, highlights[i + 1], highlights[0]);
                     g2d.setColor(colorHighlight);
                     g2d.fill(rectangle);
                     g2d.setColor(Color.LIGHT_GRAY);
@@ -474,5 +566,38 @@ public abstract class MyTable {
             }
             super.paintComponent(g);
         }
+
+        // the label is only painted by the cell render pane, skip the layout and repaint like DefaultTableCellRenderer
+        @Override
+        public void invalidate() {
+        }
+
+        @Override
+        public void validate() {
+        }
+
+        @Override
+        public void revalidate() {
+        }
+
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+        }
+
+        @Override
+        public void repaint(Rectangle r) {
+        }
+
+        @Override
+        public void repaint() {
+        }
+
+        @Override
+        protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        }
+
+        @Override
+        public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+        }
     }
 }
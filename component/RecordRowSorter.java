@@ -0,0 +1,477 @@
+package component;
+
+import javax.swing.*;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+import java.text.Collator;
+import java.util.*;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class sorts and filters the rows of a record table by the permutations of the model indexes
+ * <p>
+ * 1. The view is an int array of the model indexes, and the reverse one. There is no object for a row, so a large
+ * table only costs two ints per row, and nothing at all when it is neither sorted nor filtered
+ * 2. A sort reads the value of each row in the sorted columns once, the strings are compared by their collation keys
+ * and the other comparable values (dates, money) by themselves. The equal rows keep the model order
+ * 3. A small change of the model is applied to the permutation, the changed rows are filtered again and inserted by
+ * a binary search. A large change sorts the whole view again
+ * 4. The arrays are changed in place by a small change, only the reverse indexes of the moved view rows are written
+ * again. The previous view given to the events is copied into one reused buffer, it may be longer than the previous
+ * row count, but the table only reads the indexes of its selected and edited rows from it
+ * <p>
+ * It follows the behaviour of the TableRowSorter: the click of a header toggles the ascending and descending order,
+ * at most 3 columns are sorted, and the filter is a RowFilter. It should only be used in the event dispatch thread
+ */
+final class RecordRowSorter extends RowSorter<TableModel> {
+    private static final int MAX_SORT_KEYS = 3;
+
+    private final TableModel model;
+    private final Collator collator = Collator.getInstance();
+    // reused by all the filter calls, the row is changed for each of them
+    private final FilterEntry entry = new FilterEntry();
+    private List<SortKey> sortKeys = List.of();
+    private RowFilter<? super TableModel, ? super Integer> filter;
+    // both of them are null if the rows are neither sorted nor filtered
+    private int[] viewToModel;
+    private int[] modelToView;
+    private int viewRowCount;
+    // the number of the model rows in the model to view array, the slots after it are not used
+    private int modelRowCount;
+    // the previous view of the last event
+    private int[] previous = new int[0];
+
+    private RecordRowSorter(TableModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Create the sorter of a table model, only the record table model has the permutation sorter
+     *
+     * @param model  the table model
+     * @param filter the row filter, can be null
+     *
+     * @return the row sorter
+     */
+    static RowSorter<TableModel> of(TableModel model, RowFilter<? super TableModel, ? super Integer> filter) {
+        if(model instanceof RecordTableModel<?>) {
+            RecordRowSorter sorter = new RecordRowSorter(model);
+            sorter.setRowFilter(filter);
+            return sorter;
+        }
+        TableRowSorter<TableModel> sorter = new TableRowSorter<>(model);
+        sorter.setRowFilter(filter);
+        return sorter;
+    }
+
+    /**
+     * Set the row filter and filter the rows again, the sort keys are kept
+     *
+     * @param filter the row filter, null to show all the rows
+     */
+    void setRowFilter(RowFilter<? super TableModel, ? super Integer> filter) {
+        this.filter = filter;
+        sort();
+    }
+
+    @Override
+    public TableModel getModel() {
+        return model;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        checkColumn(column);
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        if(! keys.isEmpty() && keys.get(0).getColumn() == column) {
+            SortOrder order = keys.get(0).getSortOrder() == SortOrder.ASCENDING
+                    ? SortOrder.DESCENDING
+                    : SortOrder.ASCENDING;
+            keys.set(0, new SortKey(column, order));
+        } else {
+            keys.removeIf(e -> e.getColumn() == column);
+            keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+        }
+        setSortKeys(keys.size() > MAX_SORT_KEYS ? keys.subList(0, MAX_SORT_KEYS) : keys);
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if(viewToModel == null) {
+            checkRow(index, model.getRowCount());
+            return index;
+        }
+        checkRow(index, viewRowCount);
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if(modelToView == null) {
+            checkRow(index, model.getRowCount());
+            return index;
+        }
+        checkRow(index, modelRowCount);
+        return modelToView[index];
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> newKeys = keys == null ? List.of() : List.copyOf(keys);
+        newKeys.forEach(e -> checkColumn(e.getColumn()));
+        if(newKeys.equals(sortKeys)) {
+            return;
+        }
+        sortKeys = newKeys;
+        fireSortOrderChanged();
+        sort();
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? model.getRowCount() : viewRowCount;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        // the columns may be changed, so the sort keys are dropped like the TableRowSorter
+        if(! sortKeys.isEmpty()) {
+            sortKeys = List.of();
+            fireSortOrderChanged();
+        }
+        sort();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        sort();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        if(viewToModel == null) {
+            return;
+        }
+        int count = endRow - firstRow + 1;
+        if(count > viewRowCount / 10) {
+            sort();
+            return;
+        }
+        int[] last = previousView();
+        // the model rows after the inserted ones are moved down
+        for(int i = 0; i < viewRowCount; i++) {
+            if(viewToModel[i] >= firstRow) {
+                viewToModel[i] += count;
+            }
+        }
+        if(modelToView.length < modelRowCount + count) {
+            modelToView = Arrays.copyOf(modelToView, Math.max(modelRowCount + count + (modelRowCount >> 1), 16));
+        }
+        System.arraycopy(modelToView, firstRow, modelToView, endRow + 1, modelRowCount - firstRow);
+        Arrays.fill(modelToView, firstRow, endRow + 1, - 1);
+        modelRowCount += count;
+        for(int row = firstRow; row <= endRow; row++) {
+            if(include(row)) {
+                reindex(insert(row), viewRowCount);
+            }
+        }
+        fireRowSorterChanged(last);
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        if(viewToModel == null) {
+            return;
+        }
+        int count = endRow - firstRow + 1;
+        if(count > viewRowCount / 10) {
+            sort();
+            return;
+        }
+        int[] last = previousView();
+        int size = 0;
+        // the first view row moved up
+        int moved = viewRowCount;
+        for(int i = 0; i < viewRowCount; i++) {
+            int row = viewToModel[i];
+            if(row < firstRow) {
+                viewToModel[size++] = row;
+            } else if(row > endRow) {
+                viewToModel[size++] = row - count;
+            } else {
+                moved = Math.min(moved, size);
+            }
+        }
+        viewRowCount = size;
+        System.arraycopy(modelToView, endRow + 1, modelToView, firstRow, modelRowCount - endRow - 1);
+        modelRowCount -= count;
+        reindex(moved, viewRowCount);
+        fireRowSorterChanged(last);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        if(viewToModel == null) {
+            return;
+        }
+        if(endRow - firstRow + 1 > viewRowCount / 10) {
+            sort();
+            return;
+        }
+        int[] last = previousView();
+        // the values may be changed, filter and place the rows again
+        for(int row = firstRow; row <= endRow; row++) {
+            int index = modelToView[row];
+            if(index >= 0) {
+                System.arraycopy(viewToModel, index + 1, viewToModel, index, viewRowCount - index - 1);
+                viewRowCount--;
+                modelToView[row] = - 1;
+            }
+            int position = include(row) ? insert(row) : - 1;
+            if(index < 0 && position < 0) {
+                continue;
+            }
+            // a moved row only moves the rows between its old and new places
+            if(index >= 0 && position >= 0) {
+                reindex(Math.min(index, position), Math.max(index, position) + 1);
+            } else {
+                reindex(Math.max(index, position), viewRowCount);
+            }
+        }
+        fireRowSorterChanged(last);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        rowsUpdated(firstRow, endRow);
+    }
+
+    // filter and sort all the rows again
+    private void sort() {
+        int[] last = viewToModel == null ? new int[0] : previousView();
+        if(sortKeys.isEmpty() && filter == null) {
+            if(viewToModel == null) {
+                return;
+            }
+            viewToModel = null;
+            modelToView = null;
+        } else {
+            int rowCount = model.getRowCount();
+            int[] rows = new int[rowCount];
+            int size = 0;
+            for(int row = 0; row < rowCount; row++) {
+                if(include(row)) {
+                    rows[size++] = row;
+                }
+            }
+            if(! sortKeys.isEmpty()) {
+                sortRows(rows, size, rowCount);
+            }
+            viewToModel = rows;
+            viewRowCount = size;
+            updateModelToView();
+        }
+        fireRowSorterChanged(last);
+    }
+
+    // read the values of the sorted columns once, then merge sort the model indexes by them
+    private void sortRows(int[] rows, int size, int rowCount) {
+        Comparable<Object>[][] keys = newKeys(rowCount);
+        for(int i = 0; i < size; i++) {
+            int row = rows[i];
+            for(int k = 0; k < keys.length; k++) {
+                keys[k][row] = key(row, sortKeys.get(k).getColumn());
+            }
+        }
+        int[] buffer = new int[size];
+        mergeSort(rows, buffer, 0, size, (a, b) -> compare(a, b, k -> keys[k][a], k -> keys[k][b]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Comparable<Object>[][] newKeys(int rowCount) {
+        return (Comparable<Object>[][]) new Comparable<?>[sortKeys.size()][rowCount];
+    }
+
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, RowComparator comparator) {
+        if(to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, middle, comparator);
+        mergeSort(rows, buffer, middle, to, comparator);
+        if(comparator.compare(rows[middle - 1], rows[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for(int i = from; i < to; i++) {
+            if(right >= to || (left < middle && comparator.compare(buffer[left], buffer[right]) <= 0)) {
+                rows[i] = buffer[left++];
+            } else {
+                rows[i] = buffer[right++];
+            }
+        }
+    }
+
+    // put a model row into the view after the rows before it, the values are read for each comparison
+    private int insert(int row) {
+        int low = 0;
+        int high = viewRowCount;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            int other = viewToModel[middle];
+            if(compare(other, row, k -> key(other, sortKeys.get(k).getColumn()),
+                    k -> key(row, sortKeys.get(k).getColumn())) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if(viewRowCount == viewToModel.length) {
+            viewToModel = Arrays.copyOf(viewToModel, Math.max(viewRowCount + (viewRowCount >> 1), 16));
+        }
+        System.arraycopy(viewToModel, low, viewToModel, low + 1, viewRowCount - low);
+        viewToModel[low] = row;
+        viewRowCount++;
+        return low;
+    }
+
+    // write the reverse indexes of the view rows again
+    private void reindex(int from, int to) {
+        for(int i = from; i < to; i++) {
+            modelToView[viewToModel[i]] = i;
+        }
+    }
+
+    // build the reverse array after a sort, the array of the last sort is reused if it is long enough
+    private void updateModelToView() {
+        modelRowCount = model.getRowCount();
+        if(modelToView == null || modelToView.length < modelRowCount) {
+            modelToView = new int[modelRowCount];
+        }
+        Arrays.fill(modelToView, 0, modelRowCount, - 1);
+        reindex(0, viewRowCount);
+    }
+
+    // copy the current view into the reused buffer of the events
+    private int[] previousView() {
+        if(previous.length < viewRowCount) {
+            previous = new int[Math.max(viewRowCount + (viewRowCount >> 1), 16)];
+        }
+        System.arraycopy(viewToModel, 0, previous, 0, viewRowCount);
+        return previous;
+    }
+
+    private boolean include(int row) {
+        if(filter == null) {
+            return true;
+        }
+        entry.row = row;
+        return filter.include(entry);
+    }
+
+    /**
+     * Compare two model rows by the sort keys, then by their model indexes
+     *
+     * @param a     the first model row
+     * @param b     the second model row
+     * @param keysA the key of the first row in the nth sort key
+     * @param keysB the key of the second row in the nth sort key
+     */
+    private int compare(int a, int b, KeyReader keysA, KeyReader keysB) {
+        for(int k = 0; k < sortKeys.size(); k++) {
+            SortOrder order = sortKeys.get(k).getSortOrder();
+            if(order == SortOrder.UNSORTED) {
+                continue;
+            }
+            int result = compareKeys(keysA.key(k), keysB.key(k));
+            if(result != 0) {
+                return order == SortOrder.ASCENDING ? result : - result;
+            }
+        }
+        return Integer.compare(a, b);
+    }
+
+    // the empty values are the smallest, the values of the different types are grouped by their type
+    private static int compareKeys(Comparable<Object> a, Comparable<Object> b) {
+        if(a == null || b == null) {
+            return a == null ? (b == null ? 0 : - 1) : 1;
+        }
+        if(a.getClass() != b.getClass()) {
+            return a.getClass().getName().compareTo(b.getClass().getName());
+        }
+        return a.compareTo(b);
+    }
+
+    // the sort key of a cell, the strings and the values which cannot be compared are compared as the texts
+    @SuppressWarnings("unchecked")
+    private Comparable<Object> key(int row, int column) {
+        Object value = model.getValueAt(row, column);
+        if(value == null) {
+            return null;
+        }
+        if(value instanceof Comparable<?> comparable && ! (value instanceof String)) {
+            return (Comparable<Object>) comparable;
+        }
+        return (Comparable<Object>) (Comparable<?>) collator.getCollationKey(value.toString());
+    }
+
+    private void checkColumn(int column) {
+        if(column < 0 || column >= model.getColumnCount()) {
+            throw new IndexOutOfBoundsException("Invalid column " + column);
+        }
+    }
+
+    private static void checkRow(int index, int count) {
+        if(index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Invalid index " + index);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    @FunctionalInterface
+    private interface KeyReader {
+        Comparable<Object> key(int sortKey);
+    }
+
+    // the row of the model given to the row filter
+    private final class FilterEntry extends RowFilter.Entry<TableModel, Integer> {
+        private int row;
+
+        @Override
+        public TableModel getModel() {
+            return model;
+        }
+
+        @Override
+        public int getValueCount() {
+            return model.getColumnCount();
+        }
+
+        @Override
+        public Object getValue(int index) {
+            return model.getValueAt(row, index);
+        }
+
+        @Override
+        public Integer getIdentifier() {
+            return row;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package component;
+
+import constant.DataManipulateEnum;
+import utils.Metrics;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class is a table model backed by the records of the data source
+ * <p>
+ * 1. It keeps the records themselves instead of a copied two dim array, the cell value is read from the record when
+ * the table paints it
+ * 2. A data change event only changes the rows of its keys, and fires the row level events. So the table keeps its
+ * columns, renderers, sorter and selection
+ * 3. It reloads all the records when the keys of the change are unknown or there are too many of them
+ * 4. Each row remembers the position of its record in the data source, the equal records are ordered by it like the
+ * reload. So the rows are in a total order, and the row of a key is found by a binary search of its indexed row. It
+ * relies on the records never being changed in place, see@DataSource.update
+ * <p>
+ * It should only be used in the event dispatch thread
+ *
+ * @param <T> the record type
+ */
+final class RecordTableModel<T> extends AbstractTableModel {
+    // each key moves the rows after it in the array, reload is cheaper for a large batch
+    private static final int DELTA_LIMIT = 64;
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer RELOAD_TIMER = Metrics.timer("table.reload");
+    private static final Metrics.Timer APPLY_TIMER = Metrics.timer("table.apply");
+
+    private final String[] columns;
+    private final Supplier<List<T>> source;
+    private final Function<T, String> keyFunction;
+    private final Function<String, Optional<T>> finder;
+    private final BiFunction<T, Integer, Object> columnValue;
+    private final Predicate<T> filter;
+    private final Comparator<Row<T>> rowOrder;
+    private List<Row<T>> rows = new ArrayList<>();
+    // the row of each key
+    private final Map<String, Row<T>> index = new HashMap<>();
+    // the position of the next record added to the data source
+    private long nextPosition;
+
+    private RecordTableModel(Builder<T> builder) {
+        this.columns = builder.columns;
+        this.source = builder.source;
+        this.keyFunction = builder.keyFunction;
+        this.finder = builder.finder;
+        this.columnValue = builder.columnValue;
+        this.filter = builder.filter;
+        this.rowOrder = builder.order == null
+                ? Comparator.comparingLong(Row::position)
+                : Comparator.<Row<T>, T>comparing(Row::record, builder.order).thenComparingLong(Row::position);
+        reload();
+    }
+
+    /**
+     * Read all the records from the data source again
+     */
+    void reload() {
+        long start = System.nanoTime();
+        List<T> records = source.get();
+        List<Row<T>> list = new ArrayList<>();
+        for(int i = 0; i < records.size(); i++) {
+            if(filter.test(records.get(i))) {
+                list.add(new Row<>(records.get(i), i));
+            }
+        }
+        list.sort(rowOrder);
+        rows = list;
+        nextPosition = records.size();
+        index.clear();
+        for(Row<T> row : list) {
+            index.put(keyFunction.apply(row.record()), row);
+        }
+        fireTableDataChanged();
+        RELOAD_TIMER.stop(start, list.size());
+    }
+
+    /**
+     * Apply a data change event
+     *
+     * @param flag the action
+     * @param keys the primary keys of the changed records, empty if they are unknown
+     */
+    void apply(DataManipulateEnum flag, Set<String> keys) {
+        if(keys.isEmpty() || keys.size() > DELTA_LIMIT) {
+            reload();
+            return;
+        }
+        long start = System.nanoTime();
+        for(String key : keys) {
+            if(flag == DataManipulateEnum.DELETE) {
+                remove(key, indexOf(index.get(key)));
+            } else {
+                upsert(key);
+            }
+        }
+        APPLY_TIMER.stop(start, keys.size());
+    }
+
+    /**
+     * @param row the row index of the model
+     *
+     * @return the record of the row
+     */
+    T getRecord(int row) {
+        return rows.get(row).record();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return columnValue.apply(rows.get(rowIndex).record(), columnIndex);
+    }
+
+    // the record is added, changed or moved out of the filter
+    private void upsert(String key) {
+        Row<T> indexed = index.get(key);
+        int row = indexOf(indexed);
+        T t = finder.apply(key).filter(filter).orElse(null);
+        if(t == null) {
+            remove(key, row);
+            return;
+        }
+        // a changed record keeps its position in the data source, a new one is after all the others
+        Row<T> changed = new Row<>(t, indexed == null ? nextPosition++ : indexed.position());
+        index.put(key, changed);
+        if(row >= 0) {
+            rows.set(row, changed);
+            if(inOrder(row)) {
+                fireTableRowsUpdated(row, row);
+                return;
+            }
+            // the sorted column is changed, move the row
+            rows.remove(row);
+            fireTableRowsDeleted(row, row);
+        }
+        int position = insertPosition(changed);
+        rows.add(position, changed);
+        fireTableRowsInserted(position, position);
+    }
+
+    private void remove(String key, int row) {
+        if(row >= 0) {
+            index.remove(key);
+            rows.remove(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    // the row index of an indexed row, -1 if it is not in the table
+    private int indexOf(Row<T> row) {
+        if(row == null) {
+            return - 1;
+        }
+        int found = Collections.binarySearch(rows, row, rowOrder);
+        return found >= 0 && rows.get(found) == row ? found : - 1;
+    }
+
+    private boolean inOrder(int row) {
+        Row<T> t = rows.get(row);
+        return (row == 0 || rowOrder.compare(rows.get(row - 1), t) < 0)
+                && (row == rows.size() - 1 || rowOrder.compare(t, rows.get(row + 1)) < 0);
+    }
+
+    // the first row after it, the rows are in a total order so there is no equal one
+    private int insertPosition(Row<T> row) {
+        int found = Collections.binarySearch(rows, row, rowOrder);
+        return found >= 0 ? found + 1 : - found - 1;
+    }
+
+    // a record and its position in the data source
+    private record Row<T>(T record, long position) {
+    }
+
+    /**
+     * The builder design pattern help to build an object in an elegant way
+     *
+     * @param <T> the record type
+     */
+    static class Builder<T> {
+        private String[] columns;
+        private Supplier<List<T>> source;
+        private Function<T, String> keyFunction;
+        private Function<String, Optional<T>> finder;
+        private BiFunction<T, Integer, Object> columnValue;
+        private Predicate<T> filter = t -> true;
+        private Comparator<? super T> order;
+
+        Builder<T> columns(String[] columns) {
+            this.columns = columns;
+            return this;
+        }
+
+        // all the records of the data source
+        Builder<T> source(Supplier<List<T>> source) {
+            this.source = source;
+            return this;
+        }
+
+        // the primary key of a record, it is the key in the change event
+        Builder<T> keyFunction(Function<T, String> keyFunction) {
+            this.keyFunction = keyFunction;
+            return this;
+        }
+
+        // find the current record by its key
+        Builder<T> finder(Function<String, Optional<T>> finder) {
+            this.finder = finder;
+            return this;
+        }
+
+        // the value of a record in a column
+        Builder<T> columnValue(BiFunction<T, Integer, Object> columnValue) {
+            this.columnValue = columnValue;
+            return this;
+        }
+
+        // only show the records match the filter
+        Builder<T> filter(Predicate<T> filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        // the row order, the data source order is used if it is not set
+        Builder<T> order(Comparator<? super T> order) {
+            this.order = order;
+            return this;
+        }
+
+        RecordTableModel<T> build() {
+            return new RecordTableModel<>(this);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package component;
+
+import javax.swing.*;
+import javax.swing.Timer;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+import javax.swing.table.TableRowSorter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class is the search engine of the table search box
+ * <p>
+ * 1. The search is a case-insensitive literal match in the search columns, the user input is never compiled as a regex
+ * 2. The search waits until the user stops typing for a short time (debounce)
+ * 3. The rows are indexed by the trigrams of their search columns, a query only verifies the rows which have all of
+ * its trigrams. The index is built once and rebuilt after the table data is changed
+ * 4. The values of the search columns are copied once, after that only the inserted, updated and deleted rows of a
+ * model event are copied. A burst of events only searches again after the debounce
+ * 5. If the query extends the previous one, only the rows matched by the previous query are checked
+ * 6. The index and the matching run in a background thread. A newer query or a data change cancels the running one,
+ * only the result of the latest query is applied to the table
+ */
+final class TableSearch {
+    private static final int DEBOUNCE_MILLIS = 150;
+    // check the cancellation every this number of rows
+    private static final int CHECK_INTERVAL = 1024;
+    // separate the columns, so a match never crosses two columns
+    private static final char SEPARATOR = '\u0000';
+    // all the tables share one search thread, only one user types at a time
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "table-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final JTable table;
+    private final int[] columns;
+    private final Timer debounce;
+    private final TableModelListener modelListener = this::modelChanged;
+    // increased by each search and data change, a search stops when it is not the latest one
+    private final AtomicLong generation = new AtomicLong();
+    // increased by each data change, an index build stops when the data is changed again
+    private final AtomicLong dataVersion = new AtomicLong();
+    // the latest built index, it is kept across the searches until the data is changed
+    private volatile Index index;
+    // the fields below are only touched in the event dispatch thread
+    private String query = "";
+    private Result last;
+    // the values of the search columns of each model row, null if they need to be copied again
+    private List<Object[]> values;
+
+    TableSearch(JTable table, int[] columns) {
+        this.table = table;
+        this.columns = columns;
+        this.debounce = new Timer(DEBOUNCE_MILLIS, e -> run());
+        this.debounce.setRepeats(false);
+        table.getModel().addTableModelListener(modelListener);
+        table.addPropertyChangeListener("model", e -> {
+            ((TableModel) e.getOldValue()).removeTableModelListener(modelListener);
+            ((TableModel) e.getNewValue()).addTableModelListener(modelListener);
+            values = null;
+            invalidate();
+        });
+    }
+
+    /**
+     * The search box is changed, search it after the debounce
+     *
+     * @param text the text of the search box
+     */
+    void search(String text) {
+        query = text.trim().isEmpty() ? "" : text.toLowerCase(Locale.ROOT);
+        debounce.restart();
+    }
+
+    // keep the copied values in step with the model, only the changed rows are read
+    private void modelChanged(TableModelEvent e) {
+        if(values != null) {
+            int firstRow = e.getFirstRow();
+            int lastRow = e.getLastRow();
+            if(firstRow == TableModelEvent.HEADER_ROW || lastRow == Integer.MAX_VALUE) {
+                values = null;
+            } else if(e.getType() == TableModelEvent.INSERT) {
+                List<Object[]> inserted = new ArrayList<>(lastRow - firstRow + 1);
+                for(int row = firstRow; row <= lastRow; row++) {
+                    inserted.add(rowValues(row));
+                }
+                values.addAll(firstRow, inserted);
+            } else if(e.getType() == TableModelEvent.DELETE) {
+                values.subList(firstRow, lastRow + 1).clear();
+            } else {
+                for(int row = firstRow; row <= lastRow; row++) {
+                    values.set(row, rowValues(row));
+                }
+            }
+        }
+        invalidate();
+    }
+
+    // the data is changed, the row indexes of the index are no longer correct, search again after the debounce
+    private void invalidate() {
+        dataVersion.incrementAndGet();
+        generation.incrementAndGet();
+        last = null;
+        if(! query.isEmpty()) {
+            debounce.restart();
+        }
+    }
+
+    private void run() {
+        long current = generation.incrementAndGet();
+        if(query.isEmpty()) {
+            last = null;
+            applyFilter(null);
+            return;
+        }
+        String q = query;
+        long version = dataVersion.get();
+        Index built = index;
+        // only copy the references in the event dispatch thread, the texts are built in the background
+        Object[][] rows = built == null || built.version != version ? values().toArray(Object[][]::new) : null;
+        Result previous = last;
+        executor.execute(() -> {
+            // an earlier task may have built the index while this one was waiting
+            Index searchIndex = index;
+            if(searchIndex == null || searchIndex.version != version) {
+                if(rows == null) {
+                    return;
+                }
+                searchIndex = Index.build(rows, version, () -> dataVersion.get() != version);
+                if(searchIndex == null) {
+                    return;
+                }
+                index = searchIndex;
+            }
+            BitSet matches = match(searchIndex, q, previous, current);
+            if(matches == null) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if(generation.get() != current) {
+                    return;
+                }
+                last = new Result(q, matches);
+                applyFilter(matches);
+            });
+        });
+    }
+
+    private List<Object[]> values() {
+        if(values == null) {
+            int rowCount = table.getModel().getRowCount();
+            values = new ArrayList<>(rowCount);
+            for(int row = 0; row < rowCount; row++) {
+                values.add(rowValues(row));
+            }
+        }
+        return values;
+    }
+
+    private Object[] rowValues(int row) {
+        TableModel model = table.getModel();
+        Object[] rowValues = new Object[columns.length];
+        for(int i = 0; i < columns.length; i++) {
+            rowValues[i] = model.getValueAt(row, columns[i]);
+        }
+        return rowValues;
+    }
+
+    // run in the search thread, return null if it is cancelled
+    private BitSet match(Index searchIndex, String q, Result previous, long current) {
+        BitSet matches = new BitSet(searchIndex.texts.length);
+        PrimitiveIterator.OfInt candidates;
+        if(previous != null && q.contains(previous.query)) {
+            // the new query is narrower, it can only match the rows matched before
+            candidates = previous.matches.stream().iterator();
+        } else {
+            candidates = searchIndex.candidates(q);
+        }
+        int checked = 0;
+        while(candidates.hasNext()) {
+            if(++ checked % CHECK_INTERVAL == 0 && generation.get() != current) {
+                return null;
+            }
+            int row = candidates.nextInt();
+            if(searchIndex.texts[row].contains(q)) {
+                matches.set(row);
+            }
+        }
+        return generation.get() == current ? matches : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void applyFilter(BitSet matches) {
+        RowFilter<TableModel, Integer> filter = matches == null ? null : new RowFilter<>() {
+            @Override
+            public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+                return matches.get(entry.getIdentifier());
+            }
+        };
+        // keep the current sorter, so the sort keys are not lost
+        if(table.getRowSorter() instanceof RecordRowSorter sorter) {
+            sorter.setRowFilter(filter);
+        } else if(table.getRowSorter() instanceof TableRowSorter<?> sorter) {
+            ((TableRowSorter<TableModel>) sorter).setRowFilter(filter);
+        } else {
+            table.setRowSorter(RecordRowSorter.of(table.getModel(), filter));
+        }
+    }
+
+    private record Result(String query, BitSet matches) {
+    }
+
+    /**
+     * The search text of each row and the trigram index of the texts
+     */
+    private static final class Index {
+        private final String[] texts;
+        private final long version;
+        private final Map<Long, Postings> trigrams = new HashMap<>();
+
+        private Index(String[] texts, long version) {
+            this.texts = texts;
+            this.version = version;
+        }
+
+        // return null if it is cancelled
+        private static Index build(Object[][] values, long version, BooleanSupplier cancelled) {
+            String[] texts = new String[values.length];
+            StringBuilder builder = new StringBuilder();
+            for(int row = 0; row < values.length; row++) {
+                builder.setLength(0);
+                for(Object value : values[row]) {
+                    builder.append(value == null ? "" : value.toString().toLowerCase(Locale.ROOT)).append(SEPARATOR);
+                }
+                texts[row] = builder.toString();
+            }
+            Index index = new Index(texts, version);
+            for(int row = 0; row < texts.length; row++) {
+                if(row % CHECK_INTERVAL == 0 && cancelled.getAsBoolean()) {
+                    return null;
+                }
+                String text = texts[row];
+                for(int i = 0; i + 3 <= text.length(); i++) {
+                    if(text.charAt(i) == SEPARATOR || text.charAt(i + 1) == SEPARATOR || text.charAt(i + 2) == SEPARATOR) {
+                        continue;
+                    }
+                    index.trigrams.computeIfAbsent(trigram(text, i), e -> new Postings()).add(row);
+                }
+            }
+            return index;
+        }
+
+        // the rows which have all the trigrams of the query, or all the rows for a short query
+        private PrimitiveIterator.OfInt candidates(String q) {
+            if(q.length() < 3) {
+                return IntStream.range(0, texts.length).iterator();
+            }
+            Postings shortest = null;
+            List<Postings> postings = new ArrayList<>();
+            for(int i = 0; i + 3 <= q.length(); i++) {
+                Postings p = trigrams.get(trigram(q, i));
+                if(p == null) {
+                    return IntStream.empty().iterator();
+                }
+                postings.add(p);
+                if(shortest == null || p.size < shortest.size) {
+                    shortest = p;
+                }
+            }
+            // walk the shortest list and keep the rows which are in all the others
+            Postings first = shortest;
+            return IntStream.range(0, first.size)
+                    .map(i -> first.rows[i])
+                    .filter(row -> postings.stream().allMatch(p -> p == first || p.contains(row)))
+                    .iterator();
+        }
+
+        private static long trigram(String text, int i) {
+            return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+    }
+
+    // the sorted rows of one trigram
+    private static final class Postings {
+        private int[] rows = new int[4];
+        private int size;
+
+        private void add(int row) {
+            // a row adds its trigrams in order, so a repeated trigram is always the last one
+            if(size > 0 && rows[size - 1] == row) {
+                return;
+            }
+            if(size == rows.length) {
+                rows = Arrays.copyOf(rows, size << 1);
+            }
+            rows[size++] = row;
+        }
+
+        private boolean contains(int row) {
+            return Arrays.binarySearch(rows, 0, size, row) >= 0;
+        }
+    }
+}
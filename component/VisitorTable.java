@@ -8,11 +8,12 @@ import data.DataSource;
 import data.DataSourceChannel;
 import dto.VisitorDto;
 import ui.ClubFrameView;
+import utils.DateUtil;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.MouseEvent;
+import java.util.Set;
 
 /**
  * @author lomofu
@@ -25,9 +26,20 @@ import java.awt.event.MouseEvent;
  * Meanwhile, it will subscrib the data source when table init
  */
 public class VisitorTable extends MyTable implements DataSourceChannel<VisitorDto> {
+    // the model reads the visitor records from the data source directly
+    private final RecordTableModel<VisitorDto> visitorModel;
+
     // default table model have full functions
-    public VisitorTable(ClubFrameView clubFrameView, String title, String[] columns, Object[][] data, int[] filterColumns) {
-        super(clubFrameView, title, columns, data, filterColumns);
+    @SuppressWarnings("unchecked")
+    public VisitorTable(ClubFrameView clubFrameView, String title, String[] columns, int[] filterColumns) {
+        super(clubFrameView, title, columns, new RecordTableModel.Builder<VisitorDto>()
+                .columns(columns)
+                .source(DataSource::getVisitorDtoList)
+                .keyFunction(e -> DateUtil.formatDay(e.getDay()))
+                .finder(DataSource::findVisitor)
+                .columnValue(VisitorService::visitorTableValue)
+                .build(), filterColumns);
+        this.visitorModel = (RecordTableModel<VisitorDto>) this.tableModel;
         this.subscribe(VisitorDto.class);
     }
 
@@ -75,18 +87,26 @@ public class VisitorTable extends MyTable implements DataSourceChannel<VisitorDt
      */
     @Override
     public void onDataChange(VisitorDto visitorDto, DataManipulateEnum flag) {
-        SwingUtilities.invokeLater(this::fetchData);
+        onDataChange(visitorDto, flag, Set.of());
+    }
+
+    /**
+     * This method only changes the rows of the changed days
+     *
+     * @param visitorDto the last changed visitor details
+     * @param flag       action see@DataManipulateEnum
+     * @param keys       the changed days
+     */
+    @Override
+    public void onDataChange(VisitorDto visitorDto, DataManipulateEnum flag, Set<String> keys) {
+        SwingUtilities.invokeLater(() -> visitorModel.apply(flag, keys));
     }
 
     /**
      * This method refresh the data from data source
      */
     private void fetchData() {
-        DefaultTableModel model = (DefaultTableModel) this.jTable.getModel();
-        model.setDataVector(VisitorService.findVisitorsForTableRender(), UIConstant.VISITOR_COLUMNS);
-        model.fireTableDataChanged();
-        this.jTable.setModel(model);
-        super.setTableStyle();
+        visitorModel.reload();
     }
 
     /**
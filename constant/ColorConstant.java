@@ -18,6 +18,8 @@ public final class ColorConstant {
     public static final Color PANTONE124C = new Color(242, 180, 8);
     public static final Color PANTONE190C = new Color(255, 128, 159);
     public static final Color PANTONE1205C = new Color(255, 236, 158);
+    // the background of the even rows in the tables
+    public static final Color TABLE_STRIPE = new Color(213, 213, 213);
 
     private ColorConstant() {
     }
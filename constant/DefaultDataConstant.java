@@ -1,10 +1,9 @@
 package constant;
 
 import bean.Course;
+import bean.Money;
 import bean.Role;
 
-import java.math.BigDecimal;
-
 /**
  * @author lomofu
  * <p>
@@ -16,7 +15,7 @@ public final class DefaultDataConstant {
             new Role("Family Member", "60", "54", "50", "45", "true", "true", "Yoga|Aerobics"),
     };
 
-    public static final BigDecimal VISITOR_FEES = new BigDecimal(6);
+    public static final Money VISITOR_FEES = Money.parse("6");
     public static final Course[] DEFAULT_COURSES = {new Course("Yoga"), new Course("Aerobics")};
     public static final String CUSTOMER_CSV_PATH = "customerlist.csv";
     public static final String CONSUMPTION_CSV_PATH = "consumptionlist.csv";
@@ -25,6 +24,32 @@ public final class DefaultDataConstant {
     public static final String PROMOTION_CSV_PATH = "promotionlist.csv";
     public static final String VISITOR_CSV_PATH = "visitorlist.csv";
 
+    // the rows are appended to the csv files, it decides when the appended rows are forced to the disk
+    public static final FsyncPolicyEnum FSYNC_POLICY = FsyncPolicyEnum.of(System.getProperty("club.fsync"));
+    // the appended rows wait this long so a burst of them is written once, or less if they are more than the bytes
+    public static final long CSV_FLUSH_MILLIS = Long.getLong("club.flush.millis", 100);
+    public static final int CSV_FLUSH_BYTES = Integer.getInteger("club.flush.bytes", 64 * 1024);
+    // the longest time the application waits for the last flush when it exits
+    public static final long SHUTDOWN_FLUSH_MILLIS = 5000;
+    // rewrite the whole file when the dead rows (updated or removed) are more than this ratio of the live rows
+    public static final double COMPACTION_RATIO = 0.5;
+    // but never rewrite the file for only a few dead rows
+    public static final int COMPACTION_MIN_DEAD_ROWS = 64;
+    // the write-ahead log folder, and the size of the log that triggers a checkpoint
+    public static final String WAL_DIRECTORY = "wal";
+    public static final long WAL_CHECKPOINT_SIZE = 8L * 1024 * 1024;
+    // the binary snapshot of the customers and the consumptions, it is written by the backup job
+    public static final String SNAPSHOT_PATH = "datasource.snapshot";
+    // the data change events in this window are merged, so a burst of changes only refreshes the ui once
+    public static final long EVENT_WINDOW_MILLIS = 50;
+    // the log lines waiting for the logger thread, it must be a power of two
+    public static final int LOG_BUFFER_SIZE = 8192;
+    // the log file is rolled when it is larger than the size, and only the latest files are kept
+    public static final String LOG_DIRECTORY = "logs";
+    public static final String LOG_FILE = "club.log";
+    public static final long LOG_FILE_SIZE = 4L * 1024 * 1024;
+    public static final int LOG_FILES = 3;
+
     private DefaultDataConstant() {
     }
 }
@@ -0,0 +1,32 @@
+package constant;
+
+/**
+ * @author lomofu
+ * <p>
+ * This enum list the policies of flushing the appended rows to the disk.
+ * The operator can choose one by the system property: -Dclub.fsync=always|periodic|never
+ */
+public enum FsyncPolicyEnum {
+    // force the file to the disk after each append, the safest but slowest way
+    ALWAYS,
+    // force the file to the disk at most once per second
+    PERIODIC,
+    // leave it to the operating system
+    NEVER;
+
+    /**
+     * parse the policy from the system property, the default one is periodic
+     *
+     * @param value the property value
+     *
+     * @return the policy
+     */
+    public static FsyncPolicyEnum of(String value) {
+        for(FsyncPolicyEnum policy : values()) {
+            if(policy.name().equalsIgnoreCase(value)) {
+                return policy;
+            }
+        }
+        return PERIODIC;
+    }
+}
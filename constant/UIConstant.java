@@ -97,6 +97,10 @@ public final class UIConstant {
 
     public static final int[] VISITOR_SEARCH_FILTER_COLUMNS = {0};
 
+    public static final String[] DIAGNOSTICS_COLUMNS = {
+            "Metric", "Type", "Count", "p50 ms", "p99 ms", "Max ms", "Rows/s", "Value"
+    };
+
     public static final String[] HELP_INFO = {
             """
             How to use the membership table?
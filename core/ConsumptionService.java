@@ -1,10 +1,13 @@
 package core;
 
 import bean.Consumption;
+import bean.Money;
 import constant.UIConstant;
 import data.DataSource;
+import data.UnitOfWork;
 import utils.DateUtil;
 import utils.IDUtil;
+import utils.Metrics;
 
 import java.util.Collection;
 import java.util.Comparator;
@@ -17,6 +20,12 @@ import java.util.stream.Collectors;
  * This class deals with business logic related to consumption records
  */
 public final class ConsumptionService {
+    // the row order of the consumption table, the descending order of the create time
+    public static final Comparator<Consumption> CONSUMPTION_TABLE_ORDER =
+            Comparator.comparingInt(Consumption::createDay).reversed();
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer CREATE_TIMER = Metrics.timer("service.consumption.create");
+
     /**
      * This method creates a new consumption
      *
@@ -24,31 +33,46 @@ public final class ConsumptionService {
      * @param fullName member full name
      * @param fees     consumption fees
      */
-    public static void createNew(String memberId, String fullName, String fees) {
+    public static void createNew(String memberId, String fullName, Money fees) {
+        long start = System.nanoTime();
+        UnitOfWork work = DataSource.begin();
+        createNew(work, memberId, fullName, fees);
+        work.commit();
+        CREATE_TIMER.stop(start);
+    }
+
+    /**
+     * This method stages a new consumption into a unit of work, it is added when the unit of work commits
+     *
+     * @param work     the unit of work of the business operation
+     * @param memberId relate to the member of this consumption
+     * @param fullName member full name
+     * @param fees     consumption fees
+     */
+    public static void createNew(UnitOfWork work, String memberId, String fullName, Money fees) {
         String orderId = IDUtil.generateId("C");
-        Consumption consumption = new Consumption(orderId, fullName, memberId, DateUtil.now(), fees);
-        DataSource.add(consumption); // add data into data source
+        Consumption consumption = new Consumption(orderId, fullName, memberId, DateUtil.today(), fees);
+        work.add(consumption); // add data into data source
     }
 
     /**
-     * This method uses stream API since java 8 to converse two dim arrays for JTable to render
-     * The sort is descending order of the creat time
+     * This method gives the value of a consumption in a column of the consumption table,
+     * see@UIConstant.CONSUMPTION_COLUMNS
      *
-     * @return a two dim array
+     * @param e      the consumption
+     * @param column the column index
+     * @return the cell value
      */
-    public static Object[][] findConsumptionsForTableRender() {
-        return DataSource.getConsumptionList()
-                .stream()
-                .sorted(Comparator.comparing(Consumption::createTime)
-                        .reversed())
-                .map(e -> new Object[]{
-                        e.orderId(),
-                        e.consumer(),
-                        e.memberId(),
-                        DateUtil.str2Date(e.createTime()),
-                        e.fees()
-                })
-                .toArray(size -> new Object[size][UIConstant.CONSUMPTION_COLUMNS.length]);
+    public static Object consumptionTableValue(Consumption e, int column) {
+        return switch (column) {
+            case 0 -> e.orderId();
+            case 1 -> e.consumer();
+            case 2 -> e.memberId();
+            // the table paints and sorts the column many times, so each day is only converted once
+            case 3 -> DateUtil.displayDate(e.createDay());
+            case 4 -> e.fees();
+            default -> null;
+        };
     }
 
     /**
@@ -58,45 +82,33 @@ public final class ConsumptionService {
      * @return the member consumption collections
      */
     public static List<Consumption> findConsumptionsByMemberId(String memberId) {
-        return DataSource.getConsumptionList()
-                .stream()
-                .filter(e -> e.memberId().equals(memberId))
-                .collect(Collectors.toList());
+        return DataSource.findConsumptionsByMember(memberId);
     }
 
     /**
-     * This method query a member consumption records and converse two dim arrays for JTable to render.
+     * This method remove the consumption records of members
      *
-     * @param memberId member id
-     * @return a two dim array
+     * @param customerIdList a series of members accounts
      */
-    public static Object[][] findConsumptionsByMemberIdForRender(String memberId) {
-        return DataSource.getConsumptionList()
-                .stream()
-                .filter(e -> e.memberId().equals(memberId)) // prediction
-                .sorted(Comparator.comparing(Consumption::createTime)
-                        .reversed())
-                .map(e -> new Object[]{
-                        e.orderId(),
-                        e.consumer(),
-                        e.memberId(),
-                        DateUtil.str2Date(e.createTime()),
-                        e.fees()
-                })
-                .toArray(size -> new Object[size][UIConstant.CONSUMPTION_COLUMNS.length]);
+    public static void remove(List<String> customerIdList) {
+        UnitOfWork work = DataSource.begin();
+        remove(work, customerIdList);
+        work.commit();
     }
 
     /**
-     * This method remove the consumption records of members
+     * This method stages the removal of the consumption records of members into a unit of work
      *
+     * @param work           the unit of work of the business operation
      * @param customerIdList a series of members accounts
      */
-    public static void remove(List<String> customerIdList) {
-        List<Consumption> consumptions = customerIdList
+    public static void remove(UnitOfWork work, List<String> customerIdList) {
+        List<String> orderIds = customerIdList
                 .stream()
                 .map(ConsumptionService::findConsumptionsByMemberId) // converse to the consumptions
                 .flatMap(Collection::stream) // flatten to a one dim consumption array
+                .map(Consumption::orderId)
                 .collect(Collectors.toList());
-        DataSource.remove(consumptions);
+        work.removeAll(Consumption.class, orderIds);
     }
 }
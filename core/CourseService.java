@@ -3,6 +3,7 @@ package core;
 import bean.Course;
 import constant.UIConstant;
 import data.DataSource;
+import utils.Metrics;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,6 +14,8 @@ import java.util.Optional;
  * This class deals with business logic related to course list
  */
 public final class CourseService {
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer TABLE_TIMER = Metrics.timer("service.course.table");
 
     /**
      * This method find course information with the course id
@@ -21,10 +24,7 @@ public final class CourseService {
      * @return an option container with course information to handle NPE
      */
     public static Optional<Course> findCourseById(String courseId) {
-        return DataSource.getCourseList()
-                .stream()
-                .filter(e -> e.getCourseId().equals(courseId))
-                .findFirst();
+        return DataSource.findCourse(courseId);
     }
 
     /**
@@ -34,13 +34,16 @@ public final class CourseService {
      * @return a two dim array
      */
     public static Object[][] findSelectCoursesForTableRender(List<String> courseListId) {
-        return DataSource.getCourseList()
+        long start = System.nanoTime();
+        Object[][] rows = DataSource.getCourseList()
                 .stream()
                 .map(e -> new Object[]{
                         e.getCourseId(),
                         e.getCourseName(),
                         courseListId.contains(e.getCourseId())})
                 .toArray(size -> new Object[size][UIConstant.COURSE_COLUMNS.length]);
+        TABLE_TIMER.stop(start, rows.length);
+        return rows;
     }
 
     /**
@@ -49,12 +52,15 @@ public final class CourseService {
      * @return a two dim array
      */
     public static Object[][] findCoursesForTableRender() {
-        return DataSource.getCourseList()
+        long start = System.nanoTime();
+        Object[][] rows = DataSource.getCourseList()
                 .stream()
                 .map(e -> new Object[]{
                         e.getCourseId(),
                         e.getCourseName()})
                 .toArray(size -> new Object[size][UIConstant.COURSE_COLUMNS.length]);
+        TABLE_TIMER.stop(start, rows.length);
+        return rows;
     }
 
     /**
@@ -72,7 +78,8 @@ public final class CourseService {
      * @param course course object
      */
     public static void update(Course course) {
-        Course c = findCourseById(course.getCourseId()).get();
+        // the stored course is shared by the readers, a new one replaces it
+        Course c = new Course();
         c.setCourseId(course.getCourseId());
         c.setCourseName(course.getCourseName());
         DataSource.update(c);
@@ -1,12 +1,11 @@
 package core;
 
+import bean.Money;
 import bean.Promotion;
 import constant.UIConstant;
 import data.DataSourceHandler;
 import dto.RoleDto;
 
-import java.math.BigDecimal;
-
 /**
  * @author lomofu
  *
@@ -18,19 +17,11 @@ public final class FeesService {
      *
      * @param memberType
      * @param duration
-     * @return BigDecimal fee
+     * @return Money fee
      */
-    public static BigDecimal getFees(String memberType, String duration) {
+    public static Money getFees(String memberType, String duration) {
         RoleDto roleDto = DataSourceHandler.findRoleDtoByName(memberType);
-        BigDecimal feesPerMonth;
-        switch (duration) {
-            case "1" -> feesPerMonth = roleDto.getOneMonth();
-            case "3" -> feesPerMonth = roleDto.getThreeMonth();
-            case "6" -> feesPerMonth = roleDto.getHalfYear();
-            default -> feesPerMonth = roleDto.getFullYear();
-        }
-        BigDecimal dr = new BigDecimal(duration);
-        return feesPerMonth.multiply(dr);
+        return feesPerMonth(roleDto, duration).times(Long.parseLong(duration));
     }
 
     /**
@@ -39,40 +30,40 @@ public final class FeesService {
      * @param memberType
      * @param duration
      * @param code
-     * @return BigDecimal[] about discount fee and total fee
+     * @return Money[] about discount fee and total fee
      */
-    public static BigDecimal[] getFees(String memberType, String duration, String code) {
+    public static Money[] getFees(String memberType, String duration, String code) {
         RoleDto roleDto = DataSourceHandler.findRoleDtoByName(memberType);
-        BigDecimal feesPerMonth;
-        switch (duration) {
-            case "1" -> feesPerMonth = roleDto.getOneMonth();
-            case "3" -> feesPerMonth = roleDto.getThreeMonth();
-            case "6" -> feesPerMonth = roleDto.getHalfYear();
-            default -> feesPerMonth = roleDto.getFullYear();
-        }
-        BigDecimal dr = new BigDecimal(duration);
+        Money original = feesPerMonth(roleDto, duration).times(Long.parseLong(duration));
         Promotion promotion = PromotionCodeService.findPromotionCodeOp(code).orElseThrow(() -> new RuntimeException("Code is Valid"));
 
         String type = promotion.getPromotionType();
         if (type.equals(UIConstant.PROMOTION_TYPES[0])) {
-            BigDecimal total = feesPerMonth.multiply(dr).subtract(new BigDecimal(promotion.getValue()));
-            if (total.doubleValue() < 0) {
-                total = BigDecimal.ZERO;
-            }
-            return new BigDecimal[]{
-                    new BigDecimal(promotion.getValue()),
-                    total
+            // the fixed discount, the total is never less than zero
+            Money discount = Money.parse(promotion.getValue());
+            return new Money[]{
+                    discount,
+                    original.discount(discount)
             };
         }
-        BigDecimal original = feesPerMonth.multiply(dr);
-        String value = promotion.getValue();
-        BigDecimal total = original.multiply(new BigDecimal(value));
-        BigDecimal discount = original.subtract(total);
-        if (discount.doubleValue() < 0) {
-            total = BigDecimal.ZERO;
+        // the percentage discount, the value is the rate to pay
+        Money total = original.times(Money.Rate.parse(promotion.getValue()));
+        Money discount = original.minus(total);
+        if (discount.isNegative()) {
+            total = Money.ZERO;
         }
-        return new BigDecimal[]{
+        return new Money[]{
                 discount, total
         };
     }
+
+    // the fees per month of the duration
+    private static Money feesPerMonth(RoleDto roleDto, String duration) {
+        return switch (duration) {
+            case "1" -> roleDto.getOneMonth();
+            case "3" -> roleDto.getThreeMonth();
+            case "6" -> roleDto.getHalfYear();
+            default -> roleDto.getFullYear();
+        };
+    }
 }
@@ -1,19 +1,21 @@
 package core;
 
+import bean.Money;
 import constant.CustomerSateEnum;
 import constant.DefaultDataConstant;
 import constant.UIConstant;
 import data.DataSource;
+import data.UnitOfWork;
 import dto.CustomerDto;
 import utils.DateUtil;
+import utils.Metrics;
 
-import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 /**
  * @author lomofu
@@ -21,66 +23,94 @@ import java.util.stream.Collectors;
  * This class deals with business logic related to membership records
  */
 public final class MembershipService {
+    // the row order of the membership table
+    public static final Comparator<CustomerDto> MEMBER_TABLE_ORDER = Comparator.comparing(CustomerDto::getState);
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer CREATE_TIMER = Metrics.timer("service.membership.create");
+    private static final Metrics.Timer RENEW_TIMER = Metrics.timer("service.membership.renew");
+    private static final Metrics.Timer REMOVE_TIMER = Metrics.timer("service.membership.remove");
+    private static final Metrics.Timer MAIN_TABLE_TIMER = Metrics.timer("service.membership.main-table");
+
     /**
-     * This method create a new customer
+     * This method create a new customer, the customer and its consumption are added together
      *
      * @param customerDto customer details
      */
     public static void createNew(CustomerDto customerDto) {
+        long start = System.nanoTime();
+        UnitOfWork work = DataSource.begin();
+        createNew(work, customerDto);
+        work.commit();
+        CREATE_TIMER.stop(start);
+    }
+
+    private static void createNew(UnitOfWork work, CustomerDto customerDto) {
         // determine membership status based on expiry date
-        if (DateUtil.isAfter(customerDto.getExpireTime(), LocalDate.now())) {
+        if (customerDto.getExpireDay() >= DateUtil.today()) {
             customerDto.setState(CustomerSateEnum.ACTIVE.getName());
         } else {
             customerDto.setState(CustomerSateEnum.EXPIRED.getName());
         }
-        DataSource.add(customerDto);
+        work.add(customerDto);
         String fullName = customerDto.getFirstName() + " " + customerDto.getLastName();
-        ConsumptionService.createNew(customerDto.getId(), fullName, customerDto.getFees().toString());
+        ConsumptionService.createNew(work, customerDto.getId(), fullName, customerDto.getFees());
     }
 
     /**
-     * This method is used to transfer old membership into a new membership
+     * This method is used to transfer old membership into a new membership, the new member is added and the old one
+     * is removed together
      *
      * @param oldId       old member id
      * @param customerDto customer details
      */
     public static void transfer(String oldId, CustomerDto customerDto) {
-        createNew(customerDto);
-        removeOnly(oldId);
+        long start = System.nanoTime();
+        UnitOfWork work = DataSource.begin();
+        createNew(work, customerDto);
+        work.removeAll(CustomerDto.class, List.of(findCustomerById(oldId).getId()));
+        work.commit();
+        CREATE_TIMER.stop(start);
     }
 
     /**
-     * This method is used for membership renewal
+     * This method is used for membership renewal, the member, its consumption and its family members are changed
+     * together. The stored records are not changed, their changed copies replace them at the commit, see@UnitOfWork
      *
      * @param customerDto customer details
      */
     public static void renew(CustomerDto customerDto) {
-        CustomerDto dto = findCustomerById(customerDto.getId());
+        long start = System.nanoTime();
+        UnitOfWork work = DataSource.begin();
+        // the stored member is shared by the readers, so a copy of it is changed
+        CustomerDto dto = new CustomerDto(findCustomerById(customerDto.getId()));
         List<CustomerDto> familyMember = findFamilyMember(customerDto.getId());
         dto.setDuration(customerDto.getDuration());
-        dto.setStartDate(customerDto.getStartDate());
-        dto.setExpireTime(customerDto.getExpireTime());
+        dto.setStartDay(customerDto.getStartDay());
+        dto.setExpireDay(customerDto.getExpireDay());
         dto.setFees(customerDto.getFees());
         dto.setState(CustomerSateEnum.ACTIVE.getName());
 
         // update the membership info
-        DataSource.update(customerDto);
+        work.update(dto);
         String fullName = customerDto.getFirstName() + " " + customerDto.getLastName();
         // record the renewal consumption
-        ConsumptionService.createNew(customerDto.getId(), fullName, customerDto.getFees().toString());
+        ConsumptionService.createNew(work, customerDto.getId(), fullName, customerDto.getFees());
 
         if (!familyMember.isEmpty()) {
-            for (CustomerDto dto1 : familyMember) {
+            for (CustomerDto member : familyMember) {
+                CustomerDto dto1 = new CustomerDto(member);
                 //sync the membership date from parent
                 dto1.setDuration(customerDto.getDuration());
-                dto1.setStartDate(customerDto.getStartDate());
-                dto1.setExpireTime(customerDto.getExpireTime());
+                dto1.setStartDay(customerDto.getStartDay());
+                dto1.setExpireDay(customerDto.getExpireDay());
                 dto1.setState(CustomerSateEnum.ACTIVE.getName());
                 // sub-account do not have consumption (only charge the parent account), therefore the fees is zero
-                dto.setFees(BigDecimal.ZERO);
-                DataSource.update(dto1);
+                dto1.setFees(Money.ZERO);
+                work.update(dto1);
             }
         }
+        work.commit();
+        RENEW_TIMER.stop(start);
     }
 
     /**
@@ -101,19 +131,18 @@ public final class MembershipService {
      * @param memberId member id list
      */
     public static void remove(String... memberId) {
-        List<CustomerDto> customerIdList = new ArrayList<>();
+        long start = System.nanoTime();
+        Set<String> customerIdList = new LinkedHashSet<>();
         for (String id : memberId) {
-            CustomerDto customerById = findCustomerById(id);
-            List<CustomerDto> member = findFamilyMember(id);
-            if (!member.isEmpty()) {
-                customerIdList.addAll(member);
-            }
-            customerIdList.add(customerById);
+            findFamilyMember(id).forEach(e -> customerIdList.add(e.getId()));
+            customerIdList.add(id);
         }
-        DataSource.remove(customerIdList);
-        ConsumptionService.remove(customerIdList.stream()
-                .map(CustomerDto::getId)
-                .collect(Collectors.toList()));
+        // one batch for the members and one batch for their consumptions, they are removed together
+        UnitOfWork work = DataSource.begin();
+        work.removeAll(CustomerDto.class, customerIdList);
+        ConsumptionService.remove(work, new ArrayList<>(customerIdList));
+        work.commit();
+        REMOVE_TIMER.stop(start, customerIdList.size());
     }
 
     /**
@@ -123,10 +152,7 @@ public final class MembershipService {
      * @return optional container
      */
     public static Optional<CustomerDto> findCustomerByIdOp(String id) {
-        return DataSource.getCustomerList()
-                .stream()
-                .filter(e -> e.getId().equals(id))
-                .findFirst();
+        return DataSource.findCustomer(id);
     }
 
     /**
@@ -137,11 +163,7 @@ public final class MembershipService {
      * @return customer details
      */
     public static CustomerDto findCustomerById(String id) {
-        return DataSource.getCustomerList()
-                .stream()
-                .filter(e -> e.getId().equals(id))
-                .findFirst()
-                .get();
+        return DataSource.findCustomer(id).get();
     }
 
     /**
@@ -151,37 +173,34 @@ public final class MembershipService {
      * @return the member list
      */
     public static List<CustomerDto> findFamilyMember(String id) {
-        return DataSource.getCustomerList()
-                .stream()
-                .filter(e -> e.getParent().equals(id))
-                .collect(Collectors.toList());
+        return DataSource.findFamilyMembers(id);
     }
 
     /**
-     * This method converse a two dim array for table to render
+     * This method gives the value of a member in a column of the membership table, see@UIConstant.MEMBER_COLUMNS
      *
-     * @return a two dim array
+     * @param e      the member
+     * @param column the column index
+     * @return the cell value
      */
-    public static Object[][] findMembersForTableRender() {
-        return DataSource.getCustomerList()
-                .stream()
-                .sorted(Comparator.comparing(CustomerDto::getState))
-                .map(e -> new Object[]{
-                        e.getId(),
-                        e.getFirstName(),
-                        e.getLastName(),
-                        e.getDateOfBirth(),
-                        e.getGender(),
-                        e.getHomeAddress(),
-                        e.getPhoneNumber(),
-                        e.getRole().getRoleName(),
-                        e.getHealthCondition(),
-                        e.getStartDate(),
-                        e.getExpireTime(),
-                        e.getParent(),
-                        e.getState()
-                })
-                .toArray(size -> new Object[size][UIConstant.MEMBER_COLUMNS.length]);
+    public static Object memberTableValue(CustomerDto e, int column) {
+        return switch (column) {
+            case 0 -> e.getId();
+            case 1 -> e.getFirstName();
+            case 2 -> e.getLastName();
+            // the dates are converted at the edge of the ui, each day only once
+            case 3 -> DateUtil.displayDate(e.getBirthDay());
+            case 4 -> e.getGender();
+            case 5 -> e.getHomeAddress();
+            case 6 -> e.getPhoneNumber();
+            case 7 -> e.getRole().getRoleName();
+            case 8 -> e.getHealthCondition();
+            case 9 -> DateUtil.displayDate(e.getStartDay());
+            case 10 -> DateUtil.displayDate(e.getExpireDay());
+            case 11 -> e.getParent();
+            case 12 -> e.getState();
+            default -> null;
+        };
     }
 
     /**
@@ -191,12 +210,15 @@ public final class MembershipService {
      * @return a two dim array
      */
     public static Object[][] findMembersForMainTableRender(String parentId) {
-        return DataSource.getCustomerList().stream()
+        long start = System.nanoTime();
+        Object[][] rows = DataSource.getCustomerList().stream()
                 .filter(e -> ("".equals(e.getParent()) || e.getParent() == null)
                         && CustomerSateEnum.ACTIVE.getName().equals(e.getState()) &&
                         DefaultDataConstant.DEFAULT_MEMBERS[1].getRoleName().equals(e.getRole().getRoleName()))
                 .map(e -> new Object[]{e.getId(), e.getFirstName(), e.getLastName(), e.getId().equals(parentId)})
                 .toArray(size -> new Object[size][UIConstant.MEMBER_COLUMNS.length]);
+        MAIN_TABLE_TIMER.stop(start, rows.length);
+        return rows;
     }
 
     /**
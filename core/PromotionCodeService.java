@@ -3,12 +3,11 @@ package core;
 import bean.Promotion;
 import constant.UIConstant;
 import data.DataSource;
+import utils.Metrics;
 
 import java.util.Arrays;
-import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * @author lomofu
@@ -16,6 +15,8 @@ import java.util.stream.Collectors;
  * This class deals with business logic related to promotion code records
  */
 public class PromotionCodeService {
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer TABLE_TIMER = Metrics.timer("service.promotion.table");
 
     /**
      * This method converses two dim arrays for table render
@@ -23,7 +24,8 @@ public class PromotionCodeService {
      * @return a two dim array
      */
     public static Object[][] findMembersForTableRender() {
-        return DataSource.getPromotionList().stream()
+        long start = System.nanoTime();
+        Object[][] rows = DataSource.getPromotionList().stream()
                 .map(e -> new Object[]{
                         e.getPromotionId(),
                         e.getPromotionCode(),
@@ -31,6 +33,8 @@ public class PromotionCodeService {
                         e.getValue()
                 })
                 .toArray(size -> new Object[size][UIConstant.PROMOTION_COLUMNS.length]);
+        TABLE_TIMER.stop(start, rows.length);
+        return rows;
     }
 
     public static void createNew(Promotion promotion) {
@@ -58,11 +62,7 @@ public class PromotionCodeService {
      * @return promotion details
      */
     public static Promotion findPromotionCodeById(String id) {
-        return DataSource.getPromotionList()
-                .stream()
-                .filter(e -> e.getPromotionId().equals(id))
-                .findFirst()
-                .get();
+        return DataSource.findPromotion(id).get();
     }
 
     /**
@@ -71,10 +71,6 @@ public class PromotionCodeService {
      * @param array promotions id array
      */
     public static void remove(String[] array) {
-        List<Promotion> consumptions = Arrays
-                .stream(array)
-                .map(PromotionCodeService::findPromotionCodeById)
-                .collect(Collectors.toList());
-        DataSource.remove(consumptions);
+        DataSource.removeAll(Promotion.class, Arrays.asList(array));
     }
 }
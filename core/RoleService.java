@@ -2,6 +2,7 @@ package core;
 
 import constant.UIConstant;
 import data.DataSource;
+import utils.Metrics;
 import dto.RoleDto;
 
 import java.util.Optional;
@@ -12,6 +13,9 @@ import java.util.Optional;
  * This class deals with business logic related to role list
  */
 public final class RoleService {
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer TABLE_TIMER = Metrics.timer("service.role.table");
+
     /**
      * This method add roleDto into data source
      *
@@ -28,8 +32,7 @@ public final class RoleService {
      * @return an option container with role information to handle NPE
      */
     public static Optional<RoleDto> findRoleDtoByIdOp(String roleId) {
-        return DataSource.getRoleList().stream().filter(e -> e.getRoleId().equals(roleId))
-                .findFirst();
+        return DataSource.findRole(roleId);
     }
 
     /**
@@ -40,9 +43,7 @@ public final class RoleService {
      * @return role details
      */
     public static RoleDto findRoleDtoById(String roleId) {
-        return DataSource.getRoleList().stream().filter(e -> e.getRoleId().equals(roleId))
-                .findFirst()
-                .get();
+        return DataSource.findRole(roleId).get();
     }
 
     /**
@@ -51,7 +52,8 @@ public final class RoleService {
      * @return a two dim array
      */
     public static Object[][] findRoles() {
-        return DataSource.getRoleList().stream()
+        long start = System.nanoTime();
+        Object[][] rows = DataSource.getRoleList().stream()
                 .map(e -> new Object[]{
                         e.getRoleId(),
                         e.getRoleName(),
@@ -64,6 +66,8 @@ public final class RoleService {
                         e.getCourseNameList()
                 })
                 .toArray(size -> new Object[size][UIConstant.ROLE_COLUMNS.length]);
+        TABLE_TIMER.stop(start, rows.length);
+        return rows;
     }
 
     /**
@@ -72,7 +76,8 @@ public final class RoleService {
      * @param roleDto roleDto object
      */
     public static void update(RoleDto roleDto) {
-        RoleDto roleDtoById = findRoleDtoById(roleDto.getRoleId());
+        // change a copy of the role, the stored one is shared by the readers and replaced by the update
+        RoleDto roleDtoById = new RoleDto(findRoleDtoById(roleDto.getRoleId()));
         roleDtoById.setRoleName(roleDto.getRoleName());
         roleDtoById.setOneMonth(roleDto.getOneMonth());
         roleDtoById.setThreeMonth(roleDto.getThreeMonth());
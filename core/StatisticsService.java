@@ -1,16 +1,8 @@
 package core;
 
 import bean.Statistics;
-import constant.CustomerSateEnum;
 import data.DataSource;
-import dto.CustomerDto;
-import dto.VisitorDto;
-import utils.DateUtil;
-
-import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.util.Date;
-import java.util.List;
+import utils.Metrics;
 
 /**
  * @author lomofu
@@ -18,59 +10,18 @@ import java.util.List;
  * This class deals with business logic related to data statistics records
  */
 public final class StatisticsService {
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer GET_TIMER = Metrics.timer("service.statistics.get");
 
     /**
-     * This method get some data statistics
+     * This method get some data statistics, they are the counters maintained by the data source
      *
      * @return statistics type
      */
     public static Statistics get() {
-        int users = DataSource.getCustomerList().size();
-        int visitors = DataSource.getVisitorDtoList()
-                .stream()
-                .filter(e -> DateUtil.isEqual(e.getDate(), LocalDate.now()))
-                .map(VisitorDto::getCount)
-                .findFirst()
-                .orElse(0);
-        long activeUser = calculateActiveUsers();
-        int courses = DataSource.getCourseList().size();
-        int promotions = DataSource.getPromotionList().size();
-        String fees = calculateTurnover();
-
-        Statistics statistics = new Statistics();
-        statistics.setUsers(users);
-        statistics.setActiveUsers((int) activeUser);
-        statistics.setFees(fees);
-        statistics.setVisitors(visitors);
-        statistics.setCourses(courses);
-        statistics.setPromotionCode(promotions);
+        long start = System.nanoTime();
+        Statistics statistics = DataSource.getStatistics();
+        GET_TIMER.stop(start);
         return statistics;
     }
-
-    /**
-     * This method is used to calculate the number of active members
-     *
-     * @return the count number of active members
-     */
-    public static long calculateActiveUsers() {
-        List<CustomerDto> customerList = DataSource.getCustomerList();
-        return customerList.stream()
-                .filter(e -> e.getState().equals(CustomerSateEnum.ACTIVE.getName()))
-                .distinct()
-                .count();
-    }
-
-    /**
-     * This method is used to calculate the turnover
-     *
-     * @return the turnover (String type)
-     */
-    public static String calculateTurnover() {
-        BigDecimal reduce = DataSource.getConsumptionList()
-                .stream()
-                .filter(e -> e.createTime().equals(DateUtil.format(new Date())))
-                .map(e -> new BigDecimal(e.fees()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        return reduce.toString();
-    }
 }
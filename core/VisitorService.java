@@ -1,8 +1,10 @@
 package core;
 
+import bean.Money;
 import data.DataSource;
 import dto.VisitorDto;
 import utils.DateUtil;
+import utils.Metrics;
 
 import java.time.LocalDate;
 import java.util.Optional;
@@ -13,20 +15,22 @@ import java.util.Optional;
  * This class deals with business logic related to visitor records
  */
 public final class VisitorService {
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer RECORD_TIMER = Metrics.timer("service.visitor.record");
 
     /**
-     * This method converses two dim arrays for table render
+     * This method gives the value of a visitor record in a column of the visitor table, see@UIConstant.VISITOR_COLUMNS
      *
-     * @return a two dim array
+     * @param e      the visitor record of one day
+     * @param column the column index
+     * @return the cell value
      */
-    public static Object[][] findVisitorsForTableRender() {
-        return DataSource.getVisitorDtoList()
-                .stream()
-                .map(e -> new Object[]{
-                        DateUtil.format(e.getDate()),
-                        e.getCount()
-                })
-                .toArray(Object[][]::new);
+    public static Object visitorTableValue(VisitorDto e, int column) {
+        return switch (column) {
+            case 0 -> DateUtil.formatDay(e.getDay());
+            case 1 -> e.getCount();
+            default -> null;
+        };
     }
 
     /**
@@ -35,12 +39,9 @@ public final class VisitorService {
      * @param memberId visitor id
      * @param fees     visit fee
      */
-    public static void saveVisitorRecord(String memberId, String fees) {
-        Optional<VisitorDto> visitorDtoOp = DataSource.getVisitorDtoList()
-                .stream()
-                .filter(e -> DateUtil.isEqual(e.getDate(), LocalDate.now()))
-                .distinct()
-                .findFirst();
+    public static void saveVisitorRecord(String memberId, Money fees) {
+        long start = System.nanoTime();
+        Optional<VisitorDto> visitorDtoOp = DataSource.findVisitor(DateUtil.now());
         VisitorDto visitorDto;
 
         // if there is no visitor data today, set today's visitor data to 1 and add it to the data source
@@ -49,9 +50,11 @@ public final class VisitorService {
             visitorDto.setCount(1);
             DataSource.add(visitorDto);
         } else {
-            // If today's visitor data is already exist, then increase the original visitor statistics by 1
-            visitorDto = visitorDtoOp.get();
-            visitorDto.setCount(visitorDto.getCount() + 1);
+            // If today's visitor data is already exist, then increase the original visitor statistics by 1, the
+            // stored one is shared by the readers, so a new one replaces it
+            visitorDto = new VisitorDto();
+            visitorDto.setDay(visitorDtoOp.get().getDay());
+            visitorDto.setCount(visitorDtoOp.get().getCount() + 1);
             DataSource.update(visitorDto);
         }
 
@@ -65,5 +68,6 @@ public final class VisitorService {
         } else {
             ConsumptionService.createNew(memberId, "Visitor", fees);
         }
+        RECORD_TIMER.stop(start);
     }
 }
@@ -0,0 +1,495 @@
+package data;
+
+import constant.DataManipulateEnum;
+import constant.DefaultDataConstant;
+import constant.FsyncPolicyEnum;
+import utils.CSVReader;
+import utils.CSVRowMapper;
+import utils.CSVUtil;
+import utils.Logger;
+import utils.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class is the append-only persistence of one csv file
+ * <p>
+ * 1. A new record is appended to the end of the file, an updated record is appended again, and a removed record
+ * appends a tombstone row. So each mutation only writes its own rows no matter how large the file is.
+ * 2. When loading, the rows with the same key are folded and the last one wins, the tombstone removes the key.
+ * 3. The whole file is only rewritten (compaction) when the dead rows cross the threshold.
+ * 4. All the writes of one file run in a single thread in the submit order, so they will never interleave.
+ * 5. Each mutation is written into the write-ahead log before it is appended, the rows in the log which are not in the
+ * file yet are folded when loading.
+ * 6. The appended rows are written behind. They wait in a buffer and a burst of them is written by one flush after a
+ * short delay, or at once when the buffer is full. The rows are already durable in the write-ahead log, so a crash
+ * before the flush loses nothing. A compaction drops the buffer, its rows are in the rewritten file.
+ *
+ * @param <T> the bean type which is read from the file
+ */
+final class CSVStore<T> {
+    // the first field of a tombstone row, the second field is the key of the removed record
+    static final String TOMBSTONE = "#deleted";
+    private static final byte[] LINE_BREAK = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NOTHING = new byte[0];
+    // the rows are the number of the appends written by one flush
+    private static final Metrics.Timer FLUSH_TIMER = Metrics.timer("csv.flush");
+
+    private final String file;
+    private final Path path;
+    private final CSVRowMapper<T> mapper;
+    private final Function<T, String> keyFunction;
+    private final WriteAheadLog wal;
+    private final ScheduledExecutorService executor;
+    // the number of the live records and the dead rows (superseded or tombstone) in the file
+    private int liveRows;
+    private int deadRows;
+    // the file has to be rewritten on next persistence, ex. the records are normalized after loading
+    private boolean compactionRequired;
+    // increased by each mutation, the snapshot uses it to find the changes during its writing
+    private long version;
+    // the appended rows waiting for the flush, and the number of the appends in it
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int pendingAppends;
+    // a flush is submitted, and it is the one submitted at once since the buffer is full
+    private boolean flushScheduled;
+    private boolean flushUrgent;
+    // increased by each compaction, the flushes submitted before a compaction have nothing to write
+    private long compactions;
+    // the compactions finished by the writer thread
+    private long compactionsWritten;
+    // only touched by the writer thread
+    private FileChannel channel;
+    private long lastForceTime;
+
+    CSVStore(String file, CSVRowMapper<T> mapper, Function<T, String> keyFunction, WriteAheadLog wal) {
+        this.file = file;
+        this.path = Paths.get(".", file);
+        this.mapper = mapper;
+        this.keyFunction = keyFunction;
+        this.wal = wal;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "csv-writer-" + file);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * load the file, create an empty one if it is not exist
+     *
+     * @return the live records
+     *
+     * @throws IOException if the file cannot be read
+     */
+    List<T> load() throws IOException {
+        if(! Files.exists(path)) {
+            CSVUtil.read(file, mapper);
+        }
+        return fold();
+    }
+
+    /**
+     * load the file, write the default values if it is not exist
+     *
+     * @param data the default values
+     *
+     * @return the live records
+     *
+     * @throws IOException if the file cannot be read
+     */
+    List<T> load(T[] data) throws IOException {
+        if(! Files.exists(path)) {
+            CSVUtil.read(file, mapper, data);
+        }
+        return fold();
+    }
+
+    /**
+     * load the file
+     *
+     * @param ignoreException if it is false, the missing file will throw an exception
+     *
+     * @return the live records
+     *
+     * @throws IOException if the file cannot be read or it is not exist
+     */
+    List<T> load(boolean ignoreException) throws IOException {
+        if(! Files.exists(path) && ! hasRecovered()) {
+            return CSVUtil.read(file, mapper, ignoreException);
+        }
+        return fold();
+    }
+
+    String getFile() {
+        return file;
+    }
+
+    /**
+     * Use the row counters of the snapshot instead of loading the file
+     *
+     * @param state the state of the file when the snapshot is taken
+     *
+     * @return false if the file is changed after the snapshot, or the write-ahead log has some rows of it
+     *
+     * @throws IOException if the file state cannot be read
+     */
+    synchronized boolean restore(Snapshot.FileState state) throws IOException {
+        if(hasRecovered() || ! Files.exists(path)
+                || Files.size(path) != state.size()
+                || Files.getLastModifiedTime(path).toMillis() != state.lastModified()) {
+            return false;
+        }
+        liveRows = state.liveRows();
+        deadRows = state.deadRows();
+        return true;
+    }
+
+    /**
+     * @return the number of the mutations so far
+     */
+    synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Read the state of the file, it should be invoked after the file is synced
+     *
+     * @param expectedVersion the version when the records are copied
+     *
+     * @return the file state, or null if there are some mutations after the records are copied, or the file has not
+     * been rewritten with the normalized records yet
+     *
+     * @throws IOException if the file state cannot be read
+     */
+    synchronized Snapshot.FileState fileState(long expectedVersion) throws IOException {
+        if(version != expectedVersion || compactionRequired || ! Files.exists(path)) {
+            return null;
+        }
+        return new Snapshot.FileState(Files.size(path), Files.getLastModifiedTime(path).toMillis(), liveRows,
+                deadRows);
+    }
+
+    /**
+     * @return the write-ahead log has some rows of this file, which may not in the file
+     */
+    boolean hasRecovered() {
+        return ! wal.recovered(file).isEmpty();
+    }
+
+    /**
+     * Read the rows and fold them by the key. The record without key is distinct by its equals method.
+     *
+     * @return the live records in the file order
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private List<T> fold() throws IOException {
+        Map<Object, T> records = new LinkedHashMap<>();
+        int rows = 0;
+        if(Files.exists(path)) {
+            try(CSVReader reader = new CSVReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+                rows += fold(reader, records);
+            }
+        }
+        // replay the rows of the write-ahead log on top of the file
+        List<String> recoveredRows = wal.recovered(file);
+        if(! recoveredRows.isEmpty()) {
+            try(CSVReader reader = new CSVReader(new StringReader(String.join("\n", recoveredRows)))) {
+                rows += fold(reader, records);
+            }
+        }
+        synchronized(this) {
+            liveRows = records.size();
+            deadRows = rows - liveRows;
+        }
+        return new ArrayList<>(records.values());
+    }
+
+    private int fold(CSVReader reader, Map<Object, T> records) throws IOException {
+        int rows = 0;
+        while(reader.readRow()) {
+            rows++;
+            if(TOMBSTONE.equals(reader.get(0))) {
+                records.remove(reader.get(1));
+                continue;
+            }
+            T t;
+            try {
+                t = mapper.map(reader);
+            } catch(RuntimeException ex) {
+                Logger.error(file + " line " + reader.getRowNumber() + ": " + ex.getMessage());
+                throw new RuntimeException("Cannot assign the value");
+            }
+            String key = keyFunction.apply(t);
+            if(key == null || key.isEmpty()) {
+                records.putIfAbsent(t, t);
+            } else {
+                records.put(key, t);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * let the next persistence rewrite the whole file
+     */
+    synchronized void requireCompaction() {
+        compactionRequired = true;
+    }
+
+    /**
+     * @return the dead rows cross the threshold, the file should be rewritten
+     */
+    synchronized boolean needsCompaction() {
+        return compactionRequired
+                || (deadRows >= DefaultDataConstant.COMPACTION_MIN_DEAD_ROWS
+                && deadRows > liveRows * DefaultDataConstant.COMPACTION_RATIO);
+    }
+
+    /**
+     * append the new records to the end of the file
+     *
+     * @param rows the records, their toString() is the csv row
+     */
+    synchronized void append(Collection<?> rows) {
+        version++;
+        liveRows += rows.size();
+        List<String> payloads = rows.stream().map(String::valueOf).toList();
+        wal.log(DataManipulateEnum.INSERT, file, payloads, () -> submit(encode(payloads)));
+    }
+
+    /**
+     * append the updated records, the old rows in the file become dead rows
+     *
+     * @param rows the records, their toString() is the csv row
+     */
+    synchronized void appendUpdate(Collection<?> rows) {
+        version++;
+        deadRows += rows.size();
+        List<String> payloads = rows.stream().map(String::valueOf).toList();
+        wal.log(DataManipulateEnum.UPDATE, file, payloads, () -> submit(encode(payloads)));
+    }
+
+    /**
+     * append the tombstones of the removed records
+     *
+     * @param keys the keys of the removed records
+     */
+    synchronized void appendRemove(Collection<String> keys) {
+        version++;
+        liveRows -= keys.size();
+        // both the removed row and the tombstone are dead
+        deadRows += keys.size() * 2;
+        wal.log(DataManipulateEnum.DELETE, file, keys,
+                () -> submit(encode(keys.stream().map(key -> TOMBSTONE + "," + key).toList())));
+    }
+
+    /**
+     * Rewrite the whole file with the live records. It writes a temporary file first and then replace the old one,
+     * so a crash will never leave a half written file.
+     *
+     * @param rows       the live records, an immutable view of the data source, so they are not copied in the lock
+     * @param comparator the order of the rows in the file, can be null
+     * @param <E>        the record type
+     */
+    synchronized <E> void compact(List<E> rows, Comparator<? super E> comparator) {
+        version++;
+        liveRows = rows.size();
+        deadRows = 0;
+        compactionRequired = false;
+        // the waiting rows are in the rewritten file
+        compactions++;
+        pending.reset();
+        pendingAppends = 0;
+        flushScheduled = false;
+        flushUrgent = false;
+        executor.execute(() -> {
+            List<E> snapshot = rows;
+            // the sort needs its own copy, it is made in the background
+            if(comparator != null) {
+                snapshot = new ArrayList<>(rows);
+                snapshot.sort(comparator);
+            }
+            String tempFile = file + ".tmp";
+            try {
+                closeChannel();
+                CSVUtil.write(tempFile, snapshot, "Save " + file);
+                // the rewritten file must be on the disk before it replaces the old one
+                forceFile(Paths.get(".", tempFile));
+                move(Paths.get(".", tempFile), path);
+            } catch(IOException | RuntimeException e) {
+                Logger.error("Cannot compact the " + file + ": " + e.getMessage());
+            }
+            synchronized(this) {
+                compactionsWritten++;
+            }
+        });
+    }
+
+    /**
+     * Write the waiting rows and force all the writes of the file to the disk, it is used by the checkpoint of the
+     * write-ahead log and the shutdown of the data source
+     *
+     * @return the future completes after the file is synced
+     */
+    CompletableFuture<Void> sync() {
+        CompletableFuture<Void> synced = new CompletableFuture<>();
+        executor.execute(() -> sync(synced));
+        return synced;
+    }
+
+    // only called by the writer thread
+    private void sync(CompletableFuture<Void> synced) {
+        long epoch;
+        synchronized(this) {
+            // the dropped rows are only in the compaction behind this task, wait for it
+            if(compactionsWritten != compactions) {
+                executor.execute(() -> sync(synced));
+                return;
+            }
+            epoch = compactions;
+        }
+        try {
+            flush(epoch);
+            if(channel != null) {
+                channel.force(false);
+            } else if(Files.exists(path)) {
+                forceFile(path);
+            }
+            synced.complete(null);
+        } catch(IOException e) {
+            synced.completeExceptionally(new RuntimeException("Cannot sync the " + file, e));
+        }
+    }
+
+    // put the rows into the buffer, it is called by the append methods or after the log of a transaction is written
+    private synchronized void submit(byte[] bytes) {
+        pending.writeBytes(bytes);
+        pendingAppends++;
+        long epoch = compactions;
+        if(pending.size() >= DefaultDataConstant.CSV_FLUSH_BYTES) {
+            // the delayed flush may be far away, do not let the buffer grow more
+            if(! flushUrgent) {
+                flushScheduled = true;
+                flushUrgent = true;
+                executor.execute(() -> flushQuietly(epoch));
+            }
+        } else if(! flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(() -> flushQuietly(epoch), DefaultDataConstant.CSV_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushQuietly(long epoch) {
+        try {
+            flush(epoch);
+        } catch(IOException e) {
+            Logger.error("Cannot append to the " + file + ": " + e.getMessage());
+        }
+    }
+
+    // write the waiting rows in one write, only called by the writer thread
+    private void flush(long epoch) throws IOException {
+        long start = System.nanoTime();
+        int appends;
+        byte[] bytes;
+        synchronized(this) {
+            if(epoch != compactions) {
+                return;
+            }
+            appends = pendingAppends;
+            bytes = pending.size() == 0 ? NOTHING : pending.toByteArray();
+            pending.reset();
+            pendingAppends = 0;
+            flushScheduled = false;
+            flushUrgent = false;
+        }
+        if(bytes.length == 0) {
+            return;
+        }
+        FileChannel fileChannel = channel();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while(buffer.hasRemaining()) {
+            fileChannel.write(buffer);
+        }
+        force(fileChannel);
+        FLUSH_TIMER.stop(start, appends);
+    }
+
+    private void force(FileChannel fileChannel) throws IOException {
+        FsyncPolicyEnum policy = DefaultDataConstant.FSYNC_POLICY;
+        long now = System.currentTimeMillis();
+        if(policy == FsyncPolicyEnum.ALWAYS || (policy == FsyncPolicyEnum.PERIODIC && now - lastForceTime >= 1000)) {
+            fileChannel.force(false);
+            lastForceTime = now;
+        }
+    }
+
+    // open the file at its end, and make sure the last row is ended with a line break
+    private FileChannel channel() throws IOException {
+        if(channel != null) {
+            return channel;
+        }
+        // only the writer thread writes the file, so keeping the position at the end works as the append mode
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = channel.size();
+        channel.position(size);
+        if(size > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+            if(last.get(0) != '\n' && last.get(0) != '\r') {
+                channel.write(ByteBuffer.wrap(LINE_BREAK));
+            }
+        }
+        return channel;
+    }
+
+    private void closeChannel() throws IOException {
+        if(channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private static void forceFile(Path target) throws IOException {
+        try(FileChannel fileChannel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            fileChannel.force(false);
+        }
+    }
+
+    static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static byte[] encode(Collection<?> rows) {
+        StringBuilder builder = new StringBuilder();
+        for(Object row : rows) {
+            builder.append(row).append(System.lineSeparator());
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -8,24 +8,35 @@ import constant.UIConstant;
 import dto.CustomerDto;
 import dto.RoleDto;
 import dto.VisitorDto;
-import ui.ClubFrameView;
+import ui.SplashView;
 import utils.CSVUtil;
 import utils.DateUtil;
+import utils.HeapEstimator;
 import utils.IDUtil;
 import utils.Logger;
+import utils.Metrics;
+import utils.Progress;
 
 import javax.swing.Timer;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.io.UncheckedIOException;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -33,104 +44,312 @@ import java.util.stream.Collectors;
  * <p>
  * 1. This class is a resposity to store the all system data we need
  * 2. Aslo, the datasoure is the observed, when there is a data change event. It will broadcast to the subscribers.
- * 3. It will automatically refresh the data each 1 hour to check the system has some expired members today or not.
- * and updatet the expiry state.
+ * The events are delivered by the event bus, a burst of changes is merged into one event of each subscriber.
+ * 3. It checks the expiry state of all the members once when it starts, after that the members are expired just
+ * after the midnight of their expiry day by the expiry queue, and each expired member gets its own update event.
  * 4. DataSource gives easy method to manger the data.
  * 5. It will automatically back up the data each 1 hour
+ * 6. Each list has a primary key hash index, so the point lookups do not need to scan the list
+ * 7. The consumptions are also indexed by the member id, and the customers by the parent id. These lookups cost the
+ * size of their result
+ * 8. The readers never see a list while it is changed. Each mutation publishes a new version of the immutable lists,
+ * see@DataVersion, so the getters and the table renders iterate them without the lock. The records of a published
+ * version are never changed either, an update replaces them by new objects
+ * 9. The mutations of one business operation can be applied together by a unit of work, see@UnitOfWork
  */
 @SuppressWarnings("unchecked")
 public class DataSource implements ActionListener {
-    // this blocking queue store each subscriber information which will be used when broadcast
-    private static final BlockingQueue<DataSourceChannelInfo> queue = new LinkedBlockingQueue<>();
+    // the subscribers by their observed type, and the events waiting to be delivered
+    private static final EventBus eventBus = new EventBus(DefaultDataConstant.EVENT_WINDOW_MILLIS);
+    // the dashboard does not read the event object, so all the statistics events share one
+    private static final Statistics STATISTICS = new Statistics();
     // store the promotions
-    private static List<Promotion> promotionList = new ArrayList<>();
+    private static final VersionedList<Promotion> promotionList = new VersionedList<>();
     // store the courses
-    private static List<Course> courseList = new ArrayList<>();
+    private static final VersionedList<Course> courseList = new VersionedList<>();
     // store the roles
-    private static List<RoleDto> roleList = new ArrayList<>();
+    private static final VersionedList<RoleDto> roleList = new VersionedList<>();
     // store the membership info
-    private static List<CustomerDto> customerList = new ArrayList<>();
+    private static final VersionedList<CustomerDto> customerList = new VersionedList<>();
     // store the consumption records
-    private static List<Consumption> consumptionList = new ArrayList<>();
+    private static final VersionedList<Consumption> consumptionList = new VersionedList<>();
     // store the visitors counts of every day
-    private static List<VisitorDto> visitorDtoList = new ArrayList<>();
+    private static final VersionedList<VisitorDto> visitorDtoList = new VersionedList<>();
+    // the lists read by the other threads, a new version is published after each mutation in the lock
+    private static volatile DataVersion version = DataVersion.EMPTY;
+    // the events of the unit of work being committed, null if there is no commit. They are published when it ends
+    private static List<EventBus.Event> committing;
+    // the dashboard counters, changed by each mutation in the same lock
+    private static final StatisticsCounter statisticsCounter = new StatisticsCounter(consumptionList::view);
+    // the active members in the order of their expiry day, changed by each mutation in the same lock
+    private static final ExpiryQueue expiryQueue = new ExpiryQueue();
+    // after each midnight, expire the due members first, then let the dashboard read the counters of the new day
+    private static final DayScheduler dayScheduler = new DayScheduler(
+            DataSource::expireMembers,
+            () -> broadcast(STATISTICS, DataManipulateEnum.UPDATE));
+
+    // the primary key indexes of each list, they are changed with the lists in the same lock
+    private static final Map<String, Promotion> promotionIndex = new ConcurrentHashMap<>();
+    private static final Map<String, Course> courseIndex = new ConcurrentHashMap<>();
+    private static final Map<String, RoleDto> roleIndex = new ConcurrentHashMap<>();
+    private static final Map<String, CustomerDto> customerIndex = new ConcurrentHashMap<>();
+    private static final Map<String, Consumption> consumptionIndex = new ConcurrentHashMap<>();
+    // the visitor records are indexed by the formatted date
+    private static final Map<String, VisitorDto> visitorIndex = new ConcurrentHashMap<>();
+    // the secondary indexes: member id -> consumptions, parent id -> family members
+    private static final Map<String, List<Consumption>> consumptionMemberIndex = new ConcurrentHashMap<>();
+    private static final Map<String, List<CustomerDto>> customerParentIndex = new ConcurrentHashMap<>();
+    // the parent id of each customer when it is indexed, used to move the customer when the parent changed
+    private static final Map<String, String> indexedParents = new ConcurrentHashMap<>();
+
+    // every mutation is written into the log before it is acknowledged
+    private static final WriteAheadLog wal = new WriteAheadLog(DefaultDataConstant.WAL_DIRECTORY);
+    // the append-only persistence of each csv file
+    private static final CSVStore<Promotion> promotionStore =
+            new CSVStore<>(DefaultDataConstant.PROMOTION_CSV_PATH, Promotion.CSV_MAPPER, Promotion::getPromotionId, wal);
+    private static final CSVStore<Course> courseStore =
+            new CSVStore<>(DefaultDataConstant.COURSE_CSV_PATH, Course.CSV_MAPPER, Course::getCourseId, wal);
+    private static final CSVStore<Role> roleStore =
+            new CSVStore<>(DefaultDataConstant.ROLE_CSV_PATH, Role.CSV_MAPPER, Role::getRoleId, wal);
+    private static final CSVStore<Customer> customerStore =
+            new CSVStore<>(DefaultDataConstant.CUSTOMER_CSV_PATH, Customer.CSV_MAPPER, Customer::getId, wal);
+    private static final CSVStore<Consumption> consumptionStore =
+            new CSVStore<>(DefaultDataConstant.CONSUMPTION_CSV_PATH, Consumption.CSV_MAPPER, Consumption::orderId, wal);
+    private static final CSVStore<Visitor> visitorStore =
+            new CSVStore<>(DefaultDataConstant.VISITOR_CSV_PATH, Visitor.CSV_MAPPER, Visitor::getDate, wal);
+
+    // the row order of each file when it is rewritten
+    private static final Comparator<CustomerDto> CUSTOMER_ORDER = Comparator.comparing(CustomerDto::getFirstName);
+    private static final Comparator<Consumption> CONSUMPTION_ORDER =
+            Comparator.comparing(Consumption::orderId).reversed();
+    private static final Comparator<RoleDto> ROLE_ORDER = Comparator.comparing(RoleDto::getRoleId);
+    private static final Comparator<Course> COURSE_ORDER = Comparator.comparing(Course::getCourseName);
+
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer INIT_TIMER = Metrics.timer("datasource.init");
+    private static final Metrics.Timer LOAD_TIMER = Metrics.timer("datasource.load");
+    private static final Metrics.Timer ADD_TIMER = Metrics.timer("datasource.add");
+    private static final Metrics.Timer UPDATE_TIMER = Metrics.timer("datasource.update");
+    private static final Metrics.Timer REMOVE_TIMER = Metrics.timer("datasource.remove");
+    private static final Metrics.Timer COMMIT_TIMER = Metrics.timer("datasource.commit");
+    private static final Metrics.Timer BACKUP_TIMER = Metrics.timer("datasource.backup");
+    private static final Metrics.Timer SNAPSHOT_TIMER = Metrics.timer("datasource.snapshot");
+    private static final Metrics.Counter BROADCASTS = Metrics.counter("datasource.broadcast");
+    // the number of the records measured to estimate the heap of a list
+    private static final int HEAP_SAMPLES = 64;
+
+    static {
+        listMetrics("promotions", () -> version.promotions());
+        listMetrics("courses", () -> version.courses());
+        listMetrics("roles", () -> version.roles());
+        listMetrics("customers", () -> version.customers());
+        listMetrics("consumptions", () -> version.consumptions());
+        listMetrics("visitors", () -> version.visitors());
+        Runtime.getRuntime().addShutdownHook(new Thread(DataSource::flush, "datasource-shutdown"));
+    }
 
     public DataSource() {
-        refreshJob();
+        refresh();
+        backupJob();
     }
 
-    // init the data source when load the ui before
+    /**
+     * init the data source when load the ui before, it should not be invoked in the event dispatch thread
+     * <p>
+     * The files are loaded in parallel by their dependencies: the promotions, consumptions, visitors and courses have
+     * no dependency and are loaded at the same time, the roles wait for the courses and the customers wait for the
+     * roles. So the loading time is bounded by the slowest chain, not the sum of all files.
+     * <p>
+     * The customers and the consumptions are taken from the binary snapshot if their csv files are not changed after
+     * it, otherwise the csv files are loaded.
+     */
     public static void init() {
         Logger.banner();
+        long start = System.nanoTime();
+        ExecutorService loader = Executors.newFixedThreadPool(4, r -> {
+            Thread thread = new Thread(r, "datasource-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
         try {
-            readPromotionList();
-            readCourseList();
-            readRoleList();
-            readCustomerList();
-            readConsumptionList();
-            readVisitorList();
+            // replay the log on top of the csv files
+            wal.recover();
+            AtomicInteger loaded = new AtomicInteger();
+            CompletableFuture<Snapshot> snapshot =
+                    CompletableFuture.supplyAsync(() -> Snapshot.open(DefaultDataConstant.SNAPSHOT_PATH), loader);
+            CompletableFuture<Void> promotions = CompletableFuture.runAsync(
+                    timed(DefaultDataConstant.PROMOTION_CSV_PATH, DataSource::readPromotionList, () -> version.promotions(), loaded), loader);
+            CompletableFuture<Void> consumptions = snapshot.thenRunAsync(
+                    timed(DefaultDataConstant.CONSUMPTION_CSV_PATH, () -> readConsumptionList(snapshot.join()), () -> version.consumptions(), loaded), loader);
+            CompletableFuture<Void> visitors = CompletableFuture.runAsync(
+                    timed(DefaultDataConstant.VISITOR_CSV_PATH, DataSource::readVisitorList, () -> version.visitors(), loaded), loader);
+            // the roles need the courses, and the customers need the roles
+            CompletableFuture<Void> customers = CompletableFuture.runAsync(
+                            timed(DefaultDataConstant.COURSE_CSV_PATH, DataSource::readCourseList, () -> version.courses(), loaded), loader)
+                    .thenRunAsync(timed(DefaultDataConstant.ROLE_CSV_PATH, DataSource::readRoleList, () -> version.roles(), loaded), loader)
+                    .runAfterBothAsync(snapshot, timed(DefaultDataConstant.CUSTOMER_CSV_PATH, () -> readCustomerList(snapshot.join()), () -> version.customers(), loaded), loader);
+            CompletableFuture.allOf(promotions, consumptions, visitors, customers).join();
+            checkpointRecoveredFiles();
+            synchronized(DataSource.class) {
+                statisticsCounter.reset(customerList.view(), courseList.view().size(), promotionList.view().size());
+                expiryQueue.reset(customerList.view());
+            }
+            INIT_TIMER.stop(start);
+            Logger.info("Data source loaded", "ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch(CompletionException e) {
+            // the io exception is wrapped by the timed task
+            if(! (e.getCause() instanceof UncheckedIOException)) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+            loadFailed(e.getCause().getCause());
         } catch(IOException e) {
-            Logger.error(e.getMessage());
-            JOptionPane.showMessageDialog(null, """
-                    We are sorry there exist some error when loading the file
-                                        
-                    Suggestion:
-                    1. Please use the files in the backup folder to cover the old file.
-                    2. Or TRY TO DELETE, BUT THE DATA WILL BE LOST.
-                    """, "Error", JOptionPane.ERROR_MESSAGE);
+            loadFailed(e);
+        } finally {
+            loader.shutdown();
         }
     }
 
+    /**
+     * Wrap a loading task, it records the time and reports the progress to the splash view
+     *
+     * @param file   the file name
+     * @param task   the loading task
+     * @param result the loaded list
+     * @param loaded the number of the loaded files
+     *
+     * @return the runnable task
+     */
+    private static Runnable timed(String file, LoadTask task, Supplier<List<?>> result, AtomicInteger loaded) {
+        return () -> {
+            long start = System.nanoTime();
+            Progress.Job job = Progress.start("Load " + file, 0);
+            try {
+                task.load();
+                job.step(result.get().size());
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                job.finish();
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            int rows = result.get().size();
+            LOAD_TIMER.stop(start, rows);
+            Logger.info("Loaded " + file, "rows", rows, "ms", millis);
+            SplashView.progress(loaded.incrementAndGet() + "/6 Loaded " + file + " (" + rows + " rows) in " + millis + " ms");
+        };
+    }
+
+    private static void loadFailed(Throwable e) {
+        Logger.error(e.getMessage());
+        JOptionPane.showMessageDialog(null, """
+                We are sorry there exist some error when loading the file
+                                    
+                Suggestion:
+                1. Please use the files in the backup folder to cover the old file.
+                2. Or TRY TO DELETE, BUT THE DATA WILL BE LOST.
+                """, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+
+    // a loading step which reads a file
+    @FunctionalInterface
+    private interface LoadTask {
+        void load() throws IOException;
+    }
+
+    /**
+     * The replayed records only exist in the log and memory, rewrite these files and then start a checkpoint,
+     * so the log can be cleared
+     */
+    private static void checkpointRecoveredFiles() {
+        if(promotionStore.hasRecovered()) {
+            promotionStore.compact(promotionList.view(), null);
+        }
+        if(courseStore.hasRecovered()) {
+            courseStore.compact(courseList.view(), COURSE_ORDER);
+        }
+        if(roleStore.hasRecovered()) {
+            roleStore.compact(roleList.view(), ROLE_ORDER);
+        }
+        if(customerStore.hasRecovered()) {
+            customerStore.compact(customerList.view(), CUSTOMER_ORDER);
+        }
+        if(consumptionStore.hasRecovered()) {
+            consumptionStore.compact(consumptionList.view(), CONSUMPTION_ORDER);
+        }
+        if(visitorStore.hasRecovered()) {
+            visitorStore.compact(visitorDtoList.view(), null);
+        }
+        checkpoint();
+    }
+
     private static void readPromotionList() throws IOException {
-        promotionList = CSVUtil.read(DefaultDataConstant.PROMOTION_CSV_PATH, Promotion.class);
+        index(promotionIndex, load(promotionList, promotionStore.load()), Promotion::getPromotionId);
     }
 
     private static void readCourseList() throws IOException {
-        courseList = CSVUtil.read(DefaultDataConstant.COURSE_CSV_PATH, Course.class, DefaultDataConstant.DEFAULT_COURSES);
+        index(courseIndex, load(courseList, courseStore.load(DefaultDataConstant.DEFAULT_COURSES)), Course::getCourseId);
     }
 
-    private static void readConsumptionList() throws IOException {
-        consumptionList = CSVUtil.read(DefaultDataConstant.CONSUMPTION_CSV_PATH, Consumption.class);
+    private static void readConsumptionList(Snapshot snapshot) throws IOException {
+        List<Consumption> consumptions = load(consumptionList, snapshot != null && snapshot.restore(consumptionStore)
+                ? snapshot.consumptions()
+                : consumptionStore.load());
+        index(consumptionIndex, consumptions, Consumption::orderId);
+        consumptionMemberIndex.clear();
+        consumptions.forEach(e -> addTo(consumptionMemberIndex, e.memberId(), e));
     }
 
     private static void readVisitorList() throws IOException {
-        visitorDtoList = CSVUtil.read(DefaultDataConstant.VISITOR_CSV_PATH, Visitor.class)
+        List<VisitorDto> visitors = visitorStore.load()
                 .stream()
                 // use the map to converse to a visitor dto
                 .map(e -> {
                     VisitorDto visitorDto = new VisitorDto();
-                    visitorDto.setDate(DateUtil.str2Date(e.getDate()));
+                    visitorDto.setDay(DateUtil.parseDay(e.getDate()));
                     visitorDto.setCount(Integer.parseInt(e.getCount()));
                     return visitorDto;
                 })
                 .collect(Collectors.toList());
+        index(visitorIndex, load(visitorDtoList, visitors), e -> DateUtil.formatDay(e.getDay()));
     }
 
     private static void readRoleList() throws IOException {
-        roleList = CSVUtil.read(DefaultDataConstant.ROLE_CSV_PATH, Role.class, DefaultDataConstant.DEFAULT_MEMBERS)
+        List<RoleDto> roles = roleStore.load(DefaultDataConstant.DEFAULT_MEMBERS)
                 .stream()
                 // use the builder to build a new role dto
                 .map(e -> new RoleDto.Builder()
                         .roleId(e.getRoleId())
                         .roleName(e.getRoleName())
-                        .oneMonth(new BigDecimal(e.getOneMonth()))
-                        .threeMonth(new BigDecimal(e.getThreeMonth()))
-                        .halfYear(new BigDecimal(e.getHalfYear()))
-                        .fullYear(new BigDecimal(e.getFullYear()))
+                        .oneMonth(Money.parse(e.getOneMonth()))
+                        .threeMonth(Money.parse(e.getThreeMonth()))
+                        .halfYear(Money.parse(e.getHalfYear()))
+                        .fullYear(Money.parse(e.getFullYear()))
                         .gym("true".equals(e.getGym()))
                         .swimmingPool("true".equals(e.getSwimmingPool()))
                         .courseList(DataSourceHandler.findCoursesByCourseName(e.getCourseList()))
                         .build())
                 .collect(Collectors.toList());
+        index(roleIndex, load(roleList, roles), RoleDto::getRoleId);
+    }
+
+    private static void readCustomerList(Snapshot snapshot) throws IOException {
+        List<CustomerDto> customers = load(customerList, snapshot != null && snapshot.restore(customerStore)
+                ? snapshot.customers(DataSourceHandler::findRoleDtoById)
+                : readCustomerList());
+        index(customerIndex, customers, CustomerDto::getId);
+        customerParentIndex.clear();
+        indexedParents.clear();
+        customers.forEach(DataSource::indexParent);
     }
 
-    private static void readCustomerList() throws IOException {
-        customerList =
-                CSVUtil.read(DefaultDataConstant.CUSTOMER_CSV_PATH, Customer.class, false).stream()
+    private static List<CustomerDto> readCustomerList() throws IOException {
+        return customerStore.load(false).stream()
                         .peek(e -> {
                             // cover the original file that missing some value in fields
                             if("".equals(e.getId())) {
                                 e.setId(IDUtil.generateUUID());
+                                // the generated id only exists in memory, so the file has to be rewritten once
+                                customerStore.requireCompaction();
                             }
                             if(! "".equals(e.getDateOfBirth())) {
                                 e.setDateOfBirth(DateUtil.format(e.getDateOfBirth()));
@@ -150,12 +369,12 @@ public class DataSource implements ActionListener {
                                 .id(e.getId())
                                 .firstName(e.getFirstName())
                                 .lastName(e.getLastName())
-                                .dateOfBirth(DateUtil.str2Date(e.getDateOfBirth()))
+                                .birthDay(DateUtil.parseDay(e.getDateOfBirth()))
                                 .gender(e.getGender())
-                                .fees(new BigDecimal(e.getFees()))
+                                .fees(Money.parse(e.getFees()))
                                 .healthCondition(e.getHealthCondition())
-                                .startDate(DateUtil.str2Date(e.getStartDate()))
-                                .expireTime(DateUtil.str2Date(e.getExpireTime()))
+                                .startDay(DateUtil.parseDay(e.getStartDate()))
+                                .expireDay(DateUtil.parseDay(e.getExpireTime()))
                                 .homeAddress(e.getHomeAddress())
                                 .phoneNumber(e.getPhoneNumber())
                                 .duration(Integer.parseInt(e.getDuration()))
@@ -165,11 +384,11 @@ public class DataSource implements ActionListener {
                                 .build())
                         // use the peek to cover the age calculation
                         .peek(e -> {
-                            e.setAge(DateUtil.calculateAge(e.getDateOfBirth()));
+                            e.setAge(DateUtil.calculateAge(e.getBirthDay()));
                             // to make sure the membership correctly state
                             if(Objects.isNull(e.getState()) || "".equals(e.getState())) {
-                                if(Objects.nonNull(e.getStartDate()) && Objects.nonNull(e.getExpireTime())) {
-                                    boolean before = DateUtil.isBefore(e.getExpireTime(), LocalDate.now());
+                                if(e.getStartDay() != DateUtil.NO_DAY && e.getExpireDay() != DateUtil.NO_DAY) {
+                                    boolean before = e.getExpireDay() <= DateUtil.today();
                                     if(before) {
                                         e.setState(CustomerSateEnum.EXPIRED.getName());
                                     } else {
@@ -182,41 +401,174 @@ public class DataSource implements ActionListener {
                         .collect(Collectors.toList());
     }
 
-    // getter
+    /**
+     * Replace the records of a list by the loaded ones and publish them, the loaders of the other files may read it
+     *
+     * @param list    the list of the data source
+     * @param records the loaded records
+     * @param <E>     the record type
+     *
+     * @return the immutable view of the loaded records
+     */
+    private static <E> List<E> load(VersionedList<E> list, List<E> records) {
+        synchronized(DataSource.class) {
+            list.reset(records);
+            publish();
+            return list.view();
+        }
+    }
+
+    // publish a new version of the lists, it should be called in the lock after each mutation
+    private static void publish() {
+        version = new DataVersion(version.version() + 1, promotionList.view(), courseList.view(), roleList.view(),
+                customerList.view(), consumptionList.view(), visitorDtoList.view());
+    }
+
+    // put the customer into the family index, and remember its parent
+    private static void indexParent(CustomerDto customerDto) {
+        String parentId = Objects.toString(customerDto.getParent(), "");
+        indexedParents.put(customerDto.getId(), parentId);
+        addTo(customerParentIndex, parentId, customerDto);
+    }
+
+    // remove the customer from the family index by its remembered parent
+    private static void unindexParent(String id) {
+        String parentId = indexedParents.remove(id);
+        removeFrom(customerParentIndex, parentId, e -> e.getId().equals(id));
+    }
+
+    private static <E> void addTo(Map<String, List<E>> index, String key, E e) {
+        // the empty key means no parent or no member, it is never looked up
+        if(key == null || key.isEmpty()) {
+            return;
+        }
+        index.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(e);
+    }
+
+    private static <E> void removeFrom(Map<String, List<E>> index, String key, Predicate<E> filter) {
+        if(key == null || key.isEmpty()) {
+            return;
+        }
+        index.computeIfPresent(key, (k, list) -> {
+            list.removeIf(filter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    // rebuild the index of a loaded list
+    private static <E> void index(Map<String, E> index, List<E> list, Function<E, String> keyFunction) {
+        index.clear();
+        for(E e : list) {
+            index.put(keyFunction.apply(e), e);
+        }
+    }
+
+    /**
+     * The current version of all the lists, the lists of one version are consistent with each other
+     *
+     * @return the immutable lists, they never change after they are returned
+     */
+    public static DataVersion version() {
+        return version;
+    }
+
+    // getter, each of them returns the immutable list of the current version
     public static List<RoleDto> getRoleList() {
-        return roleList;
+        return version.roles();
     }
 
     public static List<Course> getCourseList() {
-        return courseList;
+        return version.courses();
     }
 
     public static List<CustomerDto> getCustomerList() {
-        return customerList;
+        return version.customers();
     }
 
     public static List<Consumption> getConsumptionList() {
-        return consumptionList;
+        return version.consumptions();
     }
 
     public static List<Promotion> getPromotionList() {
-        return promotionList;
+        return version.promotions();
     }
 
     public static List<VisitorDto> getVisitorDtoList() {
-        return visitorDtoList;
+        return version.visitors();
+    }
+
+    // the point lookups by the primary key, they are O(1) and lock-free
+    public static Optional<CustomerDto> findCustomer(String id) {
+        return Optional.ofNullable(id).map(customerIndex::get);
+    }
+
+    public static Optional<RoleDto> findRole(String roleId) {
+        return Optional.ofNullable(roleId).map(roleIndex::get);
+    }
+
+    public static Optional<Course> findCourse(String courseId) {
+        return Optional.ofNullable(courseId).map(courseIndex::get);
+    }
+
+    public static Optional<Promotion> findPromotion(String promotionId) {
+        return Optional.ofNullable(promotionId).map(promotionIndex::get);
+    }
+
+    public static Optional<Consumption> findConsumption(String orderId) {
+        return Optional.ofNullable(orderId).map(consumptionIndex::get);
+    }
+
+    /**
+     * find the consumptions of a member by the secondary index
+     *
+     * @param memberId member id
+     *
+     * @return a copy of the consumptions, the cost is the size of the result
+     */
+    public static List<Consumption> findConsumptionsByMember(String memberId) {
+        return List.copyOf(consumptionMemberIndex.getOrDefault(Objects.toString(memberId, ""), List.of()));
+    }
+
+    /**
+     * find the family members of a main account by the secondary index
+     *
+     * @param parentId the main account id
+     *
+     * @return a copy of the family members, the cost is the size of the result
+     */
+    public static List<CustomerDto> findFamilyMembers(String parentId) {
+        return List.copyOf(customerParentIndex.getOrDefault(Objects.toString(parentId, ""), List.of()));
+    }
+
+    /**
+     * find the visitor record of a day
+     *
+     * @param date the date with the format dd/MM/yyyy, see@DateUtil.format
+     *
+     * @return optional container
+     */
+    public static Optional<VisitorDto> findVisitor(String date) {
+        return Optional.ofNullable(date).map(visitorIndex::get);
     }
 
     /**
-     * execute this method when call subscribe method. It will put the subscribers' info in the blocking queue
+     * The counters of the dashboard, they are maintained by each mutation so this method does not scan the lists
+     *
+     * @return a copy of the counters
+     */
+    public static synchronized Statistics getStatistics() {
+        int visitors = findVisitor(DateUtil.now()).map(VisitorDto::getCount).orElse(0);
+        return statisticsCounter.snapshot(visitors);
+    }
+
+    /**
+     * execute this method when call subscribe method. It will register the subscriber by its observed type
      *
      * @param channelInfo the subscriber info including the which data type they observer, the reference address,
      *                    cuz we will execute it onDataChange method when broadcast
      */
-    public static void subscribe(DataSourceChannelInfo channelInfo) {
-        // if the queue is full
-        if(! queue.offer(channelInfo))
-            throw new RuntimeException("Cannot subscribe datasource");
+    public static void subscribe(DataSourceChannelInfo<?> channelInfo) {
+        eventBus.subscribe(channelInfo.gettClass(), channelInfo.getDataSourceChannel());
     }
 
     /**
@@ -228,51 +580,74 @@ public class DataSource implements ActionListener {
      * @param <T> the generic type
      */
     public static <T> void add(T t) {
+        mutate(() -> addRecord(t), ADD_TIMER, 0);
+    }
+
+    private static <T> void addRecord(T t) {
         // use the instanceof to decide which type it is and do correspond strategy
         if(t instanceof CustomerDto customerDto) {
             customerList.add(customerDto);
-            // save & broadcast
-            save(DefaultDataConstant.CUSTOMER_CSV_PATH, "customer");
-            broadcast(customerDto, DataManipulateEnum.INSERT);
+            customerIndex.put(customerDto.getId(), customerDto);
+            indexParent(customerDto);
+            statisticsCounter.customerAdded(customerDto);
+            expiryQueue.schedule(customerDto);
+            // append & broadcast
+            customerStore.append(List.of(customerDto));
+            compactIfNeeded(customerStore, customerList.view(), CUSTOMER_ORDER);
+            broadcast(customerDto, DataManipulateEnum.INSERT, keys(customerDto.getId()));
         }
 
         if(t instanceof Consumption consumption) {
             consumptionList.add(consumption);
-            // save & broadcast
-            save(DefaultDataConstant.CONSUMPTION_CSV_PATH, "consumption");
-            broadcast(consumption, DataManipulateEnum.INSERT);
+            consumptionIndex.put(consumption.orderId(), consumption);
+            addTo(consumptionMemberIndex, consumption.memberId(), consumption);
+            statisticsCounter.consumptionAdded(consumption);
+            // append & broadcast
+            consumptionStore.append(List.of(consumption));
+            compactIfNeeded(consumptionStore, consumptionList.view(), CONSUMPTION_ORDER);
+            broadcast(consumption, DataManipulateEnum.INSERT, keys(consumption.orderId()));
         }
 
         if(t instanceof RoleDto roleDto) {
             roleList.add(roleDto);
-            // save & broadcast
-            save(DefaultDataConstant.ROLE_CSV_PATH, "role");
-            broadcast(roleDto, DataManipulateEnum.INSERT);
+            roleIndex.put(roleDto.getRoleId(), roleDto);
+            // append & broadcast
+            roleStore.append(List.of(roleDto));
+            compactIfNeeded(roleStore, roleList.view(), ROLE_ORDER);
+            broadcast(roleDto, DataManipulateEnum.INSERT, keys(roleDto.getRoleId()));
         }
 
         if(t instanceof Course course) {
             courseList.add(course);
-            // save & broadcast
-            save(DefaultDataConstant.COURSE_CSV_PATH, "course");
-            broadcast(course, DataManipulateEnum.INSERT);
+            courseIndex.put(course.getCourseId(), course);
+            statisticsCounter.coursesChanged(1);
+            // append & broadcast
+            courseStore.append(List.of(course));
+            compactIfNeeded(courseStore, courseList.view(), COURSE_ORDER);
+            broadcast(course, DataManipulateEnum.INSERT, keys(course.getCourseId()));
         }
 
         if(t instanceof Promotion promotion) {
             promotionList.add(promotion);
-            // save & broadcast
-            save(DefaultDataConstant.PROMOTION_CSV_PATH, "promotion");
-            broadcast(promotion, DataManipulateEnum.INSERT);
+            promotionIndex.put(promotion.getPromotionId(), promotion);
+            statisticsCounter.promotionsChanged(1);
+            // append & broadcast
+            promotionStore.append(List.of(promotion));
+            compactIfNeeded(promotionStore, promotionList.view(), null);
+            broadcast(promotion, DataManipulateEnum.INSERT, keys(promotion.getPromotionId()));
         }
 
         if(t instanceof VisitorDto visitorDto) {
             visitorDtoList.add(visitorDto);
-            // save & broadcast
-            save(DefaultDataConstant.VISITOR_CSV_PATH, "visitor");
-            broadcast(visitorDto, DataManipulateEnum.INSERT);
+            visitorIndex.put(DateUtil.formatDay(visitorDto.getDay()), visitorDto);
+            // append & broadcast
+            visitorStore.append(List.of(visitorDto));
+            compactIfNeeded(visitorStore, visitorDtoList.view(), null);
+            broadcast(visitorDto, DataManipulateEnum.INSERT, keys(DateUtil.formatDay(visitorDto.getDay())));
         }
 
         // broadcast the subscribers with statistic data and action flag
-        broadcast(new Statistics(), DataManipulateEnum.INSERT);
+        broadcast(STATISTICS, DataManipulateEnum.INSERT);
     }
 
     /**
@@ -280,93 +655,435 @@ public class DataSource implements ActionListener {
      * 1. it will store the corresponding type list into file
      * 2. broadcast who subscribe this type and execute their onDataChangeMethod
      * <p>
-     * Important, the remove is not directly remove the element from the collection/
-     * It will filter it and create a new array and assign it address.
+     * It takes the keys of the removed objects and calls the removeAll method
      *
      * @param list the list of object need to be removed
      * @param <T>  the generic type
      */
     public static <T> void remove(List<T> list) {
+        if(list.isEmpty()) {
+            return;
+        }
         // use the first element of the list to device which type it is
-        if(list.get(0) instanceof CustomerDto customerDto) {
-            for(T t : list) {
-                CustomerDto dto = (CustomerDto) t;
-                customerList = customerList
-                        .stream()
-                        // filter and create a new list
-                        .filter(e -> ! e.getId().equals(dto.getId()))
-                        .collect(Collectors.toList());
+        if(list.get(0) instanceof CustomerDto) {
+            removeAll(CustomerDto.class, list.stream().map(e -> ((CustomerDto) e).getId()).toList());
+        }
+        if(list.get(0) instanceof Consumption) {
+            removeAll(Consumption.class, list.stream().map(e -> ((Consumption) e).orderId()).toList());
+        }
+        if(list.get(0) instanceof Promotion) {
+            removeAll(Promotion.class, list.stream().map(e -> ((Promotion) e).getPromotionId()).toList());
+        }
+    }
+
+    /**
+     * The batch delete of a type
+     * 1. it filters the list only once and creates a new list, the old versions are never changed so the readers of
+     * them are safe
+     * 2. the tombstones of all the keys are appended to the file together
+     * 3. broadcast only one delete event which carries the removed keys
+     *
+     * @param tClass the type of the objects, CustomerDto, Consumption or Promotion
+     * @param keys   the primary keys of the removed objects
+     * @param <T>    the generic type
+     */
+    public static <T> void removeAll(Class<T> tClass, Collection<String> keys) {
+        mutate(() -> removeRecords(tClass, keys), REMOVE_TIMER, keys.size());
+    }
+
+    private static <T> void removeRecords(Class<T> tClass, Collection<String> keys) {
+        Set<String> keySet = new HashSet<>(keys);
+        if(keySet.isEmpty()) {
+            return;
+        }
+
+        if(tClass == CustomerDto.class) {
+            List<CustomerDto> removed = new ArrayList<>(keySet.size());
+            customerList.reset(partition(customerList.view(), keySet, CustomerDto::getId, removed));
+            if(removed.isEmpty()) {
+                return;
             }
-            // save & broadcast
-            save(DefaultDataConstant.CUSTOMER_CSV_PATH, "customer");
-            broadcast(customerDto, DataManipulateEnum.DELETE);
+            List<String> removedKeys = removed.stream().map(CustomerDto::getId).toList();
+            removedKeys.forEach(customerIndex::remove);
+            removedKeys.forEach(DataSource::unindexParent);
+            removed.forEach(statisticsCounter::customerRemoved);
+            removedKeys.forEach(expiryQueue::cancel);
+            // append the tombstones & broadcast
+            customerStore.appendRemove(removedKeys);
+            compactIfNeeded(customerStore, customerList.view(), CUSTOMER_ORDER);
+            broadcast(removed.get(0), DataManipulateEnum.DELETE, new HashSet<>(removedKeys));
         }
 
         // same to before
-        if(list.get(0) instanceof Consumption consumption) {
-            for(T t : list) {
-                Consumption c = (Consumption) t;
-                consumptionList = consumptionList.stream()
-                        .filter(e -> ! e.orderId().equals(c.orderId()))
-                        .collect(Collectors.toList());
+        if(tClass == Consumption.class) {
+            List<Consumption> removed = new ArrayList<>(keySet.size());
+            consumptionList.reset(partition(consumptionList.view(), keySet, Consumption::orderId, removed));
+            if(removed.isEmpty()) {
+                return;
             }
-            save(DefaultDataConstant.CONSUMPTION_CSV_PATH, "consumption");
-            broadcast(consumption, DataManipulateEnum.DELETE);
+            List<String> removedKeys = removed.stream().map(Consumption::orderId).toList();
+            removedKeys.forEach(consumptionIndex::remove);
+            removed.forEach(c -> removeFrom(consumptionMemberIndex, c.memberId(), e -> e.orderId().equals(c.orderId())));
+            removed.forEach(statisticsCounter::consumptionRemoved);
+            consumptionStore.appendRemove(removedKeys);
+            compactIfNeeded(consumptionStore, consumptionList.view(), CONSUMPTION_ORDER);
+            broadcast(removed.get(0), DataManipulateEnum.DELETE, new HashSet<>(removedKeys));
         }
 
         // same to before
-        if(list.get(0) instanceof Promotion promotion) {
-            for(T t : list) {
-                Promotion p = (Promotion) t;
-                promotionList = promotionList.stream()
-                        .filter(e -> ! e.getPromotionId().equals(p.getPromotionId()))
-                        .collect(Collectors.toList());
+        if(tClass == Promotion.class) {
+            List<Promotion> removed = new ArrayList<>(keySet.size());
+            promotionList.reset(partition(promotionList.view(), keySet, Promotion::getPromotionId, removed));
+            if(removed.isEmpty()) {
+                return;
             }
-            save(DefaultDataConstant.PROMOTION_CSV_PATH, "promotion");
-            broadcast(promotion, DataManipulateEnum.DELETE);
+            List<String> removedKeys = removed.stream().map(Promotion::getPromotionId).toList();
+            removedKeys.forEach(promotionIndex::remove);
+            statisticsCounter.promotionsChanged(- removed.size());
+            promotionStore.appendRemove(removedKeys);
+            compactIfNeeded(promotionStore, promotionList.view(), null);
+            broadcast(removed.get(0), DataManipulateEnum.DELETE, new HashSet<>(removedKeys));
         }
 
         // broadcast the subscribers with statistic data and action flag
-        broadcast(new Statistics(), DataManipulateEnum.DELETE);
+        broadcast(STATISTICS, DataManipulateEnum.DELETE);
+    }
+
+    /**
+     * Start a unit of work, the mutations staged in it are applied together by its commit method
+     *
+     * @return a new unit of work
+     */
+    public static UnitOfWork begin() {
+        return new UnitOfWork();
+    }
+
+    /**
+     * Apply the staged mutations of a unit of work
+     * 1. all of them are checked first, a mutation without the key or of an unknown type rejects the whole unit
+     * 2. they are applied in their order just like the add, update & removeAll methods
+     * 3. their records are written into the write-ahead log as one record
+     * 4. only one new version of the lists is published, and the events are published together after all of them
+     * 5. if one of them fails, the lists, the indexes and the counters are put back to the version before the commit,
+     * and nothing is published or written
+     * 6. the files are compacted and the log is checkpointed after the commit
+     * 7. the batch record is waited out of the lock like the other mutations
+     *
+     * @param changes the staged mutations
+     *
+     * @throws IllegalArgumentException if a mutation cannot be applied, nothing is changed then
+     */
+    static void commit(List<UnitOfWork.Change> changes) {
+        long start = System.nanoTime();
+        try {
+            changes.forEach(DataSource::validate);
+            synchronized(DataSource.class) {
+                // the published version is always the current lists in the lock
+                DataVersion before = version;
+                long[] storeVersions = stores().stream().mapToLong(CSVStore::version).toArray();
+                committing = new ArrayList<>();
+                try {
+                    wal.transaction(() -> {
+                        for(UnitOfWork.Change change : changes) {
+                            switch(change.action()) {
+                                case INSERT -> addRecord(change.record());
+                                case UPDATE -> updateRecord(change.record());
+                                case DELETE -> removeRecords(change.type(), change.keys());
+                            }
+                        }
+                    });
+                    List<EventBus.Event> events = committing;
+                    committing = null;
+                    publish();
+                    eventBus.publishAll(events);
+                } catch(RuntimeException e) {
+                    committing = null;
+                    rollback(before, storeVersions);
+                    throw e;
+                } finally {
+                    compactIfNeeded(promotionStore, promotionList.view(), null);
+                    compactIfNeeded(courseStore, courseList.view(), COURSE_ORDER);
+                    compactIfNeeded(roleStore, roleList.view(), ROLE_ORDER);
+                    compactIfNeeded(customerStore, customerList.view(), CUSTOMER_ORDER);
+                    compactIfNeeded(consumptionStore, consumptionList.view(), CONSUMPTION_ORDER);
+                    compactIfNeeded(visitorStore, visitorDtoList.view(), null);
+                }
+            }
+            wal.await();
+        } finally {
+            COMMIT_TIMER.stop(start, changes.size());
+        }
+    }
+
+    // check a staged mutation before any of them is applied
+    private static void validate(UnitOfWork.Change change) {
+        if(change.action() == DataManipulateEnum.DELETE) {
+            if(change.type() != CustomerDto.class && change.type() != Consumption.class
+                    && change.type() != Promotion.class) {
+                throw new IllegalArgumentException("Cannot remove the records of " + change.type());
+            }
+            return;
+        }
+        Object record = change.record();
+        String key = null;
+        if(record instanceof CustomerDto customerDto) {
+            key = customerDto.getId();
+        } else if(record instanceof Consumption consumption) {
+            key = consumption.fees() == null || consumption.memberId() == null ? null : consumption.orderId();
+        } else if(record instanceof RoleDto roleDto) {
+            key = roleDto.getRoleId();
+        } else if(record instanceof Course course) {
+            key = course.getCourseId();
+        } else if(record instanceof Promotion promotion) {
+            key = promotion.getPromotionId();
+        } else if(record instanceof VisitorDto visitorDto) {
+            key = DateUtil.formatDay(visitorDto.getDay());
+        } else {
+            throw new IllegalArgumentException("Unknown record " + record);
+        }
+        if(key == null || key.isEmpty()) {
+            throw new IllegalArgumentException("The record is incomplete: " + record);
+        }
+    }
+
+    /**
+     * Put the lists back to the version before a failed commit, and build the indexes and the counters from them
+     * again. The records of the commit are not written, but the row counters of the files are changed by them, so the
+     * changed files are rewritten once to count their rows again
+     *
+     * @param before        the version before the commit
+     * @param storeVersions the versions of the files before the commit, in the order of see@stores
+     */
+    private static void rollback(DataVersion before, long[] storeVersions) {
+        Logger.warn("The unit of work failed, roll back to the version " + before.version());
+        promotionList.reset(before.promotions());
+        courseList.reset(before.courses());
+        roleList.reset(before.roles());
+        customerList.reset(before.customers());
+        consumptionList.reset(before.consumptions());
+        visitorDtoList.reset(before.visitors());
+        index(promotionIndex, before.promotions(), Promotion::getPromotionId);
+        index(courseIndex, before.courses(), Course::getCourseId);
+        index(roleIndex, before.roles(), RoleDto::getRoleId);
+        index(customerIndex, before.customers(), CustomerDto::getId);
+        index(consumptionIndex, before.consumptions(), Consumption::orderId);
+        index(visitorIndex, before.visitors(), e -> DateUtil.formatDay(e.getDay()));
+        consumptionMemberIndex.clear();
+        before.consumptions().forEach(e -> addTo(consumptionMemberIndex, e.memberId(), e));
+        customerParentIndex.clear();
+        indexedParents.clear();
+        before.customers().forEach(DataSource::indexParent);
+        statisticsCounter.reset(before.customers(), before.courses().size(), before.promotions().size());
+        expiryQueue.reset(before.customers());
+        List<CSVStore<?>> stores = stores();
+        for(int i = 0; i < stores.size(); i++) {
+            if(stores.get(i).version() != storeVersions[i]) {
+                stores.get(i).requireCompaction();
+            }
+        }
+    }
+
+    private static List<CSVStore<?>> stores() {
+        return List.of(promotionStore, courseStore, roleStore, customerStore, consumptionStore, visitorStore);
+    }
+
+    /**
+     * Split the list in one pass
+     *
+     * @param list        the original list
+     * @param keys        the keys need to be removed
+     * @param keyFunction get the key of an object
+     * @param removed     collect the removed objects
+     * @param <E>         the object type
+     *
+     * @return a new list of the kept objects
+     */
+    private static <E> List<E> partition(List<E> list, Set<String> keys, Function<E, String> keyFunction,
+                                         List<E> removed) {
+        List<E> kept = new ArrayList<>(Math.max(list.size() - keys.size(), 0));
+        for(E e : list) {
+            if(keys.contains(keyFunction.apply(e))) {
+                removed.add(e);
+            } else {
+                kept.add(e);
+            }
+        }
+        return kept;
     }
 
     /**
      * Sames to the add & remove
+     * The object replaces the stored record of the same primary key in the list and the indexes, the old versions
+     * keep the old record. So it should be a new object, e.g. a changed copy of the stored one, the stored records are
+     * shared by the readers and never changed
      *
-     * @param t   the object need to be updated
+     * @param t   the new object of the record
      * @param <T> the generic type
+     *
+     * @throws IllegalArgumentException if there is no stored record of its key, nothing is changed then
      */
     public static <T> void update(T t) {
+        mutate(() -> updateRecord(t), UPDATE_TIMER, 0);
+    }
+
+    /**
+     * Apply a mutation in the lock and publish the new version, then wait for its log records out of the lock. The
+     * mutations of the other threads can queue their records meanwhile, so they are forced to the disk together
+     *
+     * @param mutation the mutation
+     * @param timer    the timer of the mutation
+     * @param rows     the number of the changed rows, 0 if it is not counted
+     */
+    private static void mutate(Runnable mutation, Metrics.Timer timer, int rows) {
+        long start = System.nanoTime();
+        try {
+            synchronized(DataSource.class) {
+                try {
+                    mutation.run();
+                } finally {
+                    publish();
+                }
+            }
+            wal.await();
+        } finally {
+            timer.stop(start, rows);
+        }
+    }
+
+    private static <T> void updateRecord(T t) {
         if(t instanceof CustomerDto customerDto) {
-            // save & broadcast
-            broadcast(customerDto, DataManipulateEnum.UPDATE);
-            save(DefaultDataConstant.CUSTOMER_CSV_PATH, "customer");
+            // an unknown member is rejected before anything is changed, its row would make it a new member on reload
+            CustomerDto stored = stored(customerIndex, customerDto.getId(), "member");
+            replaceCustomers(replacement(stored, customerDto));
+            // append & broadcast
+            broadcast(customerDto, DataManipulateEnum.UPDATE, keys(customerDto.getId()));
+            customerStore.appendUpdate(List.of(customerDto));
+            compactIfNeeded(customerStore, customerList.view(), CUSTOMER_ORDER);
         }
 
         if(t instanceof RoleDto roleDto) {
-            // save & broadcast
-            broadcast(roleDto, DataManipulateEnum.UPDATE);
-            save(DefaultDataConstant.ROLE_CSV_PATH, "role");
+            RoleDto stored = stored(roleIndex, roleDto.getRoleId(), "role");
+            replaceRoles(replacement(stored, roleDto));
         }
 
         if(t instanceof Course course) {
-            // save & broadcast
-            broadcast(course, DataManipulateEnum.UPDATE);
-            save(DefaultDataConstant.COURSE_CSV_PATH, "course");
+            Course stored = stored(courseIndex, course.getCourseId(), "course");
+            courseList.replace(replacement(stored, course));
+            courseIndex.put(course.getCourseId(), course);
+            // the roles keep the objects of their courses, so they are moved to the new one
+            Map<RoleDto, RoleDto> roles = new IdentityHashMap<>();
+            for(RoleDto e : roleList.view()) {
+                if(e.getCourseList().stream().anyMatch(c -> course.getCourseId().equals(c.getCourseId()))) {
+                    RoleDto roleDto = new RoleDto(e);
+                    roleDto.setCourseList(e.getCourseList().stream()
+                            .map(c -> course.getCourseId().equals(c.getCourseId()) ? course : c)
+                            .collect(Collectors.toList()));
+                    roles.put(e, roleDto);
+                }
+            }
+            replaceRoles(roles);
+            // append & broadcast
+            broadcast(course, DataManipulateEnum.UPDATE, keys(course.getCourseId()));
+            courseStore.appendUpdate(List.of(course));
+            compactIfNeeded(courseStore, courseList.view(), COURSE_ORDER);
         }
 
         if(t instanceof VisitorDto visitorDto) {
-            // save & broadcast
-            broadcast(visitorDto, DataManipulateEnum.UPDATE);
-            save(DefaultDataConstant.VISITOR_CSV_PATH, "visitor");
+            String day = DateUtil.formatDay(visitorDto.getDay());
+            VisitorDto stored = stored(visitorIndex, day, "visitor record");
+            visitorDtoList.replace(replacement(stored, visitorDto));
+            visitorIndex.put(day, visitorDto);
+            // append & broadcast
+            broadcast(visitorDto, DataManipulateEnum.UPDATE, keys(day));
+            visitorStore.appendUpdate(List.of(visitorDto));
+            compactIfNeeded(visitorStore, visitorDtoList.view(), null);
         }
         // broadcast although no data type below, sometimes maybe need to fetch again the data
-        broadcast(new Statistics(), DataManipulateEnum.UPDATE);
+        broadcast(STATISTICS, DataManipulateEnum.UPDATE);
+    }
+
+    // find the stored record of an update, an unknown key is rejected
+    private static <E> E stored(Map<String, E> index, String key, String name) {
+        E e = index.get(key);
+        if(e == null) {
+            throw new IllegalArgumentException("Cannot find the " + name + " " + key);
+        }
+        return e;
+    }
+
+    // the new object of a stored record, the records are compared by their identity
+    private static <E> Map<E, E> replacement(E stored, E e) {
+        Map<E, E> replacements = new IdentityHashMap<>(2);
+        replacements.put(stored, e);
+        return replacements;
+    }
+
+    /**
+     * Replace the stored members by their new objects in the list, the indexes, the counters and the expiry queue. It
+     * should be called in the lock, the rows and the events are left to the caller
+     *
+     * @param replacements the new object of each stored member, by the identity of the stored one
+     */
+    private static void replaceCustomers(Map<CustomerDto, CustomerDto> replacements) {
+        customerList.replace(replacements);
+        replacements.forEach((stored, e) -> {
+            customerIndex.put(e.getId(), e);
+            String parentId = Objects.toString(e.getParent(), "");
+            if(parentId.equals(indexedParents.get(e.getId()))) {
+                // the family keeps its order
+                List<CustomerDto> family = customerParentIndex.get(parentId);
+                if(family != null) {
+                    family.replaceAll(c -> c == stored ? e : c);
+                }
+            } else {
+                // move the customer in the family index if its parent is changed
+                unindexParent(e.getId());
+                indexParent(e);
+            }
+            statisticsCounter.customerChanged(e);
+            // a renewal moves the member to its new expiry day
+            expiryQueue.schedule(e);
+        });
+    }
+
+    /**
+     * Replace the stored roles by their new objects, the members of them are moved to the new objects too. Their rows
+     * are not changed, only the rows of the roles are appended
+     *
+     * @param replacements the new object of each stored role, by the identity of the stored one
+     */
+    private static void replaceRoles(Map<RoleDto, RoleDto> replacements) {
+        if(replacements.isEmpty()) {
+            return;
+        }
+        roleList.replace(replacements);
+        Map<String, RoleDto> roles = new HashMap<>();
+        replacements.values().forEach(e -> roles.put(e.getRoleId(), e));
+        roleIndex.putAll(roles);
+        // the members keep the object of their role
+        Map<CustomerDto, CustomerDto> members = new IdentityHashMap<>();
+        for(CustomerDto e : customerList.view()) {
+            RoleDto role = e.getRole() == null ? null : roles.get(e.getRole().getRoleId());
+            if(role != null) {
+                CustomerDto customerDto = new CustomerDto(e);
+                customerDto.setRole(role);
+                members.put(e, customerDto);
+            }
+        }
+        if(! members.isEmpty()) {
+            replaceCustomers(members);
+            broadcast(members.values().iterator().next(), DataManipulateEnum.UPDATE,
+                    members.values().stream().map(CustomerDto::getId).collect(Collectors.toSet()));
+        }
+        // append & broadcast
+        broadcast(roles.values().iterator().next(), DataManipulateEnum.UPDATE, new HashSet<>(roles.keySet()));
+        roleStore.appendUpdate(roles.values());
+        compactIfNeeded(roleStore, roleList.view(), ROLE_ORDER);
     }
 
     /**
-     * The broadcast method will iterate the queue in queue order, then filter the target the subscribes we need to
-     * notify, and then execute their onDataChange method
+     * The broadcast method will publish the event to the subscribers of the type, the keys of the changed objects are
+     * unknown
      *
      * @param t                  the t object which will used to reflect to get the class type
      * @param dataManipulateEnum the subscriber info, it contains the type they want to subscribe and their heap address,
@@ -374,75 +1091,100 @@ public class DataSource implements ActionListener {
      * @param <T>                the generic type
      */
     private static <T> void broadcast(T t, DataManipulateEnum dataManipulateEnum) {
-        CompletableFuture<?>[] futures = queue.stream().filter(e -> e.gettClass().equals(t.getClass()))
-                .map(DataSourceChannelInfo::getDataSourceChannel)
-                .map(e -> CompletableFuture.runAsync(() -> e.onDataChange(t, dataManipulateEnum)))
-                .toArray(CompletableFuture[]::new);
-        CompletableFuture.allOf(futures);
+        broadcast(t, dataManipulateEnum, Set.of());
+    }
+
+    /**
+     * Sames to the broadcast method, but the event also carries the keys of the changed objects
+     *
+     * @param t                  the t object which will used to reflect to get the class type
+     * @param dataManipulateEnum the action flag
+     * @param keys               the primary keys of the changed objects
+     * @param <T>                the generic type
+     */
+    private static <T> void broadcast(T t, DataManipulateEnum dataManipulateEnum, Set<String> keys) {
+        BROADCASTS.increment();
+        if(committing != null) {
+            committing.add(new EventBus.Event(t, dataManipulateEnum, keys));
+            return;
+        }
+        eventBus.publish(t, dataManipulateEnum, keys);
+    }
+
+    // the size and the estimated heap of a list, they are read when the diagnostics shows them
+    private static void listMetrics(String name, Supplier<List<?>> list) {
+        Metrics.gauge("datasource." + name + ".rows", () -> list.get().size());
+        Metrics.gauge("datasource." + name + ".bytes", () -> estimateHeap(list.get()));
+    }
+
+    private static long estimateHeap(List<?> list) {
+        return HeapEstimator.estimate(list, HEAP_SAMPLES);
+    }
+
+    // the key set of one changed object
+    private static Set<String> keys(String key) {
+        return key == null ? Set.of() : Set.of(key);
     }
 
     /**
-     * The save method will async to write to the file and will not block the ui thread
+     * The rows are already appended, rewrite the whole file in the background only when the file has too many dead
+     * rows. It will not block the ui thread
      *
-     * @param path the path we need to write to
-     * @param type the action flag
+     * @param store      the store of the file
+     * @param list       the live records
+     * @param comparator the row order of the rewritten file
+     * @param <E>        the record type
+     */
+    private static <E> void compactIfNeeded(CSVStore<?> store, List<E> list, Comparator<? super E> comparator) {
+        // the commit checks all the files after it ends
+        if(committing != null) {
+            return;
+        }
+        if(store.needsCompaction()) {
+            store.compact(list, comparator);
+        }
+        // the log is large enough, all of its records should be in the csv files now
+        if(wal.size() > DefaultDataConstant.WAL_CHECKPOINT_SIZE) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Roll the write-ahead log, the old log segments are deleted after all the csv files are synced
+     */
+    private static void checkpoint() {
+        wal.checkpoint(DataSource::syncAll);
+    }
+
+    // write the waiting rows of all the csv files and force them to the disk
+    private static CompletableFuture<Void> syncAll() {
+        return CompletableFuture.allOf(
+                promotionStore.sync(),
+                courseStore.sync(),
+                roleStore.sync(),
+                customerStore.sync(),
+                consumptionStore.sync(),
+                visitorStore.sync());
+    }
+
+    /**
+     * The appended rows are written behind, write them before the application exits. They are also in the
+     * write-ahead log, so the rows which cannot be written in time are replayed when it starts next time
      */
-    private static void save(String path, String type) {
-        if("customer".equals(type)) {
-            CompletableFuture.runAsync(() -> {
-                // sort by first name firstly
-                customerList.sort(Comparator.comparing(CustomerDto::getFirstName));
-                // set the progress value of the data size
-                ClubFrameView.syncState(customerList.size());
-                // write method
-                CSVUtil.write(path, customerList);
-            });
-        }
-        // same above
-        if("consumption".equals(type)) {
-            CompletableFuture.runAsync(() -> {
-                consumptionList.sort(Comparator.comparing(Consumption::orderId).reversed());
-                ClubFrameView.syncState(consumptionList.size());
-                CSVUtil.write(path, consumptionList);
-            });
-        }
-        // same above
-        if("role".equals(type)) {
-            CompletableFuture.runAsync(() -> {
-                roleList.sort(Comparator.comparing(RoleDto::getRoleId));
-                ClubFrameView.syncState(roleList.size());
-                CSVUtil.write(path, roleList);
-            });
-        }
-        // same above
-        if("course".equals(type)) {
-            CompletableFuture.runAsync(() -> {
-                courseList.sort(Comparator.comparing(Course::getCourseName));
-                ClubFrameView.syncState(courseList.size());
-                CSVUtil.write(path, courseList);
-            });
-        }
-        // same above
-        if("promotion".equals(type)) {
-            CompletableFuture.runAsync(() -> {
-                ClubFrameView.syncState(promotionList.size());
-                CSVUtil.write(path, promotionList);
-            });
-        }
-        // same above
-        if("visitor".equals(type)) {
-            CompletableFuture.runAsync(() -> {
-                ClubFrameView.syncState(visitorDtoList.size());
-                CSVUtil.write(path, visitorDtoList);
-            });
+    private static void flush() {
+        try {
+            wal.afterQueued(DataSource::syncAll).get(DefaultDataConstant.SHUTDOWN_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch(ExecutionException | TimeoutException e) {
+            Logger.error("Cannot flush the csv files: " + e.getMessage());
         }
     }
 
     /**
-     * Initialize a timer to do the work each 1 hour
+     * Initialize a timer to do the backup each 1 hour
      */
-    private void refreshJob() {
-        Logger.info("Data source will auto refresh per hour");
+    private void backupJob() {
         Logger.info("Data source will backup per hour");
         Timer timer = new Timer((int) TimeUnit.HOURS.toMillis(1), this);
         timer.start();
@@ -455,20 +1197,6 @@ public class DataSource implements ActionListener {
      */
     @Override
     public void actionPerformed(ActionEvent actionEvent) {
-        try {
-            // call the refresh method
-            refresh();
-        } catch(Exception e) {
-            // cover the error
-            Logger.error(e.getMessage());
-            JOptionPane.showMessageDialog(null, """
-                    Data source refreshed failed!
-                                        
-                    Suggestion:                    
-                    1. Please check the output of the console. 
-                    """, "Error", JOptionPane.ERROR_MESSAGE);
-        }
-
         try {
             // call the back-up method
             backup();
@@ -485,49 +1213,138 @@ public class DataSource implements ActionListener {
     }
 
     /**
-     * The refresh job we need to execute
+     * Check the expiry state of all the members once, the states may be out of date since the last time the
+     * application ran. After that the expiry queue keeps them up to date
      */
     private void refresh() {
         Logger.info("======== Data source start refreshing ========");
-        int count = 0; // store each time of the updated members in a refresh
-        CustomerDto customerDto = new CustomerDto();
-        for(CustomerDto e : customerList) {
-            Date expireTime = e.getExpireTime();
-            // if the expiry time is over today, it is active
-            if(DateUtil.isAfter(expireTime, LocalDate.now())) {
-                // if it is not expired, and it is active too, continue to next round
-                if(CustomerSateEnum.ACTIVE.getName().equals(e.getState())) {
-                    continue;
+        // store the updated members in the refresh, by the identity of the stored ones
+        Map<CustomerDto, CustomerDto> replacements = new IdentityHashMap<>();
+        synchronized(DataSource.class) {
+            int today = DateUtil.today();
+            for(CustomerDto e : customerList.view()) {
+                // if the expiry time is over today, it is active
+                if(e.getExpireDay() >= today) {
+                    // if it is not expired, and it is active too, continue to next round
+                    if(CustomerSateEnum.ACTIVE.getName().equals(e.getState())) {
+                        continue;
+                    }
+                    // sometime, there are few errors, although it is not expired but modification but some unknown way,
+                    // therefore need to be correct
+                    replacements.put(e, withState(e, CustomerSateEnum.ACTIVE));
+                } else {
+                    // if is expired today set to expired state and count the number of update account
+                    if(CustomerSateEnum.ACTIVE.getName().equals(e.getState())) {
+                        replacements.put(e, withState(e, CustomerSateEnum.EXPIRED));
+                    }
                 }
-                // sometime, there are few errors, although it is not expired but modification but some unknown way,
-                // therefore need to be correct
-                e.setState(CustomerSateEnum.ACTIVE.getName());
-            } else {
-                // if is expired today set to expired state and count the number of update account
-                if(CustomerSateEnum.ACTIVE.getName().equals(e.getState())) {
-                    e.setState(CustomerSateEnum.EXPIRED.getName());
-                    count++;
+            }
+            replaceCustomers(replacements);
+            List<CustomerDto> updated = new ArrayList<>(replacements.values());
+            if(! updated.isEmpty()) {
+                broadcast(updated.get(0), DataManipulateEnum.UPDATE,
+                        updated.stream().map(CustomerDto::getId).collect(Collectors.toSet()));
+            }
+            saveStates(updated);
+        }
+        wal.await();
+        Logger.info("======== Data source refreshed successfully ========");
+    }
+
+    // called by the expiry queue after each midnight, only the members due today are checked
+    private static void expireMembers() {
+        Map<CustomerDto, CustomerDto> replacements = new IdentityHashMap<>();
+        synchronized(DataSource.class) {
+            int today = DateUtil.today();
+            for(String id : expiryQueue.poll(today)) {
+                CustomerDto e = customerIndex.get(id);
+                if(e == null || e.getExpireDay() >= today || ! CustomerSateEnum.ACTIVE.getName().equals(e.getState())) {
+                    continue;
                 }
+                CustomerDto expired = withState(e, CustomerSateEnum.EXPIRED);
+                replacements.put(e, expired);
+                broadcast(expired, DataManipulateEnum.UPDATE, keys(expired.getId()));
             }
+            replaceCustomers(replacements);
+            saveStates(new ArrayList<>(replacements.values()));
         }
+        wal.await();
+    }
+
+    // a copy of the stored member with the new state, the stored one is shared by the readers
+    private static CustomerDto withState(CustomerDto customerDto, CustomerSateEnum state) {
+        CustomerDto copy = new CustomerDto(customerDto);
+        copy.setState(state.getName());
+        return copy;
+    }
+
+    // append the changed states of the members, it should be called in the lock
+    private static void saveStates(List<CustomerDto> updated) {
         // only need to output the result if there are some updates happen
-        if(count > 0) {
-            Logger.info("Update " + count + " account this time");
-            broadcast(customerDto, DataManipulateEnum.UPDATE);
-            save(DefaultDataConstant.CUSTOMER_CSV_PATH, "customer");
+        if(updated.isEmpty()) {
+            return;
         }
-        Logger.info("======== Data source refreshed successfully ========");
+        Logger.info("Update " + updated.size() + " account this time");
+        publish();
+        customerStore.appendUpdate(updated);
+        compactIfNeeded(customerStore, customerList.view(), CUSTOMER_ORDER);
+        broadcast(STATISTICS, DataManipulateEnum.UPDATE);
     }
 
     // the steps of the backup function
     private void backup() {
         Logger.info("******** Data source start backup ********");
-        CSVUtil.backup(DefaultDataConstant.CUSTOMER_CSV_PATH, customerList);
-        CSVUtil.backup(DefaultDataConstant.ROLE_CSV_PATH, roleList);
-        CSVUtil.backup(DefaultDataConstant.COURSE_CSV_PATH, courseList);
-        CSVUtil.backup(DefaultDataConstant.CONSUMPTION_CSV_PATH, consumptionList);
-        CSVUtil.backup(DefaultDataConstant.PROMOTION_CSV_PATH, promotionList);
-        CSVUtil.backup(DefaultDataConstant.VISITOR_CSV_PATH, visitorDtoList);
+        long start = System.nanoTime();
+        // all the files are written from the same version
+        DataVersion data = version;
+        CSVUtil.backup(DefaultDataConstant.CUSTOMER_CSV_PATH, data.customers());
+        CSVUtil.backup(DefaultDataConstant.ROLE_CSV_PATH, data.roles());
+        CSVUtil.backup(DefaultDataConstant.COURSE_CSV_PATH, data.courses());
+        CSVUtil.backup(DefaultDataConstant.CONSUMPTION_CSV_PATH, data.consumptions());
+        CSVUtil.backup(DefaultDataConstant.PROMOTION_CSV_PATH, data.promotions());
+        CSVUtil.backup(DefaultDataConstant.VISITOR_CSV_PATH, data.visitors());
+        checkpoint();
+        writeSnapshot();
+        BACKUP_TIMER.stop(start);
         Logger.info("******** Data source backup successfully ********");
     }
+
+    /**
+     * Write the binary snapshot after the customer and consumption files are synced. If there are some mutations
+     * during the writing, the file states cannot match the taken records, so skip it this time.
+     */
+    private static void writeSnapshot() {
+        List<CustomerDto> customers;
+        List<Consumption> consumptions;
+        long customerVersion;
+        long consumptionVersion;
+        CompletableFuture<Void> synced;
+        synchronized(DataSource.class) {
+            // the views never change, so they are not copied
+            customers = customerList.view();
+            consumptions = consumptionList.view();
+            customerVersion = customerStore.version();
+            consumptionVersion = consumptionStore.version();
+            // the csv writes of the queued records are submitted before the sync
+            synced = wal.afterQueued(() -> CompletableFuture.allOf(customerStore.sync(), consumptionStore.sync()));
+        }
+        synced.thenRunAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                Snapshot.FileState customerState = customerStore.fileState(customerVersion);
+                Snapshot.FileState consumptionState = consumptionStore.fileState(consumptionVersion);
+                if(customerState == null || consumptionState == null) {
+                    Logger.info("The data is changed during the snapshot, skip it this time");
+                    return;
+                }
+                Snapshot.write(DefaultDataConstant.SNAPSHOT_PATH, Map.of(
+                        DefaultDataConstant.CUSTOMER_CSV_PATH, customerState,
+                        DefaultDataConstant.CONSUMPTION_CSV_PATH, consumptionState), customers, consumptions);
+                SNAPSHOT_TIMER.stop(start, customers.size() + consumptions.size());
+                Logger.info("Data source snapshot successfully");
+            } catch(IOException | RuntimeException e) {
+                Logger.error("Cannot write the snapshot: " + e.getMessage());
+            }
+        });
+    }
 }
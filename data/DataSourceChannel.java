@@ -2,6 +2,8 @@ package data;
 
 import constant.DataManipulateEnum;
 
+import java.util.Set;
+
 /**
  * @author lomofu
  * <p>
@@ -18,6 +20,21 @@ public interface DataSourceChannel<T> {
      */
     void onDataChange(T t, DataManipulateEnum flag);
 
+    /**
+     * This callback function will be invoked with the primary keys of the changed objects, ex. the removed ids of a
+     * batch delete. The observer can override it to apply the change by the keys, the default one ignores the keys
+     * <p>
+     * The changes of a short window are merged into one invocation of each action, t is the last changed object and
+     * the keys are all the changed keys. It is invoked in the event thread, not the event dispatch thread
+     *
+     * @param t    one of the changed objects
+     * @param flag action see@DataManipulateEnum
+     * @param keys the primary keys of the changed objects, it can be empty if they are unknown
+     */
+    default void onDataChange(T t, DataManipulateEnum flag, Set<String> keys) {
+        onDataChange(t, flag);
+    }
+
     /**
      * The observer should subscribe the data source when they need observe the data change
      *
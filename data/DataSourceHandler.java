@@ -46,11 +46,7 @@ public class DataSourceHandler {
      * @return role details
      */
     public static RoleDto findRoleDtoById(String roleId) {
-        return DataSource.getRoleList()
-                .stream()
-                .filter(e -> e.getRoleId().equals(roleId))
-                .findFirst()
-                .orElse(new RoleDto());
+        return DataSource.findRole(roleId).orElseGet(RoleDto::new);
     }
 
 
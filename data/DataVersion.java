@@ -0,0 +1,28 @@
+package data;
+
+import bean.Consumption;
+import bean.Course;
+import bean.Promotion;
+import dto.CustomerDto;
+import dto.RoleDto;
+import dto.VisitorDto;
+
+import java.util.List;
+
+/**
+ * @author lomofu
+ * <p>
+ * This record is a version of all the lists of the data source, each mutation publishes a new one
+ * <p>
+ * 1. The lists never change after the version is published, so a reader can iterate, stream or sort a copy of them
+ * without a lock, and the lists of one version are consistent with each other
+ * 2. The records themselves are shared by the versions, an update changes the record in place and publishes a new
+ * version of the same lists
+ *
+ * @param version the number of the version, it grows by one for each mutation
+ */
+public record DataVersion(long version, List<Promotion> promotions, List<Course> courses, List<RoleDto> roles,
+                          List<CustomerDto> customers, List<Consumption> consumptions, List<VisitorDto> visitors) {
+    static final DataVersion EMPTY = new DataVersion(0, List.of(), List.of(), List.of(), List.of(), List.of(),
+            List.of());
+}
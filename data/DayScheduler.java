@@ -0,0 +1,63 @@
+package data;
+
+import utils.DateUtil;
+import utils.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class runs the day change tasks of the data source just after each midnight
+ * <p>
+ * 1. All the tasks run in one thread in the given order, so a later task always sees the changes of the earlier ones
+ * 2. A failed task does not stop the tasks after it, and the next midnight is still scheduled
+ * 3. The delay is computed again each day, so the daylight saving time is followed
+ */
+final class DayScheduler {
+    // run a little after the midnight, so the clock is surely in the new day
+    private static final long MARGIN_MILLIS = 1000;
+
+    private final List<Runnable> tasks;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * @param tasks the tasks in their order, they are called without the lock of the data source
+     */
+    DayScheduler(Runnable... tasks) {
+        this.tasks = List.of(tasks);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "datasource-day");
+            thread.setDaemon(true);
+            return thread;
+        });
+        schedule();
+    }
+
+    private void schedule() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay();
+        long delay = Duration.between(now, midnight).toMillis() + MARGIN_MILLIS;
+        executor.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void run() {
+        Logger.info("Day changed to " + DateUtil.now());
+        try {
+            for(Runnable task : tasks) {
+                try {
+                    task.run();
+                } catch(RuntimeException e) {
+                    Logger.error("Cannot run the day change task: " + e.getMessage());
+                }
+            }
+        } finally {
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package data;
+
+import constant.DataManipulateEnum;
+import utils.Logger;
+import utils.Metrics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class delivers the data change events of the data source to the subscribers
+ * <p>
+ * 1. The subscribers are registered by the type they observe, so a publish only looks up its own type
+ * 2. The events are not delivered at once. They wait for a short window, and the events of the same subscriber and
+ * the same action in the window are merged into one, which carries all the changed keys. So a burst of mutations only
+ * makes each subscriber refresh once
+ * 3. The events are delivered in a dedicated thread, in the order of their first publish
+ * 4. The events of a unit of work are published together, so they are always delivered in the same window
+ */
+final class EventBus {
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer DELIVER_TIMER = Metrics.timer("eventbus.deliver");
+    private final Map<Class<?>, List<DataSourceChannel<?>>> subscribers = new ConcurrentHashMap<>();
+    // the merged events waiting for the window, guarded by itself
+    private final Map<PendingKey, PendingEvent> pending = new LinkedHashMap<>();
+    private final ScheduledExecutorService executor;
+    private final long window;
+    private boolean scheduled;
+
+    EventBus(long window) {
+        this.window = window;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "datasource-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param type    the observed type
+     * @param channel the subscriber
+     */
+    void subscribe(Class<?> type, DataSourceChannel<?> channel) {
+        subscribers.computeIfAbsent(type, e -> new CopyOnWriteArrayList<>()).add(channel);
+    }
+
+    /**
+     * Put the event into the window, the subscribers of the exact class of t will receive it
+     *
+     * @param t    the changed object
+     * @param flag the action
+     * @param keys the primary keys of the changed objects, empty if they are unknown
+     */
+    void publish(Object t, DataManipulateEnum flag, Set<String> keys) {
+        List<DataSourceChannel<?>> channels = subscribers.get(t.getClass());
+        if(channels == null || channels.isEmpty()) {
+            return;
+        }
+        publishAll(List.of(new Event(t, flag, keys)));
+    }
+
+    /**
+     * Put all the events into the same window
+     *
+     * @param events the events in the order of the changes
+     */
+    void publishAll(List<Event> events) {
+        synchronized(pending) {
+            for(Event event : events) {
+                List<DataSourceChannel<?>> channels = subscribers.get(event.t().getClass());
+                if(channels == null) {
+                    continue;
+                }
+                for(DataSourceChannel<?> channel : channels) {
+                    pending.computeIfAbsent(new PendingKey(channel, event.flag()), e -> new PendingEvent())
+                            .merge(event.t(), event.keys());
+                }
+            }
+            if(! scheduled && ! pending.isEmpty()) {
+                scheduled = true;
+                executor.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void flush() {
+        List<Map.Entry<PendingKey, PendingEvent>> events;
+        synchronized(pending) {
+            events = new ArrayList<>(pending.entrySet());
+            pending.clear();
+            scheduled = false;
+        }
+        long start = System.nanoTime();
+        for(Map.Entry<PendingKey, PendingEvent> entry : events) {
+            PendingKey key = entry.getKey();
+            PendingEvent event = entry.getValue();
+            try {
+                ((DataSourceChannel<Object>) key.channel()).onDataChange(event.latest, key.flag(), event.keys());
+            } catch(RuntimeException e) {
+                // one broken subscriber should not stop the others
+                Logger.error("Cannot deliver the data change event: " + e.getMessage());
+            }
+        }
+        DELIVER_TIMER.stop(start, events.size());
+    }
+
+    // a data change waiting to be published
+    record Event(Object t, DataManipulateEnum flag, Set<String> keys) {
+    }
+
+    private record PendingKey(DataSourceChannel<?> channel, DataManipulateEnum flag) {
+    }
+
+    // the events of one subscriber and one action in the window
+    private static final class PendingEvent {
+        private final Set<String> keys = new LinkedHashSet<>();
+        private Object latest;
+        // one of the events does not know its keys, so the merged one does not know either
+        private boolean unknown;
+
+        private void merge(Object t, Set<String> changedKeys) {
+            latest = t;
+            if(changedKeys.isEmpty()) {
+                unknown = true;
+                keys.clear();
+            } else if(! unknown) {
+                keys.addAll(changedKeys);
+            }
+        }
+
+        private Set<String> keys() {
+            return unknown ? Set.of() : Collections.unmodifiableSet(keys);
+        }
+    }
+}
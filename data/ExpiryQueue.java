@@ -0,0 +1,97 @@
+package data;
+
+import constant.CustomerSateEnum;
+import dto.CustomerDto;
+import utils.DateUtil;
+
+import java.util.*;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class keeps the active members in the order of their expiry day, so the data source does not scan all the
+ * members to find the expired ones
+ * <p>
+ * 1. A member is active until the end of its expiry day, it is due on the next day
+ * 2. The queue is polled just after each midnight by see@DayScheduler, only the members due by today are taken out
+ * of it
+ * 3. A renewal or a removal does not search the queue, the member keeps its latest due day in a map and the old entry
+ * of the queue is skipped when it comes out
+ * <p>
+ * All the methods should be called in the lock of the data source
+ */
+final class ExpiryQueue {
+    // rebuild the queue when most of its entries are skipped ones
+    private static final int STALE_LIMIT = 1024;
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    // the latest due day of each active member
+    private final Map<String, Integer> dueDays = new HashMap<>();
+
+    /**
+     * Put all the members again, it is used after the files are loaded
+     */
+    void reset(List<CustomerDto> customerList) {
+        queue.clear();
+        dueDays.clear();
+        customerList.forEach(this::schedule);
+    }
+
+    /**
+     * The member is added or changed, only an active member with an expiry day is kept
+     */
+    void schedule(CustomerDto customerDto) {
+        int expireDay = customerDto.getExpireDay();
+        if(expireDay == DateUtil.NO_DAY || ! CustomerSateEnum.ACTIVE.getName().equals(customerDto.getState())) {
+            dueDays.remove(customerDto.getId());
+            return;
+        }
+        int dueDay = expireDay + 1;
+        Integer previous = dueDays.put(customerDto.getId(), dueDay);
+        if(previous == null || previous != dueDay) {
+            queue.add(new Entry(dueDay, customerDto.getId()));
+            if(queue.size() > dueDays.size() * 2 + STALE_LIMIT) {
+                rebuild();
+            }
+        }
+    }
+
+    /**
+     * The member is removed
+     */
+    void cancel(String id) {
+        dueDays.remove(id);
+    }
+
+    /**
+     * Take the members due by the day out of the queue
+     *
+     * @param today the epoch day of today
+     *
+     * @return the ids of the due members
+     */
+    List<String> poll(int today) {
+        List<String> due = new ArrayList<>();
+        while(! queue.isEmpty() && queue.peek().dueDay <= today) {
+            Entry entry = queue.poll();
+            // the entry is skipped if the member is renewed or removed after it is added
+            if(dueDays.remove(entry.id, entry.dueDay)) {
+                due.add(entry.id);
+            }
+        }
+        return due;
+    }
+
+    // drop the skipped entries
+    private void rebuild() {
+        queue.clear();
+        dueDays.forEach((id, dueDay) -> queue.add(new Entry(dueDay, id)));
+    }
+
+    private record Entry(int dueDay, String id) implements Comparable<Entry> {
+        @Override
+        public int compareTo(Entry o) {
+            return Integer.compare(dueDay, o.dueDay);
+        }
+    }
+}
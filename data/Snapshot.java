@@ -0,0 +1,375 @@
+package data;
+
+import bean.Consumption;
+import bean.Money;
+import dto.CustomerDto;
+import dto.RoleDto;
+import utils.DateUtil;
+import utils.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class is the binary snapshot of the customers and the consumptions, it is the fast path of the startup
+ * <p>
+ * 1. It is written by the backup job after the csv files are synced, and remembers the size and the modified time of
+ * each csv file. If a file is changed after that, the snapshot is stale and the csv file is loaded instead.
+ * 2. The layout is columnar, each column is a fixed width int array, so a value is read by its row index directly.
+ * The strings are stored once in a string table and the columns keep their index, the dates are the epoch days and
+ * the fees are the pence. So the loading does not parse any text.
+ * 3. The file is memory mapped, a string is only decoded when a row needs it and each string is decoded once.
+ * 4. The body is protected by a crc32 checksum, a broken snapshot or an old version is ignored.
+ * <p>
+ * Layout: int magic | int version | long body length | long crc32 of body | body(file table | string table |
+ * int customer rows | customer columns | int consumption rows | consumption columns)
+ */
+final class Snapshot {
+    private static final int MAGIC = 0x434C4253;
+    // increase the version when the layout is changed, the old snapshot will be ignored
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES * 2;
+    // the string index of null
+    private static final int NULL = - 1;
+
+    // the customer columns
+    private static final int ID = 0;
+    private static final int FIRST_NAME = 1;
+    private static final int LAST_NAME = 2;
+    private static final int DATE_OF_BIRTH = 3;
+    private static final int GENDER = 4;
+    private static final int HOME_ADDRESS = 5;
+    private static final int PHONE_NUMBER = 6;
+    private static final int HEALTH_CONDITION = 7;
+    private static final int ROLE = 8;
+    private static final int START_DATE = 9;
+    private static final int DURATION = 10;
+    private static final int EXPIRE_TIME = 11;
+    // the pence of the fees is a long, it is split into two int columns, and a flag column of the null fees
+    private static final int FEES_HIGH = 12;
+    private static final int FEES_LOW = 13;
+    private static final int FEES_NULL = 14;
+    private static final int PARENT_ID = 15;
+    private static final int STATE = 16;
+    private static final int CUSTOMER_COLUMNS = 17;
+
+    // the consumption columns
+    private static final int ORDER_ID = 0;
+    private static final int CONSUMER = 1;
+    private static final int MEMBER_ID = 2;
+    private static final int CREATE_TIME = 3;
+    private static final int CONSUMPTION_FEES_HIGH = 4;
+    private static final int CONSUMPTION_FEES_LOW = 5;
+    private static final int CONSUMPTION_COLUMNS = 6;
+
+    private final ByteBuffer body;
+    private final Map<String, FileState> files = new HashMap<>();
+    private final int stringOffsets;
+    private final int stringData;
+    // the decoded strings, the same value is shared by all the rows
+    private final String[] strings;
+    private final int customerRows;
+    private final int customerColumns;
+    private final int consumptionRows;
+    private final int consumptionColumns;
+
+    private Snapshot(ByteBuffer body) {
+        this.body = body;
+        ByteBuffer reader = body.duplicate();
+        int fileCount = reader.getInt();
+        for(int i = 0; i < fileCount; i++) {
+            byte[] name = new byte[reader.getShort()];
+            reader.get(name);
+            files.put(new String(name, StandardCharsets.UTF_8),
+                    new FileState(reader.getLong(), reader.getLong(), reader.getInt(), reader.getInt()));
+        }
+        int stringCount = reader.getInt();
+        strings = new String[stringCount];
+        stringOffsets = reader.position();
+        stringData = stringOffsets + (stringCount + 1) * Integer.BYTES;
+        reader.position(stringData + body.getInt(stringOffsets + stringCount * Integer.BYTES));
+        customerRows = reader.getInt();
+        customerColumns = reader.position();
+        reader.position(customerColumns + customerRows * CUSTOMER_COLUMNS * Integer.BYTES);
+        consumptionRows = reader.getInt();
+        consumptionColumns = reader.position();
+    }
+
+    /**
+     * Map the snapshot file and check it
+     *
+     * @param file the snapshot file name
+     *
+     * @return the snapshot, or null if it is not exist, broken or an old version
+     */
+    static Snapshot open(String file) {
+        Path path = Paths.get(".", file);
+        if(! Files.exists(path)) {
+            return null;
+        }
+        // the mapping is still valid after the channel is closed
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size < HEADER_SIZE) {
+                Logger.warn("The snapshot is broken, load the csv files");
+                return null;
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if(buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+                Logger.info("The snapshot is an old version, load the csv files");
+                return null;
+            }
+            long length = buffer.getLong(Integer.BYTES * 2);
+            if(length != size - HEADER_SIZE) {
+                Logger.warn("The snapshot is broken, load the csv files");
+                return null;
+            }
+            ByteBuffer body = buffer.slice(HEADER_SIZE, (int) length);
+            CRC32 crc32 = new CRC32();
+            crc32.update(body.duplicate());
+            if(crc32.getValue() != buffer.getLong(Integer.BYTES * 2 + Long.BYTES)) {
+                Logger.warn("The snapshot checksum failed, load the csv files");
+                return null;
+            }
+            return new Snapshot(body);
+        } catch(IOException | RuntimeException e) {
+            Logger.error("Cannot open the snapshot: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Check the csv file is not changed after the snapshot, and restore the row counters of its store
+     *
+     * @param store the store of the csv file
+     *
+     * @return true if the snapshot can be used instead of the file
+     *
+     * @throws IOException if the file state cannot be read
+     */
+    boolean restore(CSVStore<?> store) throws IOException {
+        FileState state = files.get(store.getFile());
+        if(state == null || ! store.restore(state)) {
+            Logger.info("The snapshot of the " + store.getFile() + " is stale, load the csv file");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param roles find the role by its id
+     *
+     * @return the customers in the snapshot
+     */
+    List<CustomerDto> customers(Function<String, RoleDto> roles) {
+        List<CustomerDto> list = new ArrayList<>(customerRows);
+        for(int i = 0; i < customerRows; i++) {
+            int dateOfBirth = customer(i, DATE_OF_BIRTH);
+            long fees = join(customer(i, FEES_HIGH), customer(i, FEES_LOW));
+            list.add(new CustomerDto.Builder()
+                    .id(string(customer(i, ID)))
+                    .firstName(string(customer(i, FIRST_NAME)))
+                    .lastName(string(customer(i, LAST_NAME)))
+                    .birthDay(dateOfBirth)
+                    .gender(string(customer(i, GENDER)))
+                    .homeAddress(string(customer(i, HOME_ADDRESS)))
+                    .phoneNumber(string(customer(i, PHONE_NUMBER)))
+                    .healthCondition(string(customer(i, HEALTH_CONDITION)))
+                    .type(roles.apply(string(customer(i, ROLE))))
+                    .startDay(customer(i, START_DATE))
+                    .duration(customer(i, DURATION))
+                    .expireDay(customer(i, EXPIRE_TIME))
+                    .fees(customer(i, FEES_NULL) == 1 ? null : Money.ofMinor(fees))
+                    .parentId(string(customer(i, PARENT_ID)))
+                    .state(string(customer(i, STATE)))
+                    .age(DateUtil.calculateAge(dateOfBirth))
+                    .build());
+        }
+        return list;
+    }
+
+    /**
+     * @return the consumptions in the snapshot
+     */
+    List<Consumption> consumptions() {
+        List<Consumption> list = new ArrayList<>(consumptionRows);
+        for(int i = 0; i < consumptionRows; i++) {
+            list.add(new Consumption(
+                    string(consumption(i, ORDER_ID)),
+                    string(consumption(i, CONSUMER)),
+                    string(consumption(i, MEMBER_ID)),
+                    consumption(i, CREATE_TIME),
+                    Money.ofMinor(join(consumption(i, CONSUMPTION_FEES_HIGH), consumption(i, CONSUMPTION_FEES_LOW)))));
+        }
+        return list;
+    }
+
+    /**
+     * Write a new snapshot. It writes a temporary file first and then replace the old one.
+     *
+     * @param file         the snapshot file name
+     * @param files        the state of the csv files when the data is copied
+     * @param customers    the customers
+     * @param consumptions the consumptions
+     *
+     * @throws IOException if the file cannot be written
+     */
+    static void write(String file, Map<String, FileState> files, List<CustomerDto> customers,
+                      List<Consumption> consumptions) throws IOException {
+        StringTable table = new StringTable();
+        int rows = customers.size();
+        int[] customerValues = new int[rows * CUSTOMER_COLUMNS];
+        for(int i = 0; i < rows; i++) {
+            CustomerDto e = customers.get(i);
+            long fees = e.getFees() == null ? 0 : e.getFees().minor();
+            set(customerValues, rows, i, ID, table.add(e.getId()));
+            set(customerValues, rows, i, FIRST_NAME, table.add(e.getFirstName()));
+            set(customerValues, rows, i, LAST_NAME, table.add(e.getLastName()));
+            set(customerValues, rows, i, DATE_OF_BIRTH, e.getBirthDay());
+            set(customerValues, rows, i, GENDER, table.add(e.getGender()));
+            set(customerValues, rows, i, HOME_ADDRESS, table.add(e.getHomeAddress()));
+            set(customerValues, rows, i, PHONE_NUMBER, table.add(e.getPhoneNumber()));
+            set(customerValues, rows, i, HEALTH_CONDITION, table.add(e.getHealthCondition()));
+            set(customerValues, rows, i, ROLE, table.add(e.getRole() == null ? null : e.getRole().getRoleId()));
+            set(customerValues, rows, i, START_DATE, e.getStartDay());
+            set(customerValues, rows, i, DURATION, e.getDuration());
+            set(customerValues, rows, i, EXPIRE_TIME, e.getExpireDay());
+            set(customerValues, rows, i, FEES_HIGH, (int) (fees >>> 32));
+            set(customerValues, rows, i, FEES_LOW, (int) fees);
+            set(customerValues, rows, i, FEES_NULL, e.getFees() == null ? 1 : 0);
+            set(customerValues, rows, i, PARENT_ID, table.add(e.getParent()));
+            set(customerValues, rows, i, STATE, table.add(e.getState()));
+        }
+        rows = consumptions.size();
+        int[] consumptionValues = new int[rows * CONSUMPTION_COLUMNS];
+        for(int i = 0; i < rows; i++) {
+            Consumption e = consumptions.get(i);
+            set(consumptionValues, rows, i, ORDER_ID, table.add(e.orderId()));
+            set(consumptionValues, rows, i, CONSUMER, table.add(e.consumer()));
+            set(consumptionValues, rows, i, MEMBER_ID, table.add(e.memberId()));
+            set(consumptionValues, rows, i, CREATE_TIME, e.createDay());
+            set(consumptionValues, rows, i, CONSUMPTION_FEES_HIGH, (int) (e.fees().minor() >>> 32));
+            set(consumptionValues, rows, i, CONSUMPTION_FEES_LOW, (int) e.fees().minor());
+        }
+
+        // the file table
+        int length = Integer.BYTES;
+        Map<byte[], FileState> fileTable = new LinkedHashMap<>();
+        for(Map.Entry<String, FileState> entry : files.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            fileTable.put(name, entry.getValue());
+            length += Short.BYTES + name.length + Long.BYTES * 2 + Integer.BYTES * 2;
+        }
+        length += Integer.BYTES + (table.bytes.size() + 1) * Integer.BYTES + table.length;
+        length += Integer.BYTES + customerValues.length * Integer.BYTES;
+        length += Integer.BYTES + consumptionValues.length * Integer.BYTES;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(0);
+        buffer.putInt(fileTable.size());
+        fileTable.forEach((name, state) -> buffer.putShort((short) name.length)
+                .put(name)
+                .putLong(state.size())
+                .putLong(state.lastModified())
+                .putInt(state.liveRows())
+                .putInt(state.deadRows()));
+        buffer.putInt(table.bytes.size());
+        int offset = 0;
+        for(byte[] bytes : table.bytes) {
+            buffer.putInt(offset);
+            offset += bytes.length;
+        }
+        buffer.putInt(offset);
+        table.bytes.forEach(buffer::put);
+        buffer.putInt(customers.size());
+        buffer.asIntBuffer().put(customerValues);
+        buffer.position(buffer.position() + customerValues.length * Integer.BYTES);
+        buffer.putInt(consumptions.size());
+        buffer.asIntBuffer().put(consumptionValues);
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.array(), HEADER_SIZE, length);
+        buffer.putLong(Integer.BYTES * 2 + Long.BYTES, crc32.getValue());
+
+        Path tempPath = Paths.get(".", file + ".tmp");
+        try(FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.array());
+            while(bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        CSVStore.move(tempPath, Paths.get(".", file));
+    }
+
+    private int customer(int row, int column) {
+        return body.getInt(customerColumns + (column * customerRows + row) * Integer.BYTES);
+    }
+
+    private int consumption(int row, int column) {
+        return body.getInt(consumptionColumns + (column * consumptionRows + row) * Integer.BYTES);
+    }
+
+    // the long of the two int columns
+    private static long join(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    // decode the string when it is used first time
+    private String string(int index) {
+        if(index == NULL) {
+            return null;
+        }
+        String value = strings[index];
+        if(value == null) {
+            int start = body.getInt(stringOffsets + index * Integer.BYTES);
+            int end = body.getInt(stringOffsets + (index + 1) * Integer.BYTES);
+            byte[] bytes = new byte[end - start];
+            body.get(stringData + start, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    // the column is stored as a whole, so the values of one column are next to each other
+    private static void set(int[] values, int rows, int row, int column, int value) {
+        values[column * rows + row] = value;
+    }
+
+    /**
+     * The state of a csv file when the snapshot is taken, and the row counters of its store
+     */
+    record FileState(long size, long lastModified, int liveRows, int deadRows) {
+    }
+
+    // each distinct string is stored once
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> bytes = new ArrayList<>();
+        private int length;
+
+        private int add(String value) {
+            if(value == null) {
+                return NULL;
+            }
+            return indexes.computeIfAbsent(value, e -> {
+                byte[] encoded = e.getBytes(StandardCharsets.UTF_8);
+                bytes.add(encoded);
+                length += encoded.length;
+                return bytes.size() - 1;
+            });
+        }
+    }
+}
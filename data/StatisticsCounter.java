@@ -0,0 +1,128 @@
+package data;
+
+import bean.Consumption;
+import bean.Money;
+import bean.Statistics;
+import constant.CustomerSateEnum;
+import dto.CustomerDto;
+import utils.DateUtil;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class keeps the counters of the dashboard, so the dashboard never scans the lists
+ * <p>
+ * 1. The data source tells it each mutation, and each counter is changed in O(1)
+ * 2. The active members are kept by their ids, so an update only needs the new state of the member
+ * 3. The turnover only counts the consumptions of today. After the midnight it is counted again from the consumptions
+ * of the new day, this only happens once a day
+ * <p>
+ * All the methods should be called in the lock of the data source, since the day change reads the consumption list
+ */
+final class StatisticsCounter {
+    private final Supplier<List<Consumption>> consumptions;
+    private final Set<String> activeMembers = new HashSet<>();
+    private int users;
+    private int courses;
+    private int promotions;
+    // the epoch day of today
+    private int today;
+    // the pence of the turnover of today
+    private long turnover;
+
+    /**
+     * @param consumptions all the consumptions, only read when the day is changed
+     */
+    StatisticsCounter(Supplier<List<Consumption>> consumptions) {
+        this.consumptions = consumptions;
+    }
+
+    /**
+     * Count all the records again, it is used after the files are loaded
+     */
+    void reset(List<CustomerDto> customerList, int courseCount, int promotionCount) {
+        users = 0;
+        activeMembers.clear();
+        customerList.forEach(this::customerAdded);
+        courses = courseCount;
+        promotions = promotionCount;
+        today = DateUtil.today();
+        turnover = sumToday();
+    }
+
+    void customerAdded(CustomerDto customerDto) {
+        users++;
+        customerChanged(customerDto);
+    }
+
+    void customerChanged(CustomerDto customerDto) {
+        if(CustomerSateEnum.ACTIVE.getName().equals(customerDto.getState())) {
+            activeMembers.add(customerDto.getId());
+        } else {
+            activeMembers.remove(customerDto.getId());
+        }
+    }
+
+    void customerRemoved(CustomerDto customerDto) {
+        users--;
+        activeMembers.remove(customerDto.getId());
+    }
+
+    void consumptionAdded(Consumption consumption) {
+        rollover();
+        if(consumption.createDay() == today) {
+            turnover += consumption.fees().minor();
+        }
+    }
+
+    void consumptionRemoved(Consumption consumption) {
+        rollover();
+        if(consumption.createDay() == today) {
+            turnover -= consumption.fees().minor();
+        }
+    }
+
+    void coursesChanged(int delta) {
+        courses += delta;
+    }
+
+    void promotionsChanged(int delta) {
+        promotions += delta;
+    }
+
+    /**
+     * @param visitors the visitors of today
+     *
+     * @return a copy of the counters
+     */
+    Statistics snapshot(int visitors) {
+        rollover();
+        Statistics statistics = new Statistics();
+        statistics.setUsers(users);
+        statistics.setActiveUsers(activeMembers.size());
+        statistics.setFees(Money.ofMinor(turnover).toString());
+        statistics.setVisitors(visitors);
+        statistics.setCourses(courses);
+        statistics.setPromotionCode(promotions);
+        return statistics;
+    }
+
+    // count the turnover again if the day is changed
+    private void rollover() {
+        int now = DateUtil.today();
+        if(now != today) {
+            today = now;
+            turnover = sumToday();
+        }
+    }
+
+    private long sumToday() {
+        int day = today;
+        return Money.sum(consumptions.get(), e -> e.createDay() == day ? e.fees().minor() : 0);
+    }
+}
@@ -0,0 +1,101 @@
+package data;
+
+import constant.DataManipulateEnum;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class stages the mutations of one business operation and applies them together, it is created by
+ * see@DataSource.begin
+ * <p>
+ * 1. The lists, the indexes and the files are not changed before the commit, the staged mutations are only
+ * remembered in their order
+ * 2. The commit applies all of them in the lock of the data source and publishes one new version of the lists, so the
+ * readers see the lists before or after all of them
+ * 3. The records of all the mutations are written into the write-ahead log as one record, so a crash keeps all or
+ * none of them
+ * 4. The subscribers receive all the changes in one delivery, each subscriber gets one event of each action
+ * 5. If one of the mutations fails, the lists are put back to the version before the commit and nothing is published
+ * or written, see@DataSource.commit
+ * <p>
+ * An updated record is a new object, e.g. a changed copy of the stored one, and the commit swaps it for the stored
+ * one. The stored records are never changed, so the readers and a rolled back commit still have the old ones. A unit
+ * of work is used by one thread, and it can only be committed once
+ */
+public final class UnitOfWork {
+    private final List<Change> changes = new ArrayList<>();
+    private boolean committed;
+
+    UnitOfWork() {
+        // created by the data source
+    }
+
+    /**
+     * Stage the add action, see@DataSource.add
+     *
+     * @param t   the object need to be added
+     * @param <T> the generic type
+     *
+     * @return this unit of work
+     */
+    public <T> UnitOfWork add(T t) {
+        return stage(new Change(DataManipulateEnum.INSERT, t, null, List.of()));
+    }
+
+    /**
+     * Stage the update action, see@DataSource.update
+     *
+     * @param t   the new object of the record, it replaces the stored one at the commit
+     * @param <T> the generic type
+     *
+     * @return this unit of work
+     */
+    public <T> UnitOfWork update(T t) {
+        return stage(new Change(DataManipulateEnum.UPDATE, t, null, List.of()));
+    }
+
+    /**
+     * Stage the batch delete, see@DataSource.removeAll
+     *
+     * @param tClass the type of the objects, CustomerDto, Consumption or Promotion
+     * @param keys   the primary keys of the removed objects, they are copied
+     * @param <T>    the generic type
+     *
+     * @return this unit of work
+     */
+    public <T> UnitOfWork removeAll(Class<T> tClass, Collection<String> keys) {
+        return stage(new Change(DataManipulateEnum.DELETE, null, tClass, List.copyOf(keys)));
+    }
+
+    /**
+     * Apply all the staged mutations together
+     *
+     * @throws IllegalStateException    if it is already committed
+     * @throws IllegalArgumentException if a staged mutation cannot be applied, none of them is applied then
+     */
+    public void commit() {
+        if(committed) {
+            throw new IllegalStateException("The unit of work is already committed");
+        }
+        committed = true;
+        if(! changes.isEmpty()) {
+            DataSource.commit(changes);
+        }
+    }
+
+    private UnitOfWork stage(Change change) {
+        if(committed) {
+            throw new IllegalStateException("The unit of work is already committed");
+        }
+        changes.add(change);
+        return this;
+    }
+
+    // a staged mutation, the record of the add & update, or the type and the keys of the delete
+    record Change(DataManipulateEnum action, Object record, Class<?> type, Collection<String> keys) {
+    }
+}
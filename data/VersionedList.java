@@ -0,0 +1,123 @@
+package data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class keeps the records of a list of the data source, the readers only get its immutable views
+ * <p>
+ * 1. A view is an array and a size. An add writes the slot after the size and makes a new view, the slots of the old
+ * views are never written again, so an old view does not change and no copy is needed
+ * 2. A remove or a load replaces the whole array, the old views still keep the old array
+ * 3. The array only grows by half of its size, so an add is O(1) on average
+ * 4. An update replaces the records by their new objects, the array is copied first if a view has been made of it,
+ * so the old views still keep the old objects. The records themselves are never changed after they are added
+ * <p>
+ * The writer methods should be called in the lock of the data source. The views are published to the readers by the
+ * volatile version of the data source, see@DataVersion
+ *
+ * @param <E> the record type
+ */
+final class VersionedList<E> {
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] elements = EMPTY;
+    private int size;
+    // the view of the current records, it is created again after a change
+    private List<E> view;
+    // whether a view of the array is made, its slots before the size cannot be written again then
+    private boolean shared;
+
+    /**
+     * Replace all the records
+     *
+     * @param records the new records, they are copied
+     */
+    void reset(Collection<? extends E> records) {
+        elements = records.toArray();
+        size = elements.length;
+        view = null;
+        shared = false;
+    }
+
+    /**
+     * Add a record to the end
+     */
+    void add(E e) {
+        if(size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(size + (size >> 1), 16));
+            shared = false;
+        }
+        elements[size++] = e;
+        view = null;
+    }
+
+    /**
+     * Replace some records by their new objects, the positions of them are not changed
+     *
+     * @param replacements the new object of each replaced record, the map should compare the records by their
+     *                     identity, see@IdentityHashMap
+     */
+    void replace(Map<E, E> replacements) {
+        if(replacements.isEmpty()) {
+            return;
+        }
+        if(shared) {
+            elements = Arrays.copyOf(elements, elements.length);
+            shared = false;
+        }
+        for(int i = 0; i < size; i++) {
+            E e = replacements.get(elements[i]);
+            if(e != null) {
+                elements[i] = e;
+            }
+        }
+        view = null;
+    }
+
+    /**
+     * @return the immutable view of the current records
+     */
+    List<E> view() {
+        if(view == null) {
+            view = new View<>(elements, size);
+            shared = true;
+        }
+        return view;
+    }
+
+    // the records of a version, the slots after the size may be written by the later adds but never read by it
+    private static final class View<E> extends AbstractList<E> implements RandomAccess {
+        private final Object[] elements;
+        private final int size;
+
+        private View(Object[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E get(int index) {
+            Objects.checkIndex(index, size);
+            return (E) elements[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Arrays.copyOf(elements, size);
+        }
+    }
+}
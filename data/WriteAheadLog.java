@@ -0,0 +1,490 @@
+package data;
+
+import constant.DataManipulateEnum;
+import constant.DefaultDataConstant;
+import constant.FsyncPolicyEnum;
+import utils.Logger;
+import utils.Metrics;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class is the write-ahead log of the data source mutations
+ * <p>
+ * 1. Every add/update/remove is written into the log and forced to the disk before it is acknowledged
+ * 2. The log records are written by a single thread, it drains all the waiting records and forces them with one fsync
+ * (group commit). A mutation only queues its records in the lock of the data source, and waits for them after the
+ * lock is released, so the mutations of the other threads can join the same fsync
+ * 3. The csv files are the checkpoint. When the data source starts, the records in the log are replayed on top of the
+ * csv files. The replay is idempotent, a record is folded by its key just like the appended rows of the csv file
+ * 4. The log is split into segments, a checkpoint rolls a new segment and deletes the old ones after all the csv files
+ * are synced. The csv writes and the checkpoints are run by the writer thread in the order of the queue, so a
+ * checkpoint always comes after the csv writes of the records in the old segments
+ * 5. The records of a transaction are written as one batch record, so a crash keeps all or none of them
+ * <p>
+ * Record layout: int body length | int crc32 of body | body(long lsn | byte action | short file length | file |
+ * int payload length | payload), the payload is the csv row or the key of the removed record. The action of a batch
+ * record is BATCH, and its payload is the records of the transaction
+ */
+final class WriteAheadLog {
+    private static final String SUFFIX = ".wal";
+    private static final int HEADER_SIZE = 8;
+    // the action byte of a batch record, it is not an ordinal of the DataManipulateEnum
+    private static final byte BATCH = Byte.MAX_VALUE;
+    // the rows are the number of the records forced by one fsync
+    private static final Metrics.Timer WRITE_TIMER = Metrics.timer("wal.write");
+
+    private final Path directory;
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    // the rows need to be replayed of each file, filled by the recovery
+    private final Map<String, List<String>> recovered = new HashMap<>();
+    private final List<Path> rolledSegments = new ArrayList<>();
+    // the transaction of each thread, null if the thread is not in a transaction
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
+    // the records queued by each thread which are not waited yet, see@await
+    private final ThreadLocal<CompletableFuture<Void>> unsynced = new ThreadLocal<>();
+    private volatile FileChannel channel;
+    // null before the recovery
+    private volatile Thread writer;
+    private long segmentSequence;
+    private long lsn;
+    // a checkpoint is queued and not run yet
+    private boolean checkpointQueued;
+
+    WriteAheadLog(String directory) {
+        this.directory = Paths.get(".", directory);
+    }
+
+    /**
+     * Read all the segments in order. The reading stops at the first broken record (a crash in the middle of a write)
+     * and the broken tail is cut off. After the recovery, a new segment is opened for the appending.
+     *
+     * @throws IOException if the log cannot be read
+     */
+    synchronized void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = listSegments();
+        int count = 0;
+        for(Path segment : segments) {
+            count += recoverSegment(segment);
+            rolledSegments.add(segment);
+        }
+        if(count > 0) {
+            Logger.info("Write-ahead log recovered " + count + " records");
+        }
+        openSegment();
+        writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @param file the csv file name
+     *
+     * @return the rows written in the log but may not in the csv file, the removal is a tombstone row
+     */
+    synchronized List<String> recovered(String file) {
+        return recovered.getOrDefault(file, List.of());
+    }
+
+    /**
+     * Queue the records, they are written by the writer thread and then the csv write is submitted by it. It does not
+     * wait for the records, the caller should call the await method after it releases its locks.
+     *
+     * @param action   the mutation type
+     * @param file     the csv file name
+     * @param payloads the csv rows, or the keys of the removed records
+     * @param then     submit the csv write after the records are durable
+     */
+    void log(DataManipulateEnum action, String file, Collection<String> payloads, Runnable then) {
+        Transaction current = transaction.get();
+        if(current != null) {
+            synchronized(this) {
+                for(String payload : payloads) {
+                    current.records.add(encode(++ lsn, action, file, payload));
+                }
+            }
+            current.thens.add(then);
+            return;
+        }
+        List<byte[]> records = new ArrayList<>(payloads.size());
+        synchronized(this) {
+            for(String payload : payloads) {
+                records.add(encode(++ lsn, action, file, payload));
+            }
+            // the records of one call are written together, the csv write follows them
+            enqueue(new PendingRecord(records.size() == 1 ? records.get(0) : concat(records), then));
+        }
+    }
+
+    /**
+     * Run the mutations as a transaction. The records logged by them are kept until the mutations end, then they are
+     * queued as one batch record, and the csv writes are submitted after it is durable
+     *
+     * @param mutations the mutations, they log the records in this thread
+     *
+     * @throws RuntimeException if the mutations fail, nothing is written then
+     */
+    void transaction(Runnable mutations) {
+        Transaction current = new Transaction();
+        transaction.set(current);
+        try {
+            mutations.run();
+        } finally {
+            transaction.remove();
+        }
+        if(current.records.isEmpty()) {
+            return;
+        }
+        synchronized(this) {
+            enqueue(new PendingRecord(encode(++ lsn, BATCH, new byte[0], concat(current.records)),
+                    () -> current.thens.forEach(Runnable::run)));
+        }
+    }
+
+    /**
+     * Wait until all the records queued by this thread are forced to the disk
+     *
+     * @throws RuntimeException if the records cannot be written
+     */
+    void await() {
+        CompletableFuture<Void> future = unsynced.get();
+        if(future == null) {
+            return;
+        }
+        unsynced.remove();
+        try {
+            future.join();
+        } catch(CompletionException e) {
+            Logger.error(e.getCause().getMessage());
+            throw new RuntimeException("Cannot write the write-ahead log");
+        }
+    }
+
+    /**
+     * Run a task after the csv writes of all the queued records are submitted
+     *
+     * @param task the task, ex. sync the csv files, it is run by the writer thread
+     *
+     * @return the future of the task
+     */
+    CompletableFuture<Void> afterQueued(Supplier<CompletableFuture<Void>> task) {
+        // nothing can be queued before the recovery
+        if(writer == null) {
+            return task.get();
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        queue.add(PendingRecord.barrier(() -> task.get().whenComplete((result, e) -> {
+            if(e != null) {
+                done.completeExceptionally(e);
+            } else {
+                done.complete(null);
+            }
+        })));
+        return done;
+    }
+
+    /**
+     * @return the size of current segment
+     */
+    long size() {
+        try {
+            return channel.size();
+        } catch(IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Queue a checkpoint. The writer rolls a new segment after the records before it, then waits for all the csv
+     * files synced and deletes the old segments
+     *
+     * @param syncAll sync all the csv files, it is invoked after the csv writes of the old segments are submitted
+     */
+    void checkpoint(Supplier<CompletableFuture<Void>> syncAll) {
+        synchronized(this) {
+            if(checkpointQueued) {
+                return;
+            }
+            checkpointQueued = true;
+        }
+        queue.add(PendingRecord.barrier(() -> roll(syncAll)));
+    }
+
+    // only called by the writer thread
+    private void roll(Supplier<CompletableFuture<Void>> syncAll) {
+        List<Path> segments;
+        try {
+            synchronized(this) {
+                checkpointQueued = false;
+                openSegment();
+                segments = new ArrayList<>(rolledSegments);
+                rolledSegments.clear();
+                recovered.clear();
+            }
+        } catch(IOException e) {
+            Logger.error("Cannot roll the write-ahead log: " + e.getMessage());
+            return;
+        }
+        syncAll.get().thenRun(() -> {
+            for(Path segment : segments) {
+                try {
+                    Files.deleteIfExists(segment);
+                } catch(IOException e) {
+                    Logger.error(e.getMessage());
+                }
+            }
+            Logger.info("Write-ahead log checkpoint successfully");
+        }).exceptionally(e -> {
+            // keep the old segments, they will be replayed next time
+            Logger.error("Write-ahead log checkpoint failed: " + e.getMessage());
+            return null;
+        });
+    }
+
+    // queue a record and remember it in the records of this thread, it should be called in the lock
+    private void enqueue(PendingRecord record) {
+        queue.add(record);
+        CompletableFuture<Void> previous = unsynced.get();
+        // the finished futures are dropped, a failed one is kept until it is waited
+        if(previous == null || (previous.isDone() && ! previous.isCompletedExceptionally())) {
+            unsynced.set(record.future);
+        } else {
+            unsynced.set(CompletableFuture.allOf(previous, record.future));
+        }
+    }
+
+    // the single writer, it writes all the waiting records and forces them together
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        List<PendingRecord> records = new ArrayList<>();
+        while(true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for(PendingRecord record : batch) {
+                    if(record.bytes != null) {
+                        records.add(record);
+                        continue;
+                    }
+                    // a barrier runs after the records before it
+                    write(records);
+                    records.clear();
+                    runQuietly(record.then);
+                }
+                write(records);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+                records.clear();
+            }
+        }
+    }
+
+    // write and force the records with one fsync, then submit their csv writes in order
+    private void write(List<PendingRecord> records) {
+        if(records.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            int size = 0;
+            for(PendingRecord record : records) {
+                size += record.bytes.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for(PendingRecord record : records) {
+                buffer.put(record.bytes);
+            }
+            buffer.flip();
+            FileChannel fileChannel = channel;
+            while(buffer.hasRemaining()) {
+                fileChannel.write(buffer);
+            }
+            if(DefaultDataConstant.FSYNC_POLICY != FsyncPolicyEnum.NEVER) {
+                fileChannel.force(false);
+            }
+        } catch(IOException e) {
+            records.forEach(record -> record.future.completeExceptionally(e));
+            return;
+        }
+        WRITE_TIMER.stop(start, records.size());
+        for(PendingRecord record : records) {
+            runQuietly(record.then);
+            record.future.complete(null);
+        }
+    }
+
+    private static void runQuietly(Runnable task) {
+        try {
+            task.run();
+        } catch(RuntimeException e) {
+            Logger.error("Write-ahead log task failed: " + e.getMessage());
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try(Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(e -> e.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparingLong(WriteAheadLog::sequenceOf))
+                    .toList();
+        }
+    }
+
+    private int recoverSegment(Path segment) throws IOException {
+        segmentSequence = Math.max(segmentSequence, sequenceOf(segment));
+        int count = 0;
+        try(FileChannel fileChannel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) fileChannel.size());
+            while(buffer.hasRemaining() && fileChannel.read(buffer) > 0) {
+                // read the whole segment
+            }
+            buffer.flip();
+            int valid = 0;
+            CRC32 crc32 = new CRC32();
+            try {
+                while(buffer.remaining() >= HEADER_SIZE) {
+                    int length = buffer.getInt();
+                    int checksum = buffer.getInt();
+                    if(length <= 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    ByteBuffer body = buffer.slice(buffer.position(), length);
+                    crc32.reset();
+                    crc32.update(body.duplicate());
+                    if((int) crc32.getValue() != checksum) {
+                        break;
+                    }
+                    buffer.position(buffer.position() + length);
+                    replay(body);
+                    valid = buffer.position();
+                    count++;
+                }
+            } catch(BufferUnderflowException e) {
+                // a broken body, the valid length is not moved
+            }
+            if(valid < fileChannel.size()) {
+                Logger.warn("Write-ahead log " + segment.getFileName() + " has a broken tail, cut it off");
+                fileChannel.truncate(valid);
+            }
+        }
+        return count;
+    }
+
+    private void replay(ByteBuffer body) {
+        lsn = Math.max(lsn, body.getLong());
+        byte actionByte = body.get();
+        byte[] file = new byte[body.getShort()];
+        body.get(file);
+        byte[] payload = new byte[body.getInt()];
+        body.get(payload);
+        if(actionByte == BATCH) {
+            // the checksum of the batch covers its records
+            ByteBuffer records = ByteBuffer.wrap(payload);
+            while(records.hasRemaining()) {
+                int length = records.getInt();
+                records.getInt();
+                replay(records.slice(records.position(), length));
+                records.position(records.position() + length);
+            }
+            return;
+        }
+        DataManipulateEnum action = DataManipulateEnum.values()[actionByte];
+        String row = new String(payload, StandardCharsets.UTF_8);
+        if(action == DataManipulateEnum.DELETE) {
+            row = CSVStore.TOMBSTONE + "," + row;
+        }
+        recovered.computeIfAbsent(new String(file, StandardCharsets.UTF_8), e -> new ArrayList<>()).add(row);
+    }
+
+    // open a new segment and remember the current one as rolled
+    private void openSegment() throws IOException {
+        Path segment = directory.resolve("datasource-" + (++ segmentSequence) + SUFFIX);
+        FileChannel newChannel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        FileChannel oldChannel = channel;
+        channel = newChannel;
+        if(oldChannel != null) {
+            oldChannel.close();
+            rolledSegments.add(directory.resolve("datasource-" + (segmentSequence - 1) + SUFFIX));
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(name.indexOf('-') + 1, name.length() - SUFFIX.length()));
+        } catch(NumberFormatException | StringIndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] encode(long lsn, DataManipulateEnum action, String file, String payload) {
+        return encode(lsn, (byte) action.ordinal(), file.getBytes(StandardCharsets.UTF_8),
+                payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] encode(long lsn, byte action, byte[] fileBytes, byte[] payloadBytes) {
+        int length = Long.BYTES + 1 + Short.BYTES + fileBytes.length + Integer.BYTES + payloadBytes.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.putLong(lsn);
+        buffer.put(action);
+        buffer.putShort((short) fileBytes.length);
+        buffer.put(fileBytes);
+        buffer.putInt(payloadBytes.length);
+        buffer.put(payloadBytes);
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.array(), HEADER_SIZE, length);
+        buffer.putInt(Integer.BYTES, (int) crc32.getValue());
+        return buffer.array();
+    }
+
+    private static byte[] concat(List<byte[]> records) {
+        int size = 0;
+        for(byte[] record : records) {
+            size += record.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        records.forEach(buffer::put);
+        return buffer.array();
+    }
+
+    // the records and the csv writes of a transaction, they wait for the end of it
+    private static final class Transaction {
+        private final List<byte[]> records = new ArrayList<>();
+        private final List<Runnable> thens = new ArrayList<>();
+    }
+
+    // a record waits for the writer, and the csv write after it. A barrier has no bytes, it only runs the task
+    private record PendingRecord(byte[] bytes, Runnable then, CompletableFuture<Void> future) {
+        PendingRecord(byte[] bytes, Runnable then) {
+            this(bytes, then, new CompletableFuture<>());
+        }
+
+        static PendingRecord barrier(Runnable task) {
+            return new PendingRecord(null, task);
+        }
+    }
+}
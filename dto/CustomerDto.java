@@ -1,9 +1,9 @@
 package dto;
 
+import bean.Money;
 import utils.DateUtil;
 import utils.StringUtil;
 
-import java.math.BigDecimal;
 import java.text.MessageFormat;
 import java.util.Date;
 
@@ -11,12 +11,15 @@ import java.util.Date;
  * @author lomofu
  * <p>
  * This class is an extension of customer class
+ * <p>
+ * The dates are kept as the number of days from 1970-01-01, so comparing two dates is comparing two ints.
+ * The Date getters and setters are only a conversion for the ui
  */
 public class CustomerDto {
     private String id = "";
     private String firstName = "";
     private String lastName = "";
-    private Date dateOfBirth;
+    private int dateOfBirth = DateUtil.NO_DAY;
     private String gender = "";
     private String homeAddress = "";
     private String phoneNumber = "";
@@ -24,9 +27,9 @@ public class CustomerDto {
     private int age;
     private int duration;
     private RoleDto roleDto;
-    private Date startDate;
-    private Date expireTime;
-    private BigDecimal fees;
+    private int startDate = DateUtil.NO_DAY;
+    private int expireTime = DateUtil.NO_DAY;
+    private Money fees;
     private String state = "";
     private String parentId = "";
 
@@ -79,10 +82,18 @@ public class CustomerDto {
     }
 
     public Date getDateOfBirth() {
-        return dateOfBirth;
+        return DateUtil.toDate(dateOfBirth);
     }
 
     public void setDateOfBirth(Date dateOfBirth) {
+        this.dateOfBirth = DateUtil.toDay(dateOfBirth);
+    }
+
+    public int getBirthDay() {
+        return dateOfBirth;
+    }
+
+    public void setBirthDay(int dateOfBirth) {
         this.dateOfBirth = dateOfBirth;
     }
 
@@ -143,26 +154,42 @@ public class CustomerDto {
     }
 
     public Date getStartDate() {
-        return startDate;
+        return DateUtil.toDate(startDate);
     }
 
     public void setStartDate(Date startDate) {
+        this.startDate = DateUtil.toDay(startDate);
+    }
+
+    public int getStartDay() {
+        return startDate;
+    }
+
+    public void setStartDay(int startDate) {
         this.startDate = startDate;
     }
 
     public Date getExpireTime() {
-        return expireTime;
+        return DateUtil.toDate(expireTime);
     }
 
     public void setExpireTime(Date expireTime) {
+        this.expireTime = DateUtil.toDay(expireTime);
+    }
+
+    public int getExpireDay() {
+        return expireTime;
+    }
+
+    public void setExpireDay(int expireTime) {
         this.expireTime = expireTime;
     }
 
-    public BigDecimal getFees() {
+    public Money getFees() {
         return fees;
     }
 
-    public void setFees(BigDecimal fees) {
+    public void setFees(Money fees) {
         this.fees = fees;
     }
 
@@ -189,15 +216,15 @@ public class CustomerDto {
                 id,
                 StringUtil.escapeSpecialCharacters(firstName),
                 StringUtil.escapeSpecialCharacters(lastName),
-                DateUtil.format(dateOfBirth),
+                DateUtil.formatDay(dateOfBirth),
                 gender,
                 StringUtil.escapeSpecialCharacters(homeAddress),
                 phoneNumber,
                 StringUtil.escapeSpecialCharacters(healthCondition),
                 roleDto.getRoleId(),
-                DateUtil.format(startDate),
+                DateUtil.formatDay(startDate),
                 duration,
-                DateUtil.format(expireTime),
+                DateUtil.formatDay(expireTime),
                 fees.toString(),
                 parentId,
                 state);
@@ -224,6 +251,11 @@ public class CustomerDto {
         }
 
         public Builder dateOfBirth(Date dateOfBirth) {
+            this.customerDto.dateOfBirth = DateUtil.toDay(dateOfBirth);
+            return this;
+        }
+
+        public Builder birthDay(int dateOfBirth) {
             this.customerDto.dateOfBirth = dateOfBirth;
             return this;
         }
@@ -264,16 +296,26 @@ public class CustomerDto {
         }
 
         public Builder startDate(Date startDate) {
+            this.customerDto.startDate = DateUtil.toDay(startDate);
+            return this;
+        }
+
+        public Builder startDay(int startDate) {
             this.customerDto.startDate = startDate;
             return this;
         }
 
         public Builder expireTime(Date expireTime) {
+            this.customerDto.expireTime = DateUtil.toDay(expireTime);
+            return this;
+        }
+
+        public Builder expireDay(int expireTime) {
             this.customerDto.expireTime = expireTime;
             return this;
         }
 
-        public Builder fees(BigDecimal fees) {
+        public Builder fees(Money fees) {
             this.customerDto.fees = fees;
             return this;
         }
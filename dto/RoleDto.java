@@ -1,9 +1,9 @@
 package dto;
 
 import bean.Course;
+import bean.Money;
 import utils.StringUtil;
 
-import java.math.BigDecimal;
 import java.text.MessageFormat;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -16,10 +16,10 @@ import java.util.stream.Collectors;
 public class RoleDto {
     private String roleId;
     private String roleName;
-    private BigDecimal oneMonth;
-    private BigDecimal threeMonth;
-    private BigDecimal halfYear;
-    private BigDecimal fullYear;
+    private Money oneMonth;
+    private Money threeMonth;
+    private Money halfYear;
+    private Money fullYear;
     private boolean gym;
     private boolean swimmingPool;
     private List<Course> courseList;
@@ -57,35 +57,35 @@ public class RoleDto {
         this.roleName = roleName;
     }
 
-    public BigDecimal getOneMonth() {
+    public Money getOneMonth() {
         return oneMonth;
     }
 
-    public void setOneMonth(BigDecimal oneMonth) {
+    public void setOneMonth(Money oneMonth) {
         this.oneMonth = oneMonth;
     }
 
-    public BigDecimal getThreeMonth() {
+    public Money getThreeMonth() {
         return threeMonth;
     }
 
-    public void setThreeMonth(BigDecimal threeMonth) {
+    public void setThreeMonth(Money threeMonth) {
         this.threeMonth = threeMonth;
     }
 
-    public BigDecimal getHalfYear() {
+    public Money getHalfYear() {
         return halfYear;
     }
 
-    public void setHalfYear(BigDecimal halfYear) {
+    public void setHalfYear(Money halfYear) {
         this.halfYear = halfYear;
     }
 
-    public BigDecimal getFullYear() {
+    public Money getFullYear() {
         return fullYear;
     }
 
-    public void setFullYear(BigDecimal fullYear) {
+    public void setFullYear(Money fullYear) {
         this.fullYear = fullYear;
     }
 
@@ -154,22 +154,22 @@ public class RoleDto {
             return this;
         }
 
-        public Builder oneMonth(BigDecimal oneMonth) {
+        public Builder oneMonth(Money oneMonth) {
             this.roleDto.oneMonth = oneMonth;
             return this;
         }
 
-        public Builder threeMonth(BigDecimal threeMonth) {
+        public Builder threeMonth(Money threeMonth) {
             this.roleDto.threeMonth = threeMonth;
             return this;
         }
 
-        public Builder halfYear(BigDecimal halfYear) {
+        public Builder halfYear(Money halfYear) {
             this.roleDto.halfYear = halfYear;
             return this;
         }
 
-        public Builder fullYear(BigDecimal fullYear) {
+        public Builder fullYear(Money fullYear) {
             this.roleDto.fullYear = fullYear;
             return this;
         }
@@ -9,17 +9,27 @@ import java.util.Objects;
  * @author lomofu
  * <p>
  * This class is an extension of visitor class
+ * <p>
+ * The date is kept as the number of days from 1970-01-01, the Date getter and setter are only a conversion for the ui
  */
 public class VisitorDto {
-    private Date date = new Date();
+    private int day = DateUtil.today();
     private int count = 0;
 
     public Date getDate() {
-        return date;
+        return DateUtil.toDate(day);
     }
 
     public void setDate(Date date) {
-        this.date = date;
+        this.day = DateUtil.toDay(date);
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public void setDay(int day) {
+        this.day = day;
     }
 
     public int getCount() {
@@ -38,16 +48,16 @@ public class VisitorDto {
         if (o == null || getClass() != o.getClass())
             return false;
         VisitorDto that = (VisitorDto) o;
-        return count == that.count && Objects.equals(date, that.date);
+        return count == that.count && day == that.day;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(date, count);
+        return Objects.hash(day, count);
     }
 
     @Override
     public String toString() {
-        return DateUtil.format(date) + "," + count;
+        return DateUtil.formatDay(day) + "," + count;
     }
 }
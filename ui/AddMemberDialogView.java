@@ -1,5 +1,6 @@
 package ui;
 
+import bean.Money;
 import bean.Promotion;
 import bean.Validation;
 import component.MyCard;
@@ -22,7 +23,6 @@ import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.PlainDocument;
 import java.awt.*;
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.*;
@@ -172,7 +172,7 @@ public class AddMemberDialogView extends JDialog implements Validator {
     public void syncParentInfo(CustomerDto parent) {
         startDateTextField.setDate(parent.getStartDate());
         durationComboBox.setSelectedItem(String.valueOf(parent.getDuration()));
-        expireTimeValue.setText(DateUtil.format(parent.getExpireTime()));
+        expireTimeValue.setText(DateUtil.formatDay(parent.getExpireDay()));
         membershipFeesValue.setText("0"); // the sub-account will not have a fee
         parentIdValue.setText(parent.getId());
 
@@ -596,7 +596,7 @@ public class AddMemberDialogView extends JDialog implements Validator {
                                     .map(Integer::parseInt)
                                     .orElse(- 1))
                     .parentId(parentIdValue.getText())
-                    .fees(new BigDecimal(membershipFeesValue.getText()))
+                    .fees(Money.parse(membershipFeesValue.getText()))
                     .build();
 
             // judge this dialog is a transform situation
@@ -652,7 +652,7 @@ public class AddMemberDialogView extends JDialog implements Validator {
         if(DefaultDataConstant.DEFAULT_MEMBERS[1].getRoleName().equals(type) && ! "".equals(mid)) {
             return;
         }
-        BigDecimal fees = FeesService.getFees(type, duration);
+        Money fees = FeesService.getFees(type, duration);
         discountLabel.setVisible(false);
         discountValue.setVisible(false);
         discountValue.setText("0");
@@ -670,7 +670,7 @@ public class AddMemberDialogView extends JDialog implements Validator {
         }
         String duration = (String) durationComboBox.getSelectedItem();
         String code = codeTextField.getText();
-        BigDecimal[] fees = FeesService.getFees(type, duration, code);
+        Money[] fees = FeesService.getFees(type, duration, code);
 
         discountLabel.setVisible(true);
         discountValue.setVisible(true);
@@ -1,5 +1,6 @@
 package ui;
 
+import bean.Money;
 import component.MyCard;
 import constant.DefaultDataConstant;
 import core.MembershipService;
@@ -240,7 +241,7 @@ public class AddVisitorDialogView extends JDialog {
             );
             if(result == JOptionPane.YES_OPTION) {
                 String fees = feesValue.getText();
-                VisitorService.saveVisitorRecord(memberId, fees);
+                VisitorService.saveVisitorRecord(memberId, Money.parse(fees));
                 this.dispose();
             }
         });
@@ -3,7 +3,6 @@ package ui;
 import component.ConsumptionTable;
 import component.MyTable;
 import constant.UIConstant;
-import core.ConsumptionService;
 
 import javax.swing.*;
 import java.awt.*;
@@ -18,7 +17,7 @@ public class CheckConsumptionDialogView extends JDialog {
         initDialog(owner);
 
         MyTable consumptionTable =
-                new ConsumptionTable((ClubFrameView) owner, "Personal Consumption Table", UIConstant.CONSUMPTION_COLUMNS, ConsumptionService.findConsumptionsByMemberIdForRender(memberId), false);
+                new ConsumptionTable((ClubFrameView) owner, "Personal Consumption Table", UIConstant.CONSUMPTION_COLUMNS, memberId);
 
         // Initialize the layout of the table
         Box verticalBox = Box.createVerticalBox();
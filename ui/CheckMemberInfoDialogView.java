@@ -117,7 +117,7 @@ public class CheckMemberInfoDialogView extends JDialog {
         firstNameTextField.setText(customerDto.getFirstName());
         lastNameTextField.setText(customerDto.getLastName());
 
-        String dateOfBirth = DateUtil.format(customerDto.getDateOfBirth());
+        String dateOfBirth = DateUtil.formatDay(customerDto.getBirthDay());
         if ("".equals(dateOfBirth)) {
             dateOfBirthTextField.setText("No data");
         } else {
@@ -169,7 +169,7 @@ public class CheckMemberInfoDialogView extends JDialog {
             parentIdValue.setText(parent);
         }
 
-        String startDate = DateUtil.format(customerDto.getStartDate());
+        String startDate = DateUtil.formatDay(customerDto.getStartDay());
         if ("".equals(startDate)) {
             startDateTextField.setText("No data");
         } else {
@@ -183,7 +183,7 @@ public class CheckMemberInfoDialogView extends JDialog {
             durationComboBox.setText(duration);
         }
 
-        String expireTime = DateUtil.format(customerDto.getExpireTime());
+        String expireTime = DateUtil.formatDay(customerDto.getExpireDay());
         if ("".equals(expireTime)) {
             expireTimeValue.setText("No data");
         } else {
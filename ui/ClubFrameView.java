@@ -1,11 +1,15 @@
 package ui;
 
 import constant.UIConstant;
-import utils.Logger;
+import utils.Progress;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.concurrent.TimeUnit;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.util.List;
+import java.util.*;
 
 /**
  * @author lomofu
@@ -15,7 +19,9 @@ import java.util.concurrent.TimeUnit;
 public class ClubFrameView extends JFrame {
     // set the bottom tool if there is an IO operation you can see the sync progress bar
     private static Box statePanel = Box.createHorizontalBox();
-    private static JProgressBar progressBar = new JProgressBar();
+    // one progress bar for each running io job, only used in the event dispatch thread
+    private static Box progressPanel = Box.createHorizontalBox();
+    private static Map<Long, JProgressBar> progressBars = new HashMap<>();
 
     static {
         JFrame.setDefaultLookAndFeelDecorated(true);
@@ -39,59 +45,55 @@ public class ClubFrameView extends JFrame {
     }
 
     /**
-     * This method sets the length of progress bar
+     * This method shows a progress bar for each running io job, it is called by the progress reporter in the event
+     * dispatch thread
      *
-     * @param count
+     * @param jobs the states of the running jobs
      */
-    public static void syncState(int count) {
-        statePanel.setVisible(true);
-        progressBar.setMaximum(count);
-        progressBar.setValue(0);
-    }
-
-    /**
-     * This method exposures the progress bar
-     */
-    public static void updateProgressBar() {
-        try {
-            var i = progressBar.getValue();
-            i++;
-            if(i > progressBar.getMaximum()) {
-                progressBar.setValue(0);
+    private static void showProgress(List<Progress.JobState> jobs) {
+        Set<Long> running = new HashSet<>();
+        for(Progress.JobState job : jobs) {
+            running.add(job.id());
+            JProgressBar progressBar = progressBars.computeIfAbsent(job.id(), e -> createProgressBar());
+            if(job.total() > 0) {
+                progressBar.setIndeterminate(false);
+                progressBar.setMaximum((int) Math.min(job.total(), Integer.MAX_VALUE));
+                progressBar.setValue((int) Math.min(job.done(), Integer.MAX_VALUE));
+                progressBar.setString(job.name() + " " + job.done() + "/" + job.total() + " (" + job.rowsPerSecond() + " rows/s)");
+            } else {
+                progressBar.setIndeterminate(true);
+                progressBar.setString(job.name() + " " + job.done() + " (" + job.rowsPerSecond() + " rows/s)");
             }
-            Thread.sleep(500);
-            progressBar.setValue(i);
-        } catch(InterruptedException e) {
-            removeSyncState();
-            Logger.error(e.getMessage());
         }
+        // the finished jobs are not in the list any more
+        progressBars.entrySet().removeIf(e -> {
+            if(running.contains(e.getKey())) {
+                return false;
+            }
+            progressPanel.remove(e.getValue());
+            return true;
+        });
+        statePanel.setVisible(! progressBars.isEmpty());
+        statePanel.revalidate();
+        statePanel.repaint();
     }
 
-    /**
-     * This method finishes the progress bar
-     */
-    public static void removeSyncState() {
-        try {
-            TimeUnit.SECONDS.sleep(1);
-        } catch(InterruptedException e) {
-            System.out.println(e.getMessage());
-        }
-        statePanel.setVisible(false);
-        progressBar.setValue(0);
+    private static JProgressBar createProgressBar() {
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        progressBar.setMinimum(0);
+        progressBar.setMaximumSize(new Dimension(400, 30));
+        progressPanel.add(progressBar);
+        return progressBar;
     }
 
     private static void initStateTool() {
-        progressBar.setStringPainted(true);
-        progressBar.setIndeterminate(false);
-        progressBar.setString("Sync");
-        progressBar.setValue(0);
-        progressBar.setMinimum(0);
-        progressBar.setMaximumSize(new Dimension(150, 30));
         statePanel.setFocusable(false);
         statePanel.add(Box.createHorizontalGlue());
-        statePanel.add(progressBar);
+        statePanel.add(progressPanel);
         statePanel.add(Box.createHorizontalStrut(10));
         statePanel.setVisible(false);
+        Progress.addListener(ClubFrameView::showProgress);
     }
 
     private void initLeftMenu() {
@@ -114,6 +116,26 @@ public class ClubFrameView extends JFrame {
         this.leftMenuView.addTab(UIConstant.MENU_LIST[4][0], new CourseView(this));
         this.leftMenuView.addTab(UIConstant.MENU_LIST[5][0], new PromotionView(this));
         this.leftMenuView.addTab(UIConstant.MENU_LIST[6][0], new VisitorView(this));
+        initDiagnostics();
+    }
+
+    /**
+     * The diagnostics tab has no menu button, it is opened by ctrl + shift + D
+     */
+    private void initDiagnostics() {
+        DiagnosticsView diagnosticsView = new DiagnosticsView();
+        this.leftMenuView.addTab("Diagnostics", diagnosticsView);
+        JRootPane rootPane = this.getRootPane();
+        rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_D, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK),
+                        "diagnostics");
+        rootPane.getActionMap().put("diagnostics", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                diagnosticsView.refresh();
+                leftMenuView.getTabbedPane().setSelectedComponent(diagnosticsView);
+            }
+        });
     }
 
     private void initFrame() {
@@ -4,7 +4,6 @@ import component.ConsumptionTable;
 import component.MyPanel;
 import component.MyTable;
 import constant.UIConstant;
-import core.ConsumptionService;
 
 import javax.swing.*;
 import java.awt.*;
@@ -20,7 +19,7 @@ public class ConsumptionView extends MyPanel {
 
         // init the consumption table
         MyTable consumptionTable =
-                new ConsumptionTable(clubFrameView, "Consumption Table", UIConstant.CONSUMPTION_COLUMNS, ConsumptionService.findConsumptionsForTableRender());
+                new ConsumptionTable(clubFrameView, "Consumption Table", UIConstant.CONSUMPTION_COLUMNS);
 
         // set the layout of the panel
         Box verticalBox = Box.createVerticalBox();
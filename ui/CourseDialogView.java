@@ -231,6 +231,8 @@ public class CourseDialogView extends JDialog implements Validator {
                         this, this.valid(), "Invalid Input", JOptionPane.INFORMATION_MESSAGE);
                 return;
             }
+            // the edited course is the stored one, so the changes are made on a new one
+            Course course = new Course();
             course.setCourseId(courseIdTextField.getText());
             course.setCourseName(courseNameTextField.getText());
             CourseService.update(course);
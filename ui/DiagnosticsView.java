@@ -0,0 +1,78 @@
+package ui;
+
+import constant.ColorConstant;
+import constant.UIConstant;
+import utils.Metrics;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class shows the performance metrics, it is opened by ctrl + shift + D and has no menu button
+ * <p>
+ * The table is refreshed every 2 seconds only when the panel is shown, so it costs nothing in the other tabs
+ */
+public class DiagnosticsView extends JPanel {
+    private static final int REFRESH_INTERVAL = 2000;
+
+    private final DefaultTableModel tableModel = new DefaultTableModel(UIConstant.DIAGNOSTICS_COLUMNS, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+
+    public DiagnosticsView() {
+        super(new BorderLayout());
+
+        var header = new JLabel("Diagnostics", SwingConstants.CENTER);
+        header.setFont(new Font(null, Font.BOLD, 20));
+        header.setForeground(Color.WHITE);
+        JPanel title = new JPanel();
+        title.setBackground(ColorConstant.PANTONE2727C);
+        title.add(header);
+
+        JTable jTable = new JTable(tableModel);
+        jTable.setRowHeight(30);
+        jTable.setShowHorizontalLines(false);
+
+        this.add(title, BorderLayout.NORTH);
+        this.add(new JScrollPane(jTable), BorderLayout.CENTER);
+
+        new Timer(REFRESH_INTERVAL, e -> {
+            if(isShowing()) {
+                refresh();
+            }
+        }).start();
+    }
+
+    /**
+     * Read all the metrics again
+     */
+    public void refresh() {
+        List<Object[]> rows = new ArrayList<>();
+        for(Map.Entry<String, Metrics.Timer> entry : Metrics.timers().entrySet()) {
+            Metrics.Timer timer = entry.getValue();
+            rows.add(new Object[]{entry.getKey(), "Timer", timer.getCount(), format(timer.getP50Millis()),
+                    format(timer.getP99Millis()), format(timer.getMaxMillis()), timer.getRowsPerSecond(), ""});
+        }
+        Metrics.counters().forEach((name, counter) ->
+                rows.add(new Object[]{name, "Counter", counter.getCount(), "", "", "", "", ""}));
+        Metrics.gauges().forEach((name, gauge) ->
+                rows.add(new Object[]{name, "Gauge", "", "", "", "", "", gauge.getValue()}));
+        Runtime runtime = Runtime.getRuntime();
+        rows.add(new Object[]{"jvm.heap.used.bytes", "Gauge", "", "", "", "", "",
+                runtime.totalMemory() - runtime.freeMemory()});
+        tableModel.setDataVector(rows.toArray(new Object[0][]), UIConstant.DIAGNOSTICS_COLUMNS);
+    }
+
+    private static String format(double millis) {
+        return String.format("%.3f", millis);
+    }
+}
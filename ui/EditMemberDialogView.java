@@ -349,8 +349,8 @@ public class EditMemberDialogView extends JDialog implements Validator {
                 return;
             }
 
-            // use the builder to build a customer object
-            CustomerDto dto = customerDto.get();
+            // change a copy of the member, the stored one is shared by the readers and replaced by the update
+            CustomerDto dto = new CustomerDto(customerDto.get());
             dto.setFirstName(firstNameTextField.getText());
             dto.setLastName(lastNameTextField.getText());
             dto.setDateOfBirth(dateOfBirthTextField.getDate());
@@ -254,7 +254,7 @@ public class HomeView extends MyPanel implements DataSourceChannel<Statistics> {
      */
     @Override
     public void onDataChange(Statistics statistics, DataManipulateEnum flag) {
-        fetchData();
+        SwingUtilities.invokeLater(this::fetchData);
     }
 
     /**
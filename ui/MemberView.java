@@ -4,7 +4,6 @@ import component.MemberTable;
 import component.MyPanel;
 import component.MyTable;
 import constant.UIConstant;
-import core.MembershipService;
 
 import javax.swing.*;
 import java.awt.*;
@@ -24,8 +23,7 @@ public class MemberView extends MyPanel {
                 new MemberTable(
                         clubFrameView,
                         "Membership Table",
-                        UIConstant.MEMBER_COLUMNS,
-                        MembershipService.findMembersForTableRender());
+                        UIConstant.MEMBER_COLUMNS);
 
         // set the layout of the panel
         Box verticalBox = Box.createVerticalBox();
@@ -1,5 +1,6 @@
 package ui;
 
+import bean.Money;
 import bean.Promotion;
 import component.MyCard;
 import constant.CustomerSateEnum;
@@ -13,7 +14,6 @@ import utils.DateUtil;
 
 import javax.swing.*;
 import java.awt.*;
-import java.math.BigDecimal;
 import java.util.Date;
 import java.util.Objects;
 import java.util.Optional;
@@ -136,10 +136,10 @@ public class RenewMemberDialogView extends JDialog {
         this.customerDto = MembershipService.findCustomerByIdOp(id).get();
         memberIDTextField.setText(customerDto.getId());
         memberTextField.setText(customerDto.getRole().getRoleName());
-        expireTimeValue.setText(DateUtil.format(customerDto.getExpireTime()));
+        expireTimeValue.setText(DateUtil.formatDay(customerDto.getExpireDay()));
         // if the member is within the expiry date, the membership is renewed at the original expiry date
         if (customerDto.getState().equals(CustomerSateEnum.ACTIVE.getName())) {
-            startDateTextField.setText(DateUtil.format(customerDto.getStartDate()));
+            startDateTextField.setText(DateUtil.formatDay(customerDto.getStartDay()));
             updateExpireDateWithExpire();
         } else {
             //if the membership has expired, then the renewal starts on the day of renewal
@@ -367,13 +367,15 @@ public class RenewMemberDialogView extends JDialog {
                 int duration = Integer.parseInt((String) durationComboBox.getSelectedItem());
                 Date startDate = DateUtil.str2Date(startDateTextField.getText());
                 Date expireDate = DateUtil.str2Date(expireTimeValue.getText());
-                BigDecimal fees = new BigDecimal(membershipFeesValue.getText());
-                customerDto.setDuration(duration);
-                customerDto.setStartDate(startDate);
-                customerDto.setExpireTime(expireDate);
-                customerDto.setFees(fees);
-
-                MembershipService.renew(customerDto);
+                Money fees = Money.parse(membershipFeesValue.getText());
+                // the bound member is the stored one, so the renewal is made on a copy
+                CustomerDto renewal = new CustomerDto(customerDto);
+                renewal.setDuration(duration);
+                renewal.setStartDate(startDate);
+                renewal.setExpireTime(expireDate);
+                renewal.setFees(fees);
+
+                MembershipService.renew(renewal);
                 this.dispose();
             }
         });
@@ -423,7 +425,7 @@ public class RenewMemberDialogView extends JDialog {
     private void updateFees() {
         String type = memberTextField.getText();
         String duration = (String) durationComboBox.getSelectedItem();
-        BigDecimal fees = FeesService.getFees(type, duration);
+        Money fees = FeesService.getFees(type, duration);
         discountLabel.setVisible(false);
         discountValue.setVisible(false);
         discountValue.setText("0");
@@ -437,7 +439,7 @@ public class RenewMemberDialogView extends JDialog {
         String type = memberTextField.getText();
         String duration = (String) durationComboBox.getSelectedItem();
         String code = codeTextField.getText();
-        BigDecimal[] fees = FeesService.getFees(type, duration, code);
+        Money[] fees = FeesService.getFees(type, duration, code);
 
         discountLabel.setVisible(true);
         discountValue.setVisible(true);
@@ -1,6 +1,7 @@
 package ui;
 
 import bean.Course;
+import bean.Money;
 import bean.Validation;
 import component.MyCard;
 import core.RoleService;
@@ -14,7 +15,6 @@ import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.PlainDocument;
 import java.awt.*;
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -306,10 +306,10 @@ public class RoleDialogView extends JDialog implements Validator {
             RoleDto roleDto = new RoleDto.Builder()
                     .roleId(roleIdTextField.getText())
                     .roleName(roleNameTextField.getText())
-                    .oneMonth(new BigDecimal(feesOf1MonthTextField.getText()))
-                    .threeMonth(new BigDecimal(feesOf3MonthTextField.getText()))
-                    .halfYear(new BigDecimal(feesOf6MonthTextField.getText()))
-                    .fullYear(new BigDecimal(feesOf12TextField.getText()))
+                    .oneMonth(Money.parse(feesOf1MonthTextField.getText()))
+                    .threeMonth(Money.parse(feesOf3MonthTextField.getText()))
+                    .halfYear(Money.parse(feesOf6MonthTextField.getText()))
+                    .fullYear(Money.parse(feesOf12TextField.getText()))
                     .courseList(this.courseList)
                     .gym(gymCheckBox.isSelected())
                     .swimmingPool(swimmingPoolCheckBox.isSelected())
@@ -326,10 +326,10 @@ public class RoleDialogView extends JDialog implements Validator {
             RoleDto roleDto = new RoleDto.Builder()
                     .roleId(roleIdTextField.getText())
                     .roleName(roleNameTextField.getText())
-                    .oneMonth(new BigDecimal(feesOf1MonthTextField.getText()))
-                    .threeMonth(new BigDecimal(feesOf3MonthTextField.getText()))
-                    .halfYear(new BigDecimal(feesOf6MonthTextField.getText()))
-                    .fullYear(new BigDecimal(feesOf12TextField.getText()))
+                    .oneMonth(Money.parse(feesOf1MonthTextField.getText()))
+                    .threeMonth(Money.parse(feesOf3MonthTextField.getText()))
+                    .halfYear(Money.parse(feesOf6MonthTextField.getText()))
+                    .fullYear(Money.parse(feesOf12TextField.getText()))
                     .courseList(this.courseList)
                     .gym(gymCheckBox.isSelected())
                     .swimmingPool(swimmingPoolCheckBox.isSelected())
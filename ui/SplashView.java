@@ -10,14 +10,19 @@ import java.util.concurrent.TimeUnit;
  * This class sets the welcome panel
  */
 public class SplashView {
-    private static final JWindow window = new JWindow();
+    // created by see@run, so the data source can be loaded without a screen, ex. by the benchmarks
+    private static JWindow window;
+    // show the loading progress of the data files
+    private static final JLabel progressLabel = new JLabel(" ", SwingConstants.CENTER);
 
     public static void run() {
+        window = new JWindow();
         // set the window size
         Dimension screen = window.getToolkit().getScreenSize();
         ImageIcon imageIcon = new ImageIcon("assets/splash.jpg");
         window.getContentPane().add(
                 new JLabel("", imageIcon, SwingConstants.CENTER));
+        window.getContentPane().add(progressLabel, BorderLayout.SOUTH);
         window.setSize(imageIcon.getIconWidth(), imageIcon.getIconHeight());
         window.pack();
         window.setLocation((screen.width - window.getSize().width) / 2,
@@ -26,8 +31,20 @@ public class SplashView {
         window.setAlwaysOnTop(true);
     }
 
+    /**
+     * This method shows the loading progress, it can be invoked in any thread
+     *
+     * @param message the progress message
+     */
+    public static void progress(String message) {
+        SwingUtilities.invokeLater(() -> progressLabel.setText(message));
+    }
+
     // close this window after one second
     public static void dispose() throws InterruptedException {
+        if(window == null) {
+            return;
+        }
         TimeUnit.SECONDS.sleep(1);
         window.setVisible(false);
         window.dispose();
@@ -3,7 +3,6 @@ package ui;
 import component.MyTable;
 import component.VisitorTable;
 import constant.UIConstant;
-import core.VisitorService;
 
 import javax.swing.*;
 import java.awt.*;
@@ -20,7 +19,7 @@ public class VisitorView extends JPanel {
         // init the visitor table
         MyTable visitorTable =
                 new VisitorTable(clubFrameView, "Visitor Table", UIConstant.VISITOR_COLUMNS,
-                        VisitorService.findVisitorsForTableRender(), UIConstant.VISITOR_SEARCH_FILTER_COLUMNS);
+                        UIConstant.VISITOR_SEARCH_FILTER_COLUMNS);
 
         // set the layout of the panel
         Box verticalBox = Box.createVerticalBox();
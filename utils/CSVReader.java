@@ -0,0 +1,209 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class is a single pass csv tokenizer which follows the RFC-4180 rules.
+ * <p>
+ * 1. It reads the characters from its own buffer, so each character is only visited once
+ * 2. The quoted field can contain the comma, the line break and the escaped quote ("")
+ * 3. The row buffer and the field builder are reused, the only allocation of each row is the field strings
+ * <p>
+ * Usage: call the readRow() until it returns false, and use get(index) to take the field value of current row
+ */
+public final class CSVReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    // reuse the builder for each field to avoid the allocation
+    private final StringBuilder field = new StringBuilder(64);
+    private int position;
+    private int limit;
+    // the fields of current row, the array only grows when a row has more fields than before
+    private String[] fields = new String[16];
+    private int size;
+    private long rowNumber;
+
+    public CSVReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public CSVReader(ReadableByteChannel channel) {
+        // the channel is decoded with utf-8 which is the same charset we write the file
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tokenize the next row of the file
+     *
+     * @return false if the end of the file is reached
+     *
+     * @throws IOException if the reader cannot read the file
+     */
+    public boolean readRow() throws IOException {
+        while(true) {
+            int c = read();
+            if(c == - 1) {
+                return false;
+            }
+            // skip the blank lines, they do not contain any record
+            if(c == '\n') {
+                continue;
+            }
+            if(c == '\r') {
+                skipLineFeed();
+                continue;
+            }
+            position--;
+            break;
+        }
+
+        size = 0;
+        rowNumber++;
+        field.setLength(0);
+        boolean quoted = false;
+        boolean fieldStart = true;
+        while(true) {
+            int c = read();
+            if(c == - 1) {
+                // the last row does not end with a line break
+                addField();
+                return true;
+            }
+            if(quoted) {
+                if(c == '"') {
+                    // "" is an escaped quote, a single one closes the quoted field
+                    if(peek() == '"') {
+                        position++;
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+                continue;
+            }
+            switch(c) {
+                case ',' -> {
+                    addField();
+                    fieldStart = true;
+                    continue;
+                }
+                case '\n' -> {
+                    addField();
+                    return true;
+                }
+                case '\r' -> {
+                    skipLineFeed();
+                    addField();
+                    return true;
+                }
+                case '"' -> {
+                    // the quote only has the special meaning at the start of the field
+                    if(fieldStart) {
+                        quoted = true;
+                    } else {
+                        field.append('"');
+                    }
+                }
+                default -> field.append((char) c);
+            }
+            fieldStart = false;
+        }
+    }
+
+    /**
+     * @return the number of the fields of current row
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the line number of current row, which is useful when log the error
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * get the field value of current row
+     *
+     * @param index the column index
+     *
+     * @return the value, or the empty string if the row does not have this column
+     */
+    public String get(int index) {
+        return get(index, "");
+    }
+
+    /**
+     * get the field value of current row
+     *
+     * @param index        the column index
+     * @param defaultValue the value will be returned if the row does not have this column or the column is empty
+     *
+     * @return the value
+     */
+    public String get(int index, String defaultValue) {
+        if(index >= size) {
+            return defaultValue;
+        }
+        String value = fields[index];
+        return value.isEmpty() ? defaultValue : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private void addField() {
+        if(size == fields.length) {
+            fields = Arrays.copyOf(fields, size << 1);
+        }
+        fields[size++] = field.length() == 0 ? "" : field.toString();
+        field.setLength(0);
+    }
+
+    // treat the \r\n as one line break
+    private void skipLineFeed() throws IOException {
+        if(peek() == '\n') {
+            position++;
+        }
+    }
+
+    private int peek() throws IOException {
+        if(position == limit && ! fill()) {
+            return - 1;
+        }
+        return buffer[position];
+    }
+
+    private int read() throws IOException {
+        if(position == limit && ! fill()) {
+            return - 1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, BUFFER_SIZE);
+        if(read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package utils;
+
+/**
+ * @author lomofu
+ * <p>
+ * This interface maps the current row of a csv reader into an object.
+ * Each data type defines its mapper once as a constant, so the reading does not need the reflection.
+ *
+ * @param <T> the object type of the row
+ */
+@FunctionalInterface
+public interface CSVRowMapper<T> {
+    /**
+     * map the current row into an object
+     *
+     * @param row the reader which stays at the current row
+     *
+     * @return the object built from the row
+     */
+    T map(CSVReader row);
+}
@@ -1,12 +1,8 @@
 package utils;
 
-import ui.ClubFrameView;
-
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
@@ -14,8 +10,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author lomofu
@@ -23,16 +21,20 @@ import java.util.stream.Collectors;
  * this class handle the csv io for the whole system
  */
 public final class CSVUtil {
+    // the performance metrics, see@Metrics
+    private static final Metrics.Timer WRITE_TIMER = Metrics.timer("csv.write");
+    private static final Metrics.Timer BACKUP_TIMER = Metrics.timer("csv.backup");
+
     private CSVUtil() {
         // DO NOTHING
     }
 
     /**
-     * this generic function will return the pre-defined class type with param T, also use the reflection to dynamical
-     * assign the value for each field
+     * this generic function will return the pre-defined type with param T, the mapper of the type assigns the value
+     * for each field
      *
      * @param file            the csv file name
-     * @param clazz           the target object need to be assigned
+     * @param mapper          the pre-compiled row mapper of the target type, ex. Customer.CSV_MAPPER
      * @param ignoreException if it is true, the exception will not let the system broken. In other words, this method
      *                        will ignore it by only record a log in console
      * @param <T>             generic type, depends on the value you passed
@@ -41,7 +43,7 @@ public final class CSVUtil {
      *
      * @throws IOException cuz there are some io interaction, therefore it could has io exception
      */
-    public static <T> List<T> read(String file, Class<T> clazz, boolean ignoreException)
+    public static <T> List<T> read(String file, CSVRowMapper<T> mapper, boolean ignoreException)
             throws IOException {
         // depends on current directory and file name
         Path path = Paths.get(".", file);
@@ -55,177 +57,75 @@ public final class CSVUtil {
             throw new NoSuchFileException(
                     "Your '" + file + "' is not exist, please check your file path is true!");
         }
-
-        // use stream api to handle the input values
-        return Files.readAllLines(path).stream()
-                .map(e -> {
-                    try {
-                        // invoke to assign the value
-                        return CSVUtil.assignValueFromFile(e, clazz);
-                    } catch(Exception ex) {
-                        // log the error in the console
-                        Logger.error(ex.getMessage());
-                        throw new RuntimeException("Cannot assign the value");
-                    }
-                })
-                // distinct the repeat content
-                .distinct()
-                .collect(Collectors.toList());
+        return readRows(path, mapper);
     }
 
     /**
-     * this generic function will return the pre-defined class type with param T, also use the reflection to dynamical
-     * assign the value for each field
+     * this generic function will return the pre-defined type with param T, the file will be created if it is not
+     * exist
      *
-     * @param file  the csv file name
-     * @param clazz the target object need to be assigned
-     * @param <T>   generic type, depends on the value you passed
+     * @param file   the csv file name
+     * @param mapper the pre-compiled row mapper of the target type
+     * @param <T>    generic type, depends on the value you passed
      *
      * @return return the generic collection, the type is T
      */
-    public static <T> List<T> read(String file, Class<T> clazz) throws IOException {
+    public static <T> List<T> read(String file, CSVRowMapper<T> mapper) throws IOException {
         Path path = Paths.get(".", file);
         if(! Files.exists(path)) {
             Files.createFile(Paths.get(".", file));
             return new ArrayList<>();
         }
-
-        List<String> allLines = Files.readAllLines(path);
-        if(allLines.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        // use stream api to handle the input values
-        return allLines.stream()
-                .map(e -> {
-                    try {
-                        return CSVUtil.assignValueFromFile(e, clazz);
-                    } catch(Exception ex) {
-                        Logger.error(ex.getMessage());
-                        throw new RuntimeException("Cannot assign the value");
-                    }
-                })
-                .distinct()
-                .collect(Collectors.toList());
+        return readRows(path, mapper);
     }
 
     /**
      * this generic function will write some defalut value when the first time launch the system
      *
-     * @param file  the csv file name
-     * @param clazz the target object need to be assigned
-     * @param data
-     * @param <T>   the default values define in data constant see@DefaultDataConstant
+     * @param file   the csv file name
+     * @param mapper the pre-compiled row mapper of the target type
+     * @param data   the default values define in data constant see@DefaultDataConstant
+     * @param <T>    the object type
      *
      * @return return the generic collection, the type is T
      */
-    public static <T> List<T> read(String file, Class<T> clazz, T[] data) throws IOException {
+    public static <T> List<T> read(String file, CSVRowMapper<T> mapper, T[] data) throws IOException {
         Path path = Paths.get(".", file);
         if(! Files.exists(path)) {
             Path newFilePath = Files.createFile(Paths.get(".", file));
             write(newFilePath, data);
             return new ArrayList<>(Arrays.stream(data).toList());
         }
-
-        List<String> allLines = Files.readAllLines(path);
-        if(allLines.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        // use stream api to handle the input values
-        return allLines.stream()
-                .map(e -> {
-                    try {
-                        return CSVUtil.assignValueFromFile(e, clazz);
-                    } catch(Exception ex) {
-                        Logger.error(ex.getMessage());
-                        throw new RuntimeException("Cannot assign the value");
-                    }
-                })
-                .distinct()
-                .collect(Collectors.toList());
+        return readRows(path, mapper);
     }
 
     /**
-     * This function use java reflection to dynamic assign the row string read from the csv file and build an object
+     * This function streams the file row by row with the csv reader, and use the mapper to build each object.
+     * The file is never loaded into the memory as a whole.
      *
-     * @param record the each row str
-     * @param clazz  the object we need to map into
-     * @param <T>    the generic to let the method return to correspond type
+     * @param path   the file path
+     * @param mapper the row mapper
+     * @param <T>    the object type
      *
-     * @return return the object of T type
+     * @return the distinct objects in the file order
      *
-     * @throws NoSuchMethodException     if we invoke a method that not define in the class
-     * @throws InvocationTargetException if we invoke the target method is wrong
-     * @throws InstantiationException    if we initiate object with error
-     * @throws IllegalAccessException    if the field is private that protect not to be access
+     * @throws IOException if the file cannot be read
      */
-    private static <T> T assignValueFromFile(String record, Class<T> clazz)
-            throws NoSuchMethodException, InvocationTargetException, InstantiationException,
-            IllegalAccessException {
-        // use te regex to split the str of each row value, but execute the situation that the comma surround with ""
-        // ex. ,, can be split into len of 2 array, same to the ,","
-        String[] values = record.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)");
-        // if the class type is record
-        if(clazz.isRecord()) {
-            return assignValueWithRecord(values, clazz);
-        }
-        return assignValueWithClass(values, clazz);
-    }
-
-    /**
-     * assign the value with class type that when define a class use 'class' keyword
-     *
-     * @param values this array store each row value of correspond field
-     * @param clazz  the class type that we will reflect to dynamically create a new object
-     * @param <T>    the object type of the clazz create
-     *
-     * @return return a new T object
-     *
-     * @throws InstantiationException    if we initiate object with error
-     * @throws IllegalAccessException    if the field is private that protect not to be access
-     * @throws InvocationTargetException if we invoke a method that not define in the class
-     * @throws NoSuchMethodException     if we invoke a method that not define in the class
-     */
-    private static <T> T assignValueWithClass(String[] values, Class<T> clazz)
-            throws InstantiationException, IllegalAccessException, InvocationTargetException,
-            NoSuchMethodException {
-        // get the all fields (including the private one)
-        Field[] declaredFields = clazz.getDeclaredFields();
-        // use the default construct to new an instance
-        T instance = clazz.getDeclaredConstructor().newInstance();
-        for(int i = 0; i < values.length; i++) {
-            // get each field type
-            Field field = declaredFields[i];
-            // cuz the field is private, we should let it can be accessible
-            field.setAccessible(true);
-            // assign the value
-            field.set(instance, values[i]);
+    private static <T> List<T> readRows(Path path, CSVRowMapper<T> mapper) throws IOException {
+        // the linked hash set distinct the repeat content but keep the file order
+        Set<T> result = new LinkedHashSet<>();
+        try(CSVReader reader = new CSVReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            while(reader.readRow()) {
+                try {
+                    result.add(mapper.map(reader));
+                } catch(RuntimeException ex) {
+                    // log the error in the console
+                    Logger.error(path.getFileName() + " line " + reader.getRowNumber() + ": " + ex.getMessage());
+                    throw new RuntimeException("Cannot assign the value");
+                }
+            }
         }
-        return instance;
-    }
-
-    /**
-     * assign the value with class type that when define a class use 'record' keyword
-     * <p>
-     * The feature of the record type that it simplify the java bean, the record can only set value once when create it.
-     * Then, it can only have a read operation
-     *
-     * @param values this array store each row value of correspond field
-     *               the class type that we will reflect to dynamically create a new object
-     * @param <T>    the object type of the clazz create
-     *
-     * @return return a new T object
-     *
-     * @throws InvocationTargetException if we invoke a method that not define in the class
-     * @throws InstantiationException    if we initiate object with error
-     * @throws IllegalAccessException    if the field is private that protect not to be access
-     */
-    @SuppressWarnings("unchecked")
-    private static <T> T assignValueWithRecord(String[] values, Class<T> clazz)
-            throws InvocationTargetException, InstantiationException, IllegalAccessException {
-        // it will easily use the constructor to set whole values
-        return (T) clazz.getDeclaredConstructors()[0].newInstance(values);
+        return new ArrayList<>(result);
     }
 
     /**
@@ -258,32 +158,36 @@ public final class CSVUtil {
      *
      * @param writePath The target file name we want to write to
      * @param data      the original data already override the toString() method that return correctly csv format
+     * @param name      the job name shown in the progress
      * @param <T>       the object type
      */
-    public static <T> void write(String writePath, List<T> data) {
+    public static <T> void write(String writePath, List<T> data, String name) {
         // use the nio api since java 8 to get the path
         Path path = Paths.get(".", writePath);
+        Progress.Job job = Progress.start(name, data.size());
+        long start = System.nanoTime();
         // use the buffer writer created by files util. also make sure the encoding charset is utf-8
         try(BufferedWriter bufferedWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
             // iterate the data to write each object as a row
             for(T t : data) {
                 bufferedWriter.write(t.toString());
                 bufferedWriter.newLine();
-                // update the progress in the ui
-                ClubFrameView.updateProgressBar();
+                // update the progress, it never blocks the writing
+                job.step();
             }
             // clear the buffer pool
             bufferedWriter.flush();
-            // when writing task is done, remove the progress
-            ClubFrameView.removeSyncState();
+            WRITE_TIMER.stop(start, data.size());
             // log the success in console
-            Logger.info("'" + writePath + "'" + " write success");
+            Logger.info("'" + writePath + "'" + " write success", "rows", data.size(),
+                    "ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         } catch(IOException e) {
             // log the error in console
             Logger.error(e.getMessage());
-            // also need to remove the progress
-            ClubFrameView.removeSyncState();
             throw new RuntimeException("Cannot write to the " + path.getFileName());
+        } finally {
+            // when writing task is done or failed, remove the progress
+            job.finish();
         }
     }
 
@@ -300,6 +204,8 @@ public final class CSVUtil {
 
         // get the file path
         Path path = Paths.get(".", "backup", writePath);
+        Progress.Job job = Progress.start("Backup " + writePath, data.size());
+        long start = System.nanoTime();
         // use the buffer writer to write and define the charsets is utf-8
         try(BufferedWriter bufferedWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
             for(T t : data) {
@@ -307,17 +213,19 @@ public final class CSVUtil {
                 bufferedWriter.write(t.toString());
                 // move the next line
                 bufferedWriter.newLine();
-                ClubFrameView.updateProgressBar();
+                job.step();
             }
             // clear the buffer pool
             bufferedWriter.flush();
-            // remove the progress
-            ClubFrameView.removeSyncState();
-            Logger.info("'" + writePath + "'" + " backup success");
+            BACKUP_TIMER.stop(start, data.size());
+            Logger.info("'" + writePath + "'" + " backup success", "rows", data.size(),
+                    "ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
         } catch(IOException e) {
             Logger.error(e.getMessage());
-            ClubFrameView.removeSyncState();
             throw new RuntimeException("Cannot backup to the " + path.getFileName());
+        } finally {
+            // remove the progress
+            job.finish();
         }
     }
 
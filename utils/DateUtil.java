@@ -3,14 +3,18 @@ package utils;
 import constant.UIConstant;
 
 import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author lomofu
@@ -19,6 +23,8 @@ import java.util.Optional;
  * Use the Localdate api since java8
  */
 public final class DateUtil {
+    // the epoch day of an empty date
+    public static final int NO_DAY = Integer.MIN_VALUE;
     // static a formatter that it is a format date dd/mm/yyyy(4 digital)
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern(UIConstant.DATE_FORMAT);
     // use the builder to cover the original file that has some data of year only has two digital
@@ -35,6 +41,8 @@ public final class DateUtil {
                     .appendValueReduced(ChronoField.YEAR, 2, 2, 1920)
                     .optionalEnd()
                     .toFormatter();
+    // the dates shown by the tables, there are only a few thousand distinct days
+    private static final Map<Integer, Date> DISPLAY_DATES = new ConcurrentHashMap<>();
 
     private DateUtil() {
         //do nothing
@@ -115,6 +123,119 @@ public final class DateUtil {
         return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
     }
 
+    /**
+     * converse the date type to the number of days from 1970-01-01
+     *
+     * @param date Date
+     *
+     * @return epoch day
+     */
+    public static long toEpochDay(Date date) {
+        return toLocalDate(date).toEpochDay();
+    }
+
+    /**
+     * converse the number of days from 1970-01-01 to the date type, at the start of the day
+     *
+     * @param epochDay epoch day
+     *
+     * @return date
+     */
+    public static Date ofEpochDay(long epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay().atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * The method to make a string become the number of days from 1970-01-01
+     *
+     * @param date the string type of the date, should only be formal of 'dd/mm/yyyy'
+     *
+     * @return epoch day, NO_DAY if the string is empty
+     */
+    public static int parseDay(String date) {
+        if(date == null || "".equals(date)) {
+            return NO_DAY;
+        }
+        // read the digits directly in the common case, the formatter is only used for the others
+        if(date.length() == 10 && date.charAt(2) == '/' && date.charAt(5) == '/') {
+            int day = digits(date, 0, 2);
+            int month = digits(date, 3, 5);
+            int year = digits(date, 6, 10);
+            // a day out of the month is left to the formatter, it moves the day into the month like before
+            if(day >= 1 && month >= 1 && month <= 12 && year >= 0 && day <= Month.of(month).length(Year.isLeap(year))) {
+                return (int) LocalDate.of(year, month, day).toEpochDay();
+            }
+        }
+        return (int) LocalDate.parse(date, DATE_FORMATTER).toEpochDay();
+    }
+
+    // the value of the digits, -1 if there is a char which is not a digit
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for(int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if(c < '0' || c > '9') {
+                return - 1;
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    /**
+     * converse the date type to the number of days from 1970-01-01, it is the edge between the ui and the data
+     *
+     * @param date Date
+     *
+     * @return epoch day, NO_DAY if the date is null
+     */
+    public static int toDay(Date date) {
+        return date == null ? NO_DAY : (int) toEpochDay(date);
+    }
+
+    /**
+     * converse the number of days from 1970-01-01 to a new date
+     *
+     * @param day epoch day
+     *
+     * @return date, null if the day is NO_DAY
+     */
+    public static Date toDate(int day) {
+        return day == NO_DAY ? null : ofEpochDay(day);
+    }
+
+    /**
+     * The date for the tables to paint and sort, each day is converted only once.
+     * The date is shared, it should never be modified
+     *
+     * @param day epoch day
+     *
+     * @return date, null if the day is NO_DAY
+     */
+    public static Date displayDate(int day) {
+        return day == NO_DAY ? null : DISPLAY_DATES.computeIfAbsent(day, DateUtil::ofEpochDay);
+    }
+
+    /**
+     * format the number of days from 1970-01-01 into a string
+     *
+     * @param day epoch day
+     *
+     * @return string with dd/MM/yyyy, empty if the day is NO_DAY
+     */
+    public static String formatDay(int day) {
+        return day == NO_DAY ? "" : LocalDate.ofEpochDay(day).format(DATE_FORMATTER);
+    }
+
+    /**
+     * get today as the number of days from 1970-01-01
+     *
+     * @return epoch day of today
+     */
+    public static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+
     /**
      * format the date into a string
      *
@@ -246,6 +367,21 @@ public final class DateUtil {
         return (int) duration;
     }
 
+    /**
+     * Calculate the age by the birthday, up to now year's September 1rt
+     *
+     * @param birthDay epoch day of the birthday
+     *
+     * @return the age
+     */
+    public static int calculateAge(int birthDay) {
+        if(birthDay == NO_DAY) {
+            return - 1;
+        }
+        LocalDate now = LocalDate.now();
+        return (int) ChronoUnit.YEARS.between(LocalDate.ofEpochDay(birthDay), LocalDate.of(now.getYear(), 9, 1));
+    }
+
     /**
      * plus months
      *
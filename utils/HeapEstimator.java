@@ -0,0 +1,144 @@
+package utils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class estimates the heap used by a list of records, it is shown by the diagnostics
+ * <p>
+ * 1. Only a few records spread over the list are measured, the result is scaled by the size of the list
+ * 2. The sizes follow a 64 bit jvm with the compressed references: a 12 bytes object header, 4 bytes references and
+ * each object is aligned to 8 bytes
+ * 3. The fields of the application classes are followed, a string counts its chars as one byte each. The objects of
+ * the other jdk classes only count their own fields, since their fields cannot be read
+ * <p>
+ * It is an estimate, not a measurement
+ */
+public final class HeapEstimator {
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int STRING = 24;
+    private static final Map<Class<?>, Layout> layouts = new ConcurrentHashMap<>();
+
+    private HeapEstimator() {
+        // DO NOTHING
+    }
+
+    /**
+     * @param list    the records, it should not be changed while it is estimated
+     * @param samples the max number of the records measured
+     *
+     * @return the estimated bytes of the list and its records
+     */
+    public static long estimate(List<?> list, int samples) {
+        int size = list.size();
+        long array = align(ARRAY_HEADER + (long) REFERENCE * size);
+        if(size == 0) {
+            return array;
+        }
+        int step = Math.max(size / samples, 1);
+        // the objects shared by the sampled records are only counted once
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        long sampled = 0;
+        int measured = 0;
+        for(int i = 0; i < size && measured < samples; i += step, measured++) {
+            sampled += deepSize(list.get(i), visited);
+        }
+        return array + sampled * size / measured;
+    }
+
+    private static long deepSize(Object root, Set<Object> visited) {
+        long bytes = 0;
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(root);
+        while(! stack.isEmpty()) {
+            Object o = stack.pop();
+            // the enum constants are shared by the whole application
+            if(o instanceof Enum<?> || ! visited.add(o)) {
+                continue;
+            }
+            if(o instanceof String s) {
+                bytes += STRING + align(ARRAY_HEADER + s.length());
+                continue;
+            }
+            Class<?> c = o.getClass();
+            if(c.isArray()) {
+                int length = Array.getLength(o);
+                Class<?> component = c.getComponentType();
+                bytes += align(ARRAY_HEADER + (long) length * fieldSize(component));
+                if(! component.isPrimitive()) {
+                    for(int i = 0; i < length; i++) {
+                        Object element = Array.get(o, i);
+                        if(element != null) {
+                            stack.push(element);
+                        }
+                    }
+                }
+                continue;
+            }
+            Layout layout = layouts.computeIfAbsent(c, Layout::of);
+            bytes += layout.size;
+            for(Field field : layout.references) {
+                try {
+                    Object value = field.get(o);
+                    if(value != null) {
+                        stack.push(value);
+                    }
+                } catch(IllegalAccessException e) {
+                    // count the reference only
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if(type == long.class || type == double.class) {
+            return 8;
+        }
+        if(type == int.class || type == float.class) {
+            return 4;
+        }
+        if(type == short.class || type == char.class) {
+            return 2;
+        }
+        if(type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~ 7L;
+    }
+
+    /**
+     * The shallow size of a class and its reference fields which can be followed
+     */
+    private record Layout(long size, List<Field> references) {
+        private static Layout of(Class<?> c) {
+            long size = HEADER;
+            List<Field> references = new ArrayList<>();
+            // the fields of the jdk classes are not accessible
+            boolean open = ! c.getModule().isNamed();
+            for(Class<?> k = c; k != null; k = k.getSuperclass()) {
+                for(Field field : k.getDeclaredFields()) {
+                    if(Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    size += fieldSize(field.getType());
+                    if(open && ! field.getType().isPrimitive() && field.trySetAccessible()) {
+                        references.add(field);
+                    }
+                }
+            }
+            return new Layout(align(size), references);
+        }
+    }
+}
@@ -1,13 +1,37 @@
 package utils;
 
-import java.text.MessageFormat;
+import constant.DefaultDataConstant;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.concurrent.CompletableFuture;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * @author lomofu
  * <p>
  * This class is a logger util
+ * <p>
+ * 1. A log call only checks the level, claims a slot of a ring buffer and copies its arguments into the slot. It never
+ * formats a string, takes a lock or does any io
+ * 2. One logger thread takes the lines out in the order they are claimed, formats them and writes them in batches to
+ * the console and to a rolling file
+ * 3. The timings are passed as key/value fields, ex. info("Loaded", "rows", 100, "ms", 12), so the caller does not
+ * build a string for them
+ * 4. The buffer is bounded, the lines are dropped instead of blocking the caller when it is full, and the number of the
+ * dropped lines is logged later
  */
 public class Logger {
     public static final String RED = "\033[0;31m";
@@ -15,6 +39,37 @@ public class Logger {
     public static final String PURPLE = "\033[0;35m";  // PURPLE
     private static final String RESET = "\033[0m";  // Text Reset
     private static final String GREEN = "\033[0;32m";
+    private static final String CYAN = "\033[0;36m";
+
+    private static final int CAPACITY = DefaultDataConstant.LOG_BUFFER_SIZE;
+    private static final int MASK = CAPACITY - 1;
+    // write the batch when it is larger than this, even if there are more lines
+    private static final int BATCH_CHARS = 64 * 1024;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final Slot[] slots = new Slot[CAPACITY];
+    // the next sequence to claim, and the next sequence the logger thread reads
+    private static final AtomicLong claimed = new AtomicLong();
+    private static final AtomicLong consumed = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    // the logger thread is parked and waits for a line
+    private static final AtomicBoolean sleeping = new AtomicBoolean();
+    private static volatile int threshold = Level.of(System.getProperty("club.log.level")).ordinal();
+    private static volatile boolean closing;
+    private static final Thread writer;
+
+    static {
+        for(int i = 0; i < CAPACITY; i++) {
+            slots[i] = new Slot(i - CAPACITY);
+        }
+        writer = new Thread(new Writer(), "logger");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::close, "logger-shutdown"));
+    }
+
+    private Logger() {
+        // DO NOTHING
+    }
 
     public static void banner() {
         String banner = """
@@ -22,18 +77,307 @@ public class Logger {
                   / ____/   / /   / / / /   / __ )         / __ \\  / ___/
                  / /       / /   / / / /   / __  |        / / / /  \\__ \\\s
                 / /___    / /___/ /_/ /   / /_/ /        / /_/ /  ___/ /\s
-                \\____/   /_____/\\____/   /_____/         \\____/  /____/  POWBERED BY lomofu                
-                                   
+                \\____/   /_____/\\____/   /_____/         \\____/  /____/  POWBERED BY lomofu
+
                                """;
         System.out.println(PURPLE + banner + RESET);
     }
 
+    /**
+     * @param level the lowest level to log
+     */
+    public static void setLevel(Level level) {
+        threshold = level.ordinal();
+    }
+
+    /**
+     * Check it before building an expensive message
+     *
+     * @param level the level
+     *
+     * @return the level is logged
+     */
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message, null, 0, null, 0);
+    }
+
     public static void info(String message) {
-        CompletableFuture.runAsync(() -> System.out.println(GREEN + MessageFormat.format("[INFO] {0} {1}", LocalDateTime.now().toString(), message) + RESET));
+        log(Level.INFO, message, null, 0, null, 0);
+    }
+
+    public static void info(String message, String key, long value) {
+        log(Level.INFO, message, key, value, null, 0);
+    }
+
+    public static void info(String message, String key, long value, String key2, long value2) {
+        log(Level.INFO, message, key, value, key2, value2);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message, null, 0, null, 0);
     }
 
     public static void error(String message) {
-        CompletableFuture.runAsync(() ->
-                System.out.println(RED + MessageFormat.format("[ERROR] {0}", message) + RESET));
+        log(Level.ERROR, message, null, 0, null, 0);
+    }
+
+    /**
+     * Log a line with two key/value fields at most, a null key is not written
+     */
+    public static void log(Level level, String message, String key, long value, String key2, long value2) {
+        if(level.ordinal() < threshold) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if(sequence - consumed.get() >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while(! claimed.compareAndSet(sequence, sequence + 1));
+        Slot slot = slots[(int) sequence & MASK];
+        slot.level = level;
+        slot.time = System.currentTimeMillis();
+        slot.message = message;
+        slot.key = key;
+        slot.value = value;
+        slot.key2 = key2;
+        slot.value2 = value2;
+        // publish the slot after its fields
+        slot.sequence = sequence;
+        if(sleeping.get() && sleeping.compareAndSet(true, false)) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Wait until the lines logged before are written
+     *
+     * @param timeout the max waiting time in milliseconds
+     */
+    public static void flush(long timeout) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while(consumed.get() < target && System.nanoTime() < deadline && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    // write the rest lines when the application exits
+    private static void close() {
+        closing = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR;
+
+        /**
+         * @param name the level name, ex. info
+         *
+         * @return the level, INFO if the name is unknown
+         */
+        public static Level of(String name) {
+            for(Level level : values()) {
+                if(level.name().equalsIgnoreCase(name)) {
+                    return level;
+                }
+            }
+            return INFO;
+        }
+    }
+
+    // a line in the ring buffer, it is reused when the buffer wraps
+    private static final class Slot {
+        private volatile long sequence;
+        private Level level;
+        private long time;
+        private String message;
+        private String key;
+        private long value;
+        private String key2;
+        private long value2;
+
+        private Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * The logger thread, the only one which touches the console batch and the file
+     */
+    private static final class Writer implements Runnable {
+        private final StringBuilder console = new StringBuilder(BATCH_CHARS);
+        private final StringBuilder file = new StringBuilder(BATCH_CHARS);
+        private final PrintStream out = System.out;
+        private final Path path = Paths.get(".", DefaultDataConstant.LOG_DIRECTORY, DefaultDataConstant.LOG_FILE);
+        private BufferedWriter fileWriter;
+        private long fileSize;
+        private boolean fileFailed;
+        // the formatted time of the current second
+        private long second = Long.MIN_VALUE;
+        private String secondText;
+
+        @Override
+        public void run() {
+            long next = 0;
+            while(true) {
+                Slot slot = slots[(int) next & MASK];
+                if(slot.sequence == next) {
+                    append(slot);
+                    // clear the references, so the slot does not keep the message alive
+                    slot.message = null;
+                    next++;
+                    consumed.lazySet(next);
+                    if(file.length() >= BATCH_CHARS) {
+                        write();
+                    }
+                    continue;
+                }
+                write();
+                long lost = dropped.getAndSet(0);
+                if(lost > 0) {
+                    appendLine(Level.WARN, System.currentTimeMillis(), "The log buffer is full, lines are dropped",
+                            "lines", lost, null, 0);
+                    write();
+                }
+                if(closing) {
+                    closeFile();
+                    return;
+                }
+                sleeping.set(true);
+                // check again, a line published before the flag is set does not wake this thread
+                if(slot.sequence != next && ! closing) {
+                    LockSupport.parkNanos(this, IDLE_NANOS);
+                }
+                sleeping.set(false);
+            }
+        }
+
+        private void append(Slot slot) {
+            appendLine(slot.level, slot.time, slot.message, slot.key, slot.value, slot.key2, slot.value2);
+        }
+
+        private void appendLine(Level level, long time, String message, String key, long value, String key2,
+                                long value2) {
+            int start = file.length();
+            file.append('[').append(level.name()).append("] ");
+            appendTime(time);
+            file.append(' ').append(message);
+            if(key != null) {
+                file.append(' ').append(key).append('=').append(value);
+            }
+            if(key2 != null) {
+                file.append(' ').append(key2).append('=').append(value2);
+            }
+            file.append(System.lineSeparator());
+            String color = switch(level) {
+                case DEBUG -> CYAN;
+                case INFO -> GREEN;
+                case WARN -> YELLOW;
+                case ERROR -> RED;
+            };
+            console.append(color).append(file, start, file.length() - System.lineSeparator().length())
+                    .append(RESET).append(System.lineSeparator());
+        }
+
+        private void appendTime(long time) {
+            long currentSecond = Math.floorDiv(time, 1000);
+            if(currentSecond != second) {
+                second = currentSecond;
+                secondText = LocalDateTime.ofInstant(Instant.ofEpochSecond(currentSecond), ZoneId.systemDefault())
+                        .toString();
+                // LocalDateTime omits the zero seconds
+                if(secondText.length() == 16) {
+                    secondText += ":00";
+                }
+            }
+            int millis = Math.floorMod(time, 1000);
+            file.append(secondText).append('.');
+            if(millis < 100) {
+                file.append('0');
+            }
+            if(millis < 10) {
+                file.append('0');
+            }
+            file.append(millis);
+        }
+
+        // write the batch to the console and the file
+        private void write() {
+            if(console.length() > 0) {
+                out.print(console);
+                out.flush();
+                console.setLength(0);
+            }
+            if(file.length() > 0) {
+                writeFile();
+                file.setLength(0);
+            }
+        }
+
+        private void writeFile() {
+            if(fileFailed) {
+                return;
+            }
+            try {
+                if(fileWriter == null) {
+                    Files.createDirectories(path.getParent());
+                    fileSize = Files.exists(path) ? Files.size(path) : 0;
+                    fileWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+                fileWriter.append(file);
+                fileWriter.flush();
+                fileSize += file.length();
+                if(fileSize >= DefaultDataConstant.LOG_FILE_SIZE) {
+                    roll();
+                }
+            } catch(IOException e) {
+                // keep logging to the console
+                fileFailed = true;
+                out.println(RED + "[ERROR] Cannot write the log file: " + e.getMessage() + RESET);
+            }
+        }
+
+        // club.log -> club.log.1 -> club.log.2 ..., the oldest one is deleted
+        private void roll() throws IOException {
+            closeFile();
+            int files = DefaultDataConstant.LOG_FILES;
+            Files.deleteIfExists(rolled(files - 1));
+            for(int i = files - 2; i >= 1; i--) {
+                if(Files.exists(rolled(i))) {
+                    Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(path, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        private Path rolled(int index) {
+            return path.resolveSibling(path.getFileName() + "." + index);
+        }
+
+        private void closeFile() {
+            if(fileWriter == null) {
+                return;
+            }
+            try {
+                fileWriter.close();
+            } catch(IOException e) {
+                out.println(RED + "[ERROR] Cannot close the log file: " + e.getMessage() + RESET);
+            }
+            fileWriter = null;
+        }
     }
 }
@@ -0,0 +1,283 @@
+package utils;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class is the registry of the performance metrics
+ * <p>
+ * 1. A counter counts the events, a gauge reads a value when it is shown and a timer keeps a latency histogram
+ * 2. Recording does not lock or allocate, the counters are LongAdders and the histogram is an array of atomic buckets
+ * 3. The histogram buckets grow by the power of two, each one is split into 8 sub-buckets. So a percentile is at most
+ * 12.5 percent larger than the real one, and the histogram has a fixed size whatever the latencies are
+ * 4. Each metric is published as a JMX MBean named club:type=Timer|Counter|Gauge,name=the metric name
+ * <p>
+ * The metrics should be kept in static fields, see@timer and see@counter only create them once
+ */
+public final class Metrics {
+    private static final String DOMAIN = "club";
+    private static final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+        // DO NOTHING
+    }
+
+    /**
+     * @param name the metric name, ex. datasource.init
+     *
+     * @return the timer of the name, it is created at the first time
+     */
+    public static Timer timer(String name) {
+        return timers.computeIfAbsent(name, e -> register("Timer", e, new Timer()));
+    }
+
+    /**
+     * @param name the metric name
+     *
+     * @return the counter of the name, it is created at the first time
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, e -> register("Counter", e, new Counter()));
+    }
+
+    /**
+     * @param name  the metric name
+     * @param value read the value when the gauge is shown, it should be cheap and thread safe
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.computeIfAbsent(name, e -> register("Gauge", e, new Gauge(value)));
+    }
+
+    /**
+     * @return all the timers in the order of their names
+     */
+    public static Map<String, Timer> timers() {
+        return new TreeMap<>(timers);
+    }
+
+    /**
+     * @return all the counters in the order of their names
+     */
+    public static Map<String, Counter> counters() {
+        return new TreeMap<>(counters);
+    }
+
+    /**
+     * @return all the gauges in the order of their names
+     */
+    public static Map<String, Gauge> gauges() {
+        return new TreeMap<>(gauges);
+    }
+
+    private static <T> T register(String type, String name, T bean) {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(bean, new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name)));
+        } catch(JMException | SecurityException e) {
+            // the metric still works without the jmx
+            Logger.warn("Cannot publish the metric " + name + ": " + e.getMessage());
+        }
+        return bean;
+    }
+
+    public interface TimerMXBean {
+        long getCount();
+
+        double getMeanMillis();
+
+        double getP50Millis();
+
+        double getP99Millis();
+
+        double getMaxMillis();
+
+        long getRowsPerSecond();
+    }
+
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    public interface GaugeMXBean {
+        long getValue();
+    }
+
+    /**
+     * A latency histogram, and the number of the rows processed in the timed calls
+     */
+    public static final class Timer implements TimerMXBean {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (Long.SIZE - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Timer() {
+        }
+
+        // the small values have their own buckets, the others keep the 3 bits after the highest bit
+        private static int bucket(long nanos) {
+            if(nanos < SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            int mantissa = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BITS + 1) * SUB_BUCKETS + mantissa;
+        }
+
+        // the largest value of the bucket
+        private static long upperBound(int bucket) {
+            if(bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return lower + (1L << shift) - 1;
+        }
+
+        /**
+         * Record the time since the start
+         *
+         * @param start the System.nanoTime() before the call
+         */
+        public void stop(long start) {
+            record(System.nanoTime() - start, 0);
+        }
+
+        /**
+         * Record the time since the start and the number of the rows processed
+         *
+         * @param start the System.nanoTime() before the call
+         * @param rows  the number of the rows
+         */
+        public void stop(long start, long rows) {
+            record(System.nanoTime() - start, rows);
+        }
+
+        public void record(long nanos, long rows) {
+            long value = Math.max(nanos, 0);
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            totalNanos.add(value);
+            max.accumulate(value);
+            if(rows > 0) {
+                this.rows.add(rows);
+            }
+        }
+
+        /**
+         * @param percentile from 0 to 100
+         *
+         * @return the latency in nanoseconds which the percentile of the calls are not longer than
+         */
+        public long percentile(double percentile) {
+            long[] snapshot = new long[BUCKETS];
+            long total = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if(total == 0) {
+                return 0;
+            }
+            long rank = Math.max((long) Math.ceil(total * percentile / 100), 1);
+            long seen = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if(seen >= rank) {
+                    return Math.min(upperBound(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : millis(totalNanos.sum() / n);
+        }
+
+        @Override
+        public double getP50Millis() {
+            return millis(percentile(50));
+        }
+
+        @Override
+        public double getP99Millis() {
+            return millis(percentile(99));
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return millis(max.get());
+        }
+
+        /**
+         * @return the rows processed per second of the timed time, 0 if the timer has no rows
+         */
+        @Override
+        public long getRowsPerSecond() {
+            long nanos = totalNanos.sum();
+            return nanos == 0 ? 0 : (long) (rows.sum() * (double) TimeUnit.SECONDS.toNanos(1) / nanos);
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    public static final class Counter implements CounterMXBean {
+        private final LongAdder count = new LongAdder();
+
+        private Counter() {
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long n) {
+            count.add(n);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+    }
+
+    public static final class Gauge implements GaugeMXBean {
+        private final LongSupplier value;
+
+        private Gauge(LongSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public long getValue() {
+            return value.getAsLong();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package utils;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * @author lomofu
+ * <p>
+ * This class reports the progress of the io jobs, such as saving, backing up and loading the files
+ * <p>
+ * 1. Each job gets its own handle, so several jobs can run at the same time
+ * 2. A job only updates its own counters, it never waits for the ui
+ * 3. The listeners are called in the event dispatch thread, at most a few times per second however fast the jobs run.
+ * The start and the end of a job are always reported
+ */
+public final class Progress {
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final AtomicLong ids = new AtomicLong();
+    private static final List<Job> jobs = new CopyOnWriteArrayList<>();
+    private static final List<Consumer<List<JobState>>> listeners = new CopyOnWriteArrayList<>();
+    private static final AtomicLong lastPublish = new AtomicLong(System.nanoTime() - INTERVAL);
+    // there is already a delivery waiting in the event dispatch thread
+    private static final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private Progress() {
+        // DO NOTHING
+    }
+
+    /**
+     * Start a job
+     *
+     * @param name  the name shown to the user
+     * @param total the number of the rows, 0 if it is unknown
+     *
+     * @return the handle of the job
+     */
+    public static Job start(String name, long total) {
+        Job job = new Job(ids.incrementAndGet(), name, total);
+        jobs.add(job);
+        publish(true);
+        return job;
+    }
+
+    /**
+     * @param listener receive the states of all the running jobs in the event dispatch thread
+     */
+    public static void addListener(Consumer<List<JobState>> listener) {
+        listeners.add(listener);
+    }
+
+    private static void publish(boolean force) {
+        if(listeners.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastPublish.get();
+        if(! force && (now - last < INTERVAL || ! lastPublish.compareAndSet(last, now))) {
+            return;
+        }
+        if(scheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(Progress::deliver);
+        }
+    }
+
+    private static void deliver() {
+        scheduled.set(false);
+        List<JobState> states = new ArrayList<>();
+        for(Job job : jobs) {
+            states.add(job.state());
+        }
+        for(Consumer<List<JobState>> listener : listeners) {
+            listener.accept(states);
+        }
+    }
+
+    /**
+     * The state of a running job at the moment it is delivered
+     *
+     * @param id            the job id
+     * @param name          the job name
+     * @param done          the number of the finished rows
+     * @param total         the number of the rows, 0 if it is unknown
+     * @param rowsPerSecond the throughput since the job started
+     */
+    public record JobState(long id, String name, long done, long total, long rowsPerSecond) {
+    }
+
+    /**
+     * The handle of a job, it can be used in any thread
+     */
+    public static final class Job {
+        private final long id;
+        private final String name;
+        private final long total;
+        private final long startTime = System.nanoTime();
+        private final AtomicLong done = new AtomicLong();
+
+        private Job(long id, String name, long total) {
+            this.id = id;
+            this.name = name;
+            this.total = total;
+        }
+
+        /**
+         * One row is finished
+         */
+        public void step() {
+            step(1);
+        }
+
+        /**
+         * @param rows the number of the rows finished
+         */
+        public void step(long rows) {
+            done.addAndGet(rows);
+            publish(false);
+        }
+
+        /**
+         * The job is finished or failed, remove it from the ui
+         */
+        public void finish() {
+            if(jobs.remove(this)) {
+                publish(true);
+            }
+        }
+
+        private JobState state() {
+            long finished = done.get();
+            long elapsed = Math.max(System.nanoTime() - startTime, 1);
+            return new JobState(id, name, finished, total, finished * TimeUnit.SECONDS.toNanos(1) / elapsed);
+        }
+    }
+}